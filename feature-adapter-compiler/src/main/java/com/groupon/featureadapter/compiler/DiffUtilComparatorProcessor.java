@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.compiler;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the {@code DiffUtilComparator} of the models annotated with {@code
+ * GenerateDiffUtilComparator}. The annotations are matched by name, this processor does not depend
+ * on the Android library that declares them.
+ *
+ * <p>The generated comparators compare the properties of the models without reflection, and their
+ * change payload is the bitmask of the content properties that changed.
+ */
+public class DiffUtilComparatorProcessor extends AbstractProcessor {
+
+  static final String GENERATE_ANNOTATION =
+      "com.groupon.featureadapter.annotations.GenerateDiffUtilComparator";
+  static final String ID_ANNOTATION = "com.groupon.featureadapter.annotations.DiffId";
+  static final String IGNORE_ANNOTATION = "com.groupon.featureadapter.annotations.DiffIgnore";
+  static final String COMPARATOR_INTERFACE = "com.groupon.featureadapter.DiffUtilComparator";
+  static final String COMPARATOR_SUFFIX = "DiffUtilComparator";
+
+  /** The maximum number of content properties, one bit of the payload per property. */
+  private static final int MAX_CONTENT_PROPERTIES = 64;
+
+  /** Claims the property annotations too, javac warns about the annotations nobody claims. */
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return new HashSet<>(Arrays.asList(GENERATE_ANNOTATION, ID_ANNOTATION, IGNORE_ANNOTATION));
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (TypeElement annotation : annotations) {
+      if (!annotation.getQualifiedName().contentEquals(GENERATE_ANNOTATION)) {
+        // the property annotations are read from the models
+        continue;
+      }
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() != ElementKind.CLASS) {
+          error(element, "Only classes can generate a DiffUtilComparator.");
+          continue;
+        }
+        final TypeElement model = (TypeElement) element;
+        if (!model.getTypeParameters().isEmpty()) {
+          error(model, "Generic models can not generate a DiffUtilComparator.");
+          continue;
+        }
+        generateComparator(model);
+      }
+    }
+    return true;
+  }
+
+  private void generateComparator(TypeElement model) {
+    final List<Property> ids = new ArrayList<>();
+    final List<Property> contents = new ArrayList<>();
+    if (!collectProperties(model, ids, contents)) {
+      return;
+    }
+    if (ids.isEmpty()) {
+      error(
+          model,
+          "A model must have at least one property annotated with @DiffId, without ids all its"
+              + " items would be the same item.");
+      return;
+    }
+    if (contents.size() > MAX_CONTENT_PROPERTIES) {
+      error(
+          model,
+          "A model can not have more than "
+              + MAX_CONTENT_PROPERTIES
+              + " content properties, ignore some of them with @DiffIgnore.");
+      return;
+    }
+
+    final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(model);
+    final String packageName = packageElement.getQualifiedName().toString();
+    final String comparatorName = getFlatName(model) + COMPARATOR_SUFFIX;
+    final String qualifiedComparatorName =
+        packageName.isEmpty() ? comparatorName : packageName + '.' + comparatorName;
+    try (PrintWriter writer =
+        new PrintWriter(
+            processingEnv
+                .getFiler()
+                .createSourceFile(qualifiedComparatorName, model)
+                .openWriter())) {
+      writeComparator(writer, model, packageName, comparatorName, ids, contents);
+    } catch (IOException exception) {
+      error(model, "Could not write " + qualifiedComparatorName + ": " + exception.getMessage());
+    }
+  }
+
+  /**
+   * Collects the abstract accessors and the non private fields of the model. The abstract methods
+   * of the interfaces it implements, like {@code describeContents()} of {@code Parcelable}, are
+   * not properties: only the methods declared by the model and its superclasses are.
+   *
+   * @return false if a property is not accessible from the package of the model.
+   */
+  private boolean collectProperties(
+      TypeElement model, List<Property> ids, List<Property> contents) {
+    final PackageElement modelPackage = processingEnv.getElementUtils().getPackageOf(model);
+    final Set<String> constantNames = new HashSet<>();
+    boolean isValid = true;
+    for (Element member : processingEnv.getElementUtils().getAllMembers(model)) {
+      final String accessor;
+      final TypeMirror type;
+      if (member.getKind() == ElementKind.METHOD) {
+        final ExecutableElement method = (ExecutableElement) member;
+        if (!method.getModifiers().contains(ABSTRACT)
+            || method.getEnclosingElement().getKind() == ElementKind.INTERFACE
+            || !method.getParameters().isEmpty()
+            || method.getReturnType().getKind() == TypeKind.VOID
+            || isNestedIn(method.getReturnType(), model)) {
+          // not a property, or the toBuilder() method of an AutoValue class
+          continue;
+        }
+        accessor = method.getSimpleName() + "()";
+        type = method.getReturnType();
+      } else if (member.getKind() == ElementKind.FIELD) {
+        if (member.getModifiers().contains(STATIC) || member.getModifiers().contains(PRIVATE)) {
+          continue;
+        }
+        accessor = member.getSimpleName().toString();
+        type = member.asType();
+      } else {
+        continue;
+      }
+      final boolean isId = hasAnnotation(member, ID_ANNOTATION);
+      if (!isId && hasAnnotation(member, IGNORE_ANNOTATION)) {
+        continue;
+      }
+      if (!member.getModifiers().contains(PUBLIC)
+          && !processingEnv.getElementUtils().getPackageOf(member).equals(modelPackage)) {
+        error(member, "The property " + accessor + " is not accessible from " + model + ".");
+        isValid = false;
+        continue;
+      }
+      final Property property =
+          new Property(accessor, toConstantName(member.getSimpleName().toString()), type);
+      if (isId) {
+        ids.add(property);
+      } else {
+        if (!constantNames.add(property.constantName)) {
+          error(member, "Two properties of " + model + " are named " + property.constantName);
+          isValid = false;
+          continue;
+        }
+        contents.add(property);
+      }
+    }
+    return isValid;
+  }
+
+  private void writeComparator(
+      PrintWriter writer,
+      TypeElement model,
+      String packageName,
+      String comparatorName,
+      List<Property> ids,
+      List<Property> contents) {
+    final String modelName = model.getQualifiedName().toString();
+    writer.println("// Generated by feature-adapter-compiler, do not modify.");
+    if (!packageName.isEmpty()) {
+      writer.println("package " + packageName + ";");
+      writer.println();
+    }
+    writer.println("/**");
+    writer.println(" * Compares the items of {@link " + modelName + "}.");
+    writer.println(" * The change payload is the Long bitmask of the changed properties.");
+    writer.println(" */");
+    writer.println(
+        (model.getModifiers().contains(PUBLIC) ? "public " : "")
+            + "final class "
+            + comparatorName
+            + " implements "
+            + COMPARATOR_INTERFACE
+            + "<"
+            + modelName
+            + "> {");
+    for (int i = 0; i < contents.size(); i++) {
+      writer.println();
+      final Property property = contents.get(i);
+      writer.println("  /** The bit of {@code " + property.accessor + "} in the payload. */");
+      writer.println(
+          "  public static final long CHANGED_" + property.constantName + " = 1L << " + i + ";");
+    }
+
+    writeMethodStart(writer, "boolean areItemsTheSame", modelName);
+    writer.println("    return " + joinComparisons(ids) + ";");
+    writer.println("  }");
+
+    writeMethodStart(writer, "boolean areContentsTheSame", modelName);
+    writer.println("    return " + joinComparisons(contents) + ";");
+    writer.println("  }");
+
+    writeMethodStart(writer, "Object getChangePayload", modelName);
+    writer.println("    long changedFields = 0L;");
+    for (Property property : contents) {
+      writer.println("    if (!(" + property.getComparison() + ")) {");
+      writer.println("      changedFields |= CHANGED_" + property.constantName + ";");
+      writer.println("    }");
+    }
+    writer.println("    return changedFields;");
+    writer.println("  }");
+
+    writer.println();
+    writer.println("  private static boolean equal(Object oldValue, Object newValue) {");
+    writer.println(
+        "    return oldValue == newValue || oldValue != null && oldValue.equals(newValue);");
+    writer.println("  }");
+    writer.println("}");
+  }
+
+  private static void writeMethodStart(PrintWriter writer, String method, String modelName) {
+    writer.println();
+    writer.println("  @Override");
+    writer.println(
+        "  public " + method + "(" + modelName + " oldModel, " + modelName + " newModel) {");
+  }
+
+  private static String joinComparisons(List<Property> properties) {
+    if (properties.isEmpty()) {
+      return "true";
+    }
+    final StringBuilder builder = new StringBuilder();
+    for (Property property : properties) {
+      if (builder.length() != 0) {
+        builder.append("\n        && ");
+      }
+      builder.append(property.getComparison());
+    }
+    return builder.toString();
+  }
+
+  private static boolean isNestedIn(TypeMirror type, TypeElement model) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    for (Element element = ((DeclaredType) type).asElement().getEnclosingElement();
+        element != null;
+        element = element.getEnclosingElement()) {
+      if (element.equals(model)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasAnnotation(Element element, String annotationName) {
+    for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+      final TypeElement annotation = (TypeElement) annotationMirror.getAnnotationType().asElement();
+      if (annotation.getQualifiedName().contentEquals(annotationName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the simple names of the model and of its enclosing classes, joined by {@code _}. */
+  private static String getFlatName(TypeElement model) {
+    String name = model.getSimpleName().toString();
+    for (Element element = model.getEnclosingElement();
+        element != null && element.getKind() != ElementKind.PACKAGE;
+        element = element.getEnclosingElement()) {
+      name = element.getSimpleName() + "_" + name;
+    }
+    return name;
+  }
+
+  /** @return the name of a property in upper snake case, isHighlighted becomes IS_HIGHLIGHTED. */
+  static String toConstantName(String propertyName) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < propertyName.length(); i++) {
+      final char c = propertyName.charAt(i);
+      if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(propertyName.charAt(i - 1))) {
+        builder.append('_');
+      }
+      builder.append(Character.toUpperCase(c));
+    }
+    return builder.toString();
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+
+  /** A property of a model, read through its accessor method or its field. */
+  private static final class Property {
+    final String accessor;
+    final String constantName;
+    final TypeMirror type;
+
+    Property(String accessor, String constantName, TypeMirror type) {
+      this.accessor = accessor;
+      this.constantName = constantName;
+      this.type = type;
+    }
+
+    /** @return the expression that is true if the property of both models is equal. */
+    String getComparison() {
+      final String oldValue = "oldModel." + accessor;
+      final String newValue = "newModel." + accessor;
+      switch (type.getKind()) {
+        case FLOAT:
+          return "Float.compare(" + oldValue + ", " + newValue + ") == 0";
+        case DOUBLE:
+          return "Double.compare(" + oldValue + ", " + newValue + ") == 0";
+        case ARRAY:
+          final boolean isPrimitiveArray =
+              ((ArrayType) type).getComponentType().getKind().isPrimitive();
+          return "java.util.Arrays."
+              + (isPrimitiveArray ? "equals(" : "deepEquals(")
+              + oldValue
+              + ", "
+              + newValue
+              + ")";
+        default:
+          if (type.getKind().isPrimitive()) {
+            return oldValue + " == " + newValue;
+          }
+          return "equal(" + oldValue + ", " + newValue + ")";
+      }
+    }
+  }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.compiler;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+
+public class DiffUtilComparatorProcessorTest {
+
+  /** The declarations of the Android library the generated code depends on. */
+  private static final List<JavaFileObject> LIBRARY_SOURCES =
+      asList(
+          source(
+              "com.groupon.featureadapter.DiffUtilComparator",
+              "package com.groupon.featureadapter;",
+              "public interface DiffUtilComparator<MODEL> {",
+              "  boolean areItemsTheSame(MODEL oldModel, MODEL newModel);",
+              "  boolean areContentsTheSame(MODEL oldModel, MODEL newModel);",
+              "  Object getChangePayload(MODEL oldModel, MODEL newModel);",
+              "}"),
+          source(
+              "com.groupon.featureadapter.annotations.GenerateDiffUtilComparator",
+              "package com.groupon.featureadapter.annotations;",
+              "public @interface GenerateDiffUtilComparator {}"),
+          source(
+              "com.groupon.featureadapter.annotations.DiffId",
+              "package com.groupon.featureadapter.annotations;",
+              "public @interface DiffId {}"),
+          source(
+              "com.groupon.featureadapter.annotations.DiffIgnore",
+              "package com.groupon.featureadapter.annotations;",
+              "public @interface DiffIgnore {}"));
+
+  @Test
+  public void process_should_compareTheFields_and_returnTheBitmaskOfTheChangedFields()
+      throws Exception {
+    //GIVEN
+    JavaFileObject model =
+        source(
+            "test.BadgeModel",
+            "package test;",
+            "import com.groupon.featureadapter.annotations.*;",
+            "@GenerateDiffUtilComparator",
+            "class BadgeModel {",
+            "  @DiffId final String badgeText;",
+            "  final boolean isHighlighted;",
+            "  final float[] scores;",
+            "  @DiffIgnore final Object tag;",
+            "  BadgeModel(String badgeText, boolean isHighlighted, float[] scores, Object tag) {",
+            "    this.badgeText = badgeText;",
+            "    this.isHighlighted = isHighlighted;",
+            "    this.scores = scores;",
+            "    this.tag = tag;",
+            "  }",
+            "}");
+
+    //WHEN
+    ClassLoader classLoader = compile(singletonList(model), new ArrayList<>());
+
+    //THEN
+    Class<?> modelClass = classLoader.loadClass("test.BadgeModel");
+    Class<?> comparatorClass = classLoader.loadClass("test.BadgeModelDiffUtilComparator");
+    Object comparator = newInstance(comparatorClass);
+    Constructor<?> constructor = modelClass.getDeclaredConstructors()[0];
+    constructor.setAccessible(true);
+    Object oldModel = constructor.newInstance("a", false, new float[] {1f}, "tag");
+    Object sameModel = constructor.newInstance("a", false, new float[] {1f}, "other tag");
+    Object newModel = constructor.newInstance("a", true, new float[] {2f}, "tag");
+    Object otherModel = constructor.newInstance("b", false, new float[] {1f}, "tag");
+    assertThat(invoke(comparator, "areItemsTheSame", oldModel, newModel), is((Object) true));
+    assertThat(invoke(comparator, "areItemsTheSame", oldModel, otherModel), is((Object) false));
+    assertThat(invoke(comparator, "areContentsTheSame", oldModel, sameModel), is((Object) true));
+    assertThat(invoke(comparator, "areContentsTheSame", oldModel, newModel), is((Object) false));
+    assertThat(getConstant(comparatorClass, "CHANGED_IS_HIGHLIGHTED"), is((Object) 1L));
+    assertThat(getConstant(comparatorClass, "CHANGED_SCORES"), is((Object) 2L));
+    assertThat(invoke(comparator, "getChangePayload", oldModel, newModel), is((Object) 3L));
+  }
+
+  @Test
+  public void process_should_compareTheAbstractAccessors_and_skipTheBuilder() throws Exception {
+    //GIVEN
+    JavaFileObject model =
+        source(
+            "test.OptionsModel",
+            "package test;",
+            "import com.groupon.featureadapter.annotations.*;",
+            "@GenerateDiffUtilComparator",
+            "public abstract class OptionsModel {",
+            "  @DiffId abstract String uuid();",
+            "  abstract String title();",
+            "  abstract int price();",
+            "  abstract Builder toBuilder();",
+            "  static OptionsModel create(String uuid, String title, int price) {",
+            "    return new OptionsModel() {",
+            "      String uuid() { return uuid; }",
+            "      String title() { return title; }",
+            "      int price() { return price; }",
+            "      Builder toBuilder() { return null; }",
+            "    };",
+            "  }",
+            "  abstract static class Builder {}",
+            "}");
+
+    //WHEN
+    ClassLoader classLoader = compile(singletonList(model), new ArrayList<>());
+
+    //THEN
+    Class<?> modelClass = classLoader.loadClass("test.OptionsModel");
+    Class<?> comparatorClass = classLoader.loadClass("test.OptionsModelDiffUtilComparator");
+    Object comparator = newInstance(comparatorClass);
+    Method create =
+        modelClass.getDeclaredMethod("create", String.class, String.class, int.class);
+    create.setAccessible(true);
+    Object oldModel = create.invoke(null, "a", "title", 10);
+    Object newModel = create.invoke(null, "a", "title", 12);
+    assertThat(invoke(comparator, "areItemsTheSame", oldModel, newModel), is((Object) true));
+    assertThat(invoke(comparator, "areContentsTheSame", oldModel, newModel), is((Object) false));
+    assertThat(getConstant(comparatorClass, "CHANGED_PRICE"), is((Object) 2L));
+    assertThat(invoke(comparator, "getChangePayload", oldModel, newModel), is((Object) 2L));
+  }
+
+  @Test
+  public void process_should_reportAnError_when_theModelIsNotAClass() throws Exception {
+    //GIVEN
+    JavaFileObject model =
+        source(
+            "test.Model",
+            "package test;",
+            "@com.groupon.featureadapter.annotations.GenerateDiffUtilComparator",
+            "interface Model {}");
+    List<String> errors = new ArrayList<>();
+
+    //WHEN
+    compile(singletonList(model), errors);
+
+    //THEN
+    assertThat(errors.size(), is(1));
+    assertThat(errors.get(0), containsString("Only classes"));
+  }
+
+  @Test
+  public void process_should_skipTheAbstractMethodsOfTheInterfaces() throws Exception {
+    //GIVEN
+    JavaFileObject parcelable =
+        source(
+            "test.Parcelable",
+            "package test;",
+            "public interface Parcelable {",
+            "  int describeContents();",
+            "}");
+    JavaFileObject model =
+        source(
+            "test.DealModel",
+            "package test;",
+            "import com.groupon.featureadapter.annotations.*;",
+            "@GenerateDiffUtilComparator",
+            "public abstract class DealModel implements Parcelable {",
+            "  @DiffId abstract String uuid();",
+            "  abstract String title();",
+            "}");
+
+    //WHEN
+    ClassLoader classLoader = compile(asList(parcelable, model), new ArrayList<>());
+
+    //THEN
+    Class<?> comparatorClass = classLoader.loadClass("test.DealModelDiffUtilComparator");
+    assertThat(getConstant(comparatorClass, "CHANGED_TITLE"), is((Object) 1L));
+    assertThat(comparatorClass.getFields().length, is(1));
+  }
+
+  @Test
+  public void process_should_reportAnError_when_theModelHasNoId() throws Exception {
+    //GIVEN
+    JavaFileObject model =
+        source(
+            "test.TitleModel",
+            "package test;",
+            "@com.groupon.featureadapter.annotations.GenerateDiffUtilComparator",
+            "class TitleModel {",
+            "  String title;",
+            "}");
+    List<String> errors = new ArrayList<>();
+
+    //WHEN
+    compile(singletonList(model), errors);
+
+    //THEN
+    assertThat(errors.size(), is(1));
+    assertThat(errors.get(0), containsString("@DiffId"));
+  }
+
+  /**
+   * Compiles the sources with the processor.
+   *
+   * @param errors receives the compilation errors, the compilation must succeed if it is empty.
+   * @return the class loader of the compiled classes.
+   */
+  private static ClassLoader compile(List<JavaFileObject> sources, List<String> errors)
+      throws Exception {
+    final File outputDirectory = Files.createTempDirectory("processor-test").toFile();
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(diagnostics, null, null);
+    fileManager.setLocation(StandardLocation.CLASS_OUTPUT, singletonList(outputDirectory));
+    fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, singletonList(outputDirectory));
+    final List<JavaFileObject> compilationUnits = new ArrayList<>(LIBRARY_SOURCES);
+    compilationUnits.addAll(sources);
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(null, fileManager, diagnostics, null, null, compilationUnits);
+    task.setProcessors(singletonList(new DiffUtilComparatorProcessor()));
+    final boolean isSuccess = task.call();
+    fileManager.close();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(null));
+      }
+    }
+    assertThat(errors.toString(), isSuccess, is(errors.isEmpty()));
+    return new URLClassLoader(new URL[] {outputDirectory.toURI().toURL()});
+  }
+
+  private static Object newInstance(Class<?> type) throws Exception {
+    final Constructor<?> constructor = type.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    return constructor.newInstance();
+  }
+
+  private static Object getConstant(Class<?> type, String name) throws Exception {
+    final Field field = type.getField(name);
+    field.setAccessible(true);
+    return field.get(null);
+  }
+
+  private static Object invoke(
+      Object comparator, String methodName, Object oldModel, Object newModel) throws Exception {
+    final Method method =
+        comparator.getClass().getMethod(methodName, Object.class, Object.class);
+    method.setAccessible(true);
+    return method.invoke(comparator, oldModel, newModel);
+  }
+
+  private static JavaFileObject source(String className, String... lines) {
+    final String code = String.join("\n", lines);
+    final URI uri = URI.create("string:///" + className.replace('.', '/') + ".java");
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+}
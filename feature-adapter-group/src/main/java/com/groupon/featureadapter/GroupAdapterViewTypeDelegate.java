@@ -26,8 +26,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 
-import static java.util.Collections.singletonList;
-
 /**
  * A wrapper AdapterViewTypeDelegate that wraps 1 to many child AdapterViewTypeDelegates.
  * Enables the child delegates to continue to use DiffUtilComparator and view Recycling by type.
@@ -39,6 +37,8 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
   private final List<Queue<RecyclerView.ViewHolder>> childViewHolderCache = new ArrayList<>();
 
   private final List<Operation> operations = new ArrayList<>(); // small memory optimisation
+  private final List<Operation> operationPool = new ArrayList<>();
+  private final ListUpdateCallback operationsUpdateCallback = new OperationsUpdateCallback();
 
   public GroupAdapterViewTypeDelegate(List<AdapterViewTypeDelegate> delegates) {
     childAdapterViewTypeDelegates.addAll(delegates);
@@ -63,6 +63,7 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
     for (ViewItem viewItem : viewItems) {
       final RecyclerView.ViewHolder childViewHolder = getChildViewHolder(viewItem.viewType, getRootViewGroup(holder));
       final AdapterViewTypeDelegate delegate = childAdapterViewTypeDelegates.get(viewItem.viewType);
+      setBoundModel(childViewHolder, viewItem.model);
       delegate.bindViewHolder(childViewHolder, viewItem.model);
       setChildViewState(childViewHolder, viewItem);
       getRootViewGroup(holder).addView(childViewHolder.itemView);
@@ -77,43 +78,39 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
     }
 
     // Build list of operations to match old view items
-    operations.clear();
+    recycleOperations();
     ViewGroup rootViewGroup = getRootViewGroup(holder);
     for (int i = 0; i < rootViewGroup.getChildCount(); i++) {
-      operations.add(Operation.nilOperation());
+      Operation operation = obtainOperation(Operation.NIL);
+      operation.childViewState = getChildViewState(rootViewGroup.getChildAt(i));
+      operation.childViewState.isRemoved = false;
+      operations.add(operation);
     }
 
-    // Iterate diff result instructions to update operations to match new view items
-    DiffUtil.DiffResult diffResult = (DiffUtil.DiffResult) payloads.get(0);
-    diffResult.dispatchUpdatesTo(new ListUpdateCallback() {
-      @Override
-      public void onInserted(int position, int count) {
-        for (int i = position; i < position + count; i++) {
-          operations.add(i, Operation.addOperation());
-        }
-      }
-
-      @Override
-      public void onRemoved(int position, int count) {
-        for (int i = position; i < position + count; i++) {
-          operations.remove(position);
-          unbindChildView(rootViewGroup.getChildAt(position));
-          rootViewGroup.removeViewAt(position);
-        }
-      }
-
-      @Override
-      public void onChanged(int position, int count, Object payload) {
-        for (int i = position; i < position + count; i++) {
-          operations.set(i, Operation.changeOperation(payload));
-        }
+    // Iterate the instructions of every queued diff result, in order, to update operations to
+    // match new view items. RecyclerView can coalesce several changes of the group before a bind.
+    for (Object payload : payloads) {
+      if (!(payload instanceof DiffUtil.DiffResult)) {
+        bindViewHolder(holder, viewItems);
+        return;
       }
+      ((DiffUtil.DiffResult) payload).dispatchUpdatesTo(operationsUpdateCallback);
+    }
+    if (operations.size() != viewItems.size()) {
+      // the payloads do not describe the bound child views, rebind everything to be safe
+      bindViewHolder(holder, viewItems);
+      return;
+    }
 
-      @Override
-      public void onMoved(int fromPosition, int toPosition) {
-        // not detected
+    // Remove the child views of the removed view items, they are cached for the additions
+    for (int i = 0; i < rootViewGroup.getChildCount(); i++) {
+      View childItemView = rootViewGroup.getChildAt(i);
+      if (getChildViewState(childItemView).isRemoved) {
+        unbindChildView(childItemView);
+        rootViewGroup.removeViewAt(i);
+        i--;
       }
-    });
+    }
 
     // Operations now match index for index with new view items
     // Apply operations to old view state to bring up to date
@@ -124,6 +121,7 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
       switch (operation.type) {
         case Operation.ADD:
           RecyclerView.ViewHolder childViewHolder = getChildViewHolder(viewItem.viewType, rootViewGroup);
+          setBoundModel(childViewHolder, viewItem.model);
           delegate.bindViewHolder(childViewHolder, viewItem.model);
           rootViewGroup.addView(childViewHolder.itemView, i);
           setChildViewState(childViewHolder, viewItem);
@@ -131,8 +129,9 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
 
         case Operation.CHANGE:
           ChildViewState childViewState = getChildViewState(rootViewGroup.getChildAt(i));
-          if (operation.payload != null) {
-            delegate.bindViewHolder(childViewState.childViewHolder, viewItem.model, singletonList(operation.payload));
+          setBoundModel(childViewState.childViewHolder, viewItem.model);
+          if (!operation.isFullChange) {
+            delegate.bindViewHolder(childViewState.childViewHolder, viewItem.model, operation.payloads);
           } else {
             delegate.bindViewHolder(childViewState.childViewHolder, viewItem.model);
           }
@@ -146,6 +145,7 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
     ChildViewState childViewState = getChildViewState(childItemView);
     AdapterViewTypeDelegate delegate = childAdapterViewTypeDelegates.get(childViewState.viewItem.viewType);
     delegate.unbindViewHolder(childViewState.childViewHolder);
+    setBoundModel(childViewState.childViewHolder, null);
     childViewHolderCache.get(childViewState.viewItem.viewType).offer(childViewState.childViewHolder);
     childViewState.clearViewState();
   }
@@ -181,6 +181,26 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
     return childViewHolder;
   }
 
+  private Operation obtainOperation(String type) {
+    final Operation operation = operationPool.isEmpty()
+      ? new Operation()
+      : operationPool.remove(operationPool.size() - 1);
+    operation.type = type;
+    return operation;
+  }
+
+  private void recycleOperation(Operation operation) {
+    operation.reset();
+    operationPool.add(operation);
+  }
+
+  private void recycleOperations() {
+    for (int i = 0; i < operations.size(); i++) {
+      recycleOperation(operations.get(i));
+    }
+    operations.clear();
+  }
+
   private ChildViewState getChildViewState(View childItemView) {
     return (ChildViewState) childItemView.getTag();
   }
@@ -197,44 +217,86 @@ public abstract class GroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.V
   private static class ChildViewState {
     ViewItem viewItem;
     RecyclerView.ViewHolder childViewHolder;
+    boolean isRemoved;
 
     void clearViewState() {
       viewItem = null;
       childViewHolder = null;
+      isRemoved = false;
     }
   }
 
   /**
-   * We must buffer DiffUtil.DiffResult operations in order to be able to match an operation
-   * to its ViewItem.
+   * Composes the instructions of the diff results into the list of operations.
    */
-  private static class Operation {
-    static final String NIL = "NIL";
-    static final String ADD = "ADD";
-    static final String CHANGE = "CHANGE";
+  private class OperationsUpdateCallback implements ListUpdateCallback {
 
-    private static final Operation NIL_INSTANCE = new Operation(NIL, null);
-    private static final Operation ADD_INSTANCE = new Operation(ADD, null);
-    private static final Operation FULL_CHANGE_INSTANCE = new Operation(CHANGE, null);
+    @Override
+    public void onInserted(int position, int count) {
+      for (int i = position; i < position + count; i++) {
+        operations.add(i, obtainOperation(Operation.ADD));
+      }
+    }
 
-    final String type;
-    final Object payload;
+    @Override
+    public void onRemoved(int position, int count) {
+      for (int i = position; i < position + count; i++) {
+        Operation operation = operations.remove(position);
+        if (operation.childViewState != null) {
+          // the view item was bound, its child view will be removed
+          operation.childViewState.isRemoved = true;
+        }
+        recycleOperation(operation);
+      }
+    }
 
-    static Operation nilOperation() {
-      return NIL_INSTANCE;
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      for (int i = position; i < position + count; i++) {
+        operations.get(i).change(payload);
+      }
     }
 
-    static Operation addOperation() {
-      return ADD_INSTANCE;
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      // not detected
     }
+  }
 
-    static Operation changeOperation(Object payload) {
-      return payload == null ? FULL_CHANGE_INSTANCE : new Operation(CHANGE, payload);
+  /**
+   * We must buffer DiffUtil.DiffResult operations in order to be able to match an operation
+   * to its ViewItem. Buffering also lets us compose the operations of several DiffResults and
+   * apply them once. Operations are pooled to avoid allocating during binds.
+   */
+  private static class Operation {
+    static final String NIL = "NIL";
+    static final String ADD = "ADD";
+    static final String CHANGE = "CHANGE";
+
+    final List<Object> payloads = new ArrayList<>();
+    String type;
+    ChildViewState childViewState;
+    boolean isFullChange;
+
+    void change(Object payload) {
+      if (ADD.equals(type)) {
+        // the view item will be fully bound anyway
+        return;
+      }
+      type = CHANGE;
+      if (payload == null) {
+        isFullChange = true;
+        payloads.clear();
+      } else if (!isFullChange) {
+        payloads.add(payload);
+      }
     }
 
-    private Operation(String type, Object payload) {
-      this.type = type;
-      this.payload = payload;
+    void reset() {
+      payloads.clear();
+      type = null;
+      childViewState = null;
+      isFullChange = false;
     }
   }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.os.Parcelable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * A virtualized variant of {@link GroupAdapterViewTypeDelegate}. Instead of inflating and binding
+ * every child into a root ViewGroup, the children are hosted in a nested {@link RecyclerView}
+ * backed by an inner {@link FeaturesAdapter}, so only the visible children are bound. This is the
+ * delegate to use for long groups such as carousels.
+ *
+ * <p>The child delegates keep the same {@link ViewItem} / {@link DiffUtilComparator} contract as
+ * in {@link GroupAdapterViewTypeDelegate}. All the nested RecyclerViews of this delegate share the
+ * same {@link RecyclerView.RecycledViewPool}, and their scroll position is saved when a row is
+ * recycled, if {@link #getScrollStateKey(List)} identifies the group. Only the scroll positions of
+ * the {@link #MAX_SCROLL_STATE_COUNT} groups recycled last are kept.
+ */
+public abstract class RecyclerViewGroupAdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHolder> extends AdapterViewTypeDelegate<HOLDER, List<ViewItem>> {
+
+  public static final int DEFAULT_INITIAL_PREFETCH_ITEM_COUNT = 4;
+  public static final int MAX_SCROLL_STATE_COUNT = 64;
+
+  private final List<AdapterViewTypeDelegate> childAdapterViewTypeDelegates = new ArrayList<>();
+  private final List<DiffUtilComparator> childDiffUtilComparators = new ArrayList<>();
+  private final RecyclerView.RecycledViewPool recycledViewPool = new RecyclerView.RecycledViewPool();
+  private final Map<Object, Parcelable> scrollStates = new ScrollStateCache();
+  private final int initialPrefetchItemCount;
+
+  public RecyclerViewGroupAdapterViewTypeDelegate(List<AdapterViewTypeDelegate> delegates) {
+    this(delegates, DEFAULT_INITIAL_PREFETCH_ITEM_COUNT);
+  }
+
+  /**
+   * @param delegates the child delegates, they must not be shared with another delegate.
+   * @param initialPrefetchItemCount the number of children to prefetch when the nested
+   *     RecyclerView is about to be scrolled into view. Only used with a {@link
+   *     LinearLayoutManager}.
+   */
+  public RecyclerViewGroupAdapterViewTypeDelegate(List<AdapterViewTypeDelegate> delegates, int initialPrefetchItemCount) {
+    this.initialPrefetchItemCount = initialPrefetchItemCount;
+    childAdapterViewTypeDelegates.addAll(delegates);
+    int childViewType = 0;
+    for (AdapterViewTypeDelegate delegate : childAdapterViewTypeDelegates) {
+      if (delegate.getViewType() != RecyclerView.INVALID_TYPE) {
+        throw new IllegalStateException("Do not reuse AdapterViewTypeDelegate instances");
+      }
+      delegate.setViewType(childViewType);
+      childViewType++;
+      delegate.addFeatureEventListener(this::fireEvent);
+      childDiffUtilComparators.add(delegate.createDiffUtilComparator());
+    }
+  }
+
+  /**
+   * @param holder the group view holder.
+   * @return the nested RecyclerView that will host the children of the group. If it has no layout
+   *     manager, a horizontal {@link LinearLayoutManager} is used.
+   */
+  protected abstract RecyclerView getRecyclerView(HOLDER holder);
+
+  /**
+   * Returns a key that identifies a group across updates, used to save and restore the scroll
+   * position of its nested RecyclerView when the row is recycled. By default it returns null and
+   * the scroll position is not retained.
+   *
+   * @param viewItems the children of the group.
+   * @return a key with valid equals and hashcode methods, or null.
+   */
+  protected Object getScrollStateKey(List<ViewItem> viewItems) {
+    return null;
+  }
+
+  /**
+   * @return the pool shared by all the nested RecyclerViews of this delegate.
+   */
+  public RecyclerView.RecycledViewPool getRecycledViewPool() {
+    return recycledViewPool;
+  }
+
+  @Override
+  public void bindViewHolder(HOLDER holder, List<ViewItem> viewItems) {
+    final NestedGroupState nestedGroupState = getNestedGroupState(getRecyclerView(holder));
+    nestedGroupState.adapter.updateFeatureItems(viewItems);
+    restoreScrollState(nestedGroupState, viewItems);
+  }
+
+  @Override
+  public void bindViewHolder(HOLDER holder, List<ViewItem> viewItems, List<Object> payloads) {
+    if (payloads == null || payloads.isEmpty() || !areAllDiffResults(payloads)) {
+      bindViewHolder(holder, viewItems);
+      return;
+    }
+
+    // the payloads are the queued diffs between the items of the nested adapter and the new items,
+    // the nested RecyclerView composes their notifications
+    final NestedGroupState nestedGroupState = getNestedGroupState(getRecyclerView(holder));
+    for (Object payload : payloads) {
+      final DiffUtil.DiffResult diffResult = (DiffUtil.DiffResult) payload;
+      nestedGroupState.adapter.dispatchFeatureUpdate(new FeatureUpdate(nestedGroupState.controller, viewItems, diffResult));
+    }
+  }
+
+  @Override
+  public void unbindViewHolder(HOLDER holder) {
+    final RecyclerView recyclerView = getRecyclerView(holder);
+    final NestedGroupState nestedGroupState = (NestedGroupState) recyclerView.getTag();
+    if (nestedGroupState == null) {
+      return;
+    }
+
+    // save the scroll position and release the children to the shared pool
+    if (nestedGroupState.scrollStateKey != null && recyclerView.getLayoutManager() != null) {
+      scrollStates.put(nestedGroupState.scrollStateKey, recyclerView.getLayoutManager().onSaveInstanceState());
+    }
+    nestedGroupState.scrollStateKey = null;
+    nestedGroupState.adapter.updateFeatureItems(emptyList());
+  }
+
+  @Override
+  public DiffUtilComparator<List<ViewItem>> createDiffUtilComparator() {
+    return new GroupDiffUtilComparator(childDiffUtilComparators);
+  }
+
+  private static boolean areAllDiffResults(List<Object> payloads) {
+    for (Object payload : payloads) {
+      if (!(payload instanceof DiffUtil.DiffResult)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void restoreScrollState(NestedGroupState nestedGroupState, List<ViewItem> viewItems) {
+    final Object scrollStateKey = getScrollStateKey(viewItems);
+    if (scrollStateKey == null || scrollStateKey.equals(nestedGroupState.scrollStateKey)) {
+      return;
+    }
+    nestedGroupState.scrollStateKey = scrollStateKey;
+    final Parcelable scrollState = scrollStates.get(scrollStateKey);
+    final RecyclerView.LayoutManager layoutManager = nestedGroupState.recyclerView.getLayoutManager();
+    if (scrollState != null && layoutManager != null) {
+      layoutManager.onRestoreInstanceState(scrollState);
+    }
+  }
+
+  private NestedGroupState getNestedGroupState(RecyclerView recyclerView) {
+    NestedGroupState nestedGroupState = (NestedGroupState) recyclerView.getTag();
+    if (nestedGroupState == null) {
+      final ChildFeatureController controller = new ChildFeatureController(childAdapterViewTypeDelegates);
+      nestedGroupState = new NestedGroupState(recyclerView, controller, createChildAdapter(controller));
+      setupRecyclerView(recyclerView, nestedGroupState.adapter);
+      recyclerView.setTag(nestedGroupState);
+    }
+    return nestedGroupState;
+  }
+
+  /**
+   * Creates the adapter of a nested RecyclerView. All the nested adapters share the child
+   * delegates, whose view types were assigned by the constructor, and their comparators.
+   */
+  @VisibleForTesting
+  FeaturesAdapter<List<ViewItem>> createChildAdapter(FeatureController<List<ViewItem>> controller) {
+    return new FeaturesAdapter<>(singletonList(controller), childAdapterViewTypeDelegates, childDiffUtilComparators::get);
+  }
+
+  private void setupRecyclerView(RecyclerView recyclerView, FeaturesAdapter<List<ViewItem>> adapter) {
+    if (recyclerView.getLayoutManager() == null) {
+      recyclerView.setLayoutManager(new LinearLayoutManager(recyclerView.getContext(), LinearLayoutManager.HORIZONTAL, false));
+    }
+    if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+      ((LinearLayoutManager) recyclerView.getLayoutManager()).setInitialPrefetchItemCount(initialPrefetchItemCount);
+    }
+    recyclerView.setRecycledViewPool(recycledViewPool);
+    recyclerView.setAdapter(adapter);
+  }
+
+  /**
+   * View State stored against the nested RecyclerView.
+   */
+  private static class NestedGroupState {
+    final RecyclerView recyclerView;
+    final ChildFeatureController controller;
+    final FeaturesAdapter<List<ViewItem>> adapter;
+    Object scrollStateKey;
+
+    NestedGroupState(RecyclerView recyclerView, ChildFeatureController controller, FeaturesAdapter<List<ViewItem>> adapter) {
+      this.recyclerView = recyclerView;
+      this.controller = controller;
+      this.adapter = adapter;
+    }
+  }
+
+  /**
+   * The saved scroll positions, the least recently used one is dropped when there are too many.
+   */
+  private static class ScrollStateCache extends LinkedHashMap<Object, Parcelable> {
+
+    ScrollStateCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Parcelable> eldest) {
+      return size() > MAX_SCROLL_STATE_COUNT;
+    }
+  }
+
+  /**
+   * The single feature of the inner adapter: the children of the group are its items.
+   */
+  private static class ChildFeatureController extends FeatureController<List<ViewItem>> {
+
+    private final List<AdapterViewTypeDelegate> childAdapterViewTypeDelegates;
+
+    ChildFeatureController(List<AdapterViewTypeDelegate> childAdapterViewTypeDelegates) {
+      this.childAdapterViewTypeDelegates = childAdapterViewTypeDelegates;
+    }
+
+    @Override
+    public Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+      return childAdapterViewTypeDelegates;
+    }
+
+    @Override
+    public List<ViewItem> buildItems(List<ViewItem> viewItems) {
+      return viewItems;
+    }
+  }
+}
@@ -510,6 +510,122 @@ public class GroupAdapterViewTypeDelegateTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void bindViewHolderPayload_shouldComposeAllPayloads_whenSeveralDiffResultsAreQueued() {
+    // GIVEN
+    List<AdapterViewTypeDelegate> delegates =
+      singletonList(createValidAdapterViewTypeDelegate(0));
+
+    GroupViewHolder groupHolder = createGroupViewHolder();
+    List<ViewItem> viewItems = asList(
+      createViewItem(new ChildModel(0, ""), 0),
+      createViewItem(new ChildModel(1, ""), 0),
+      createViewItem(new ChildModel(2, ""), 0)
+    );
+    List<RecyclerView.ViewHolder> childViewHolders = asList(
+      createChildViewHolder("0"),
+      createChildViewHolder("1"),
+      createChildViewHolder("2")
+    );
+
+    // Group ViewHolder already bound to multiple child items
+    TargetGroupAdapterViewTypeDelegate target = createTargetDelegateWithState(delegates, viewItems, childViewHolders, groupHolder);
+
+    // First update inserts 1 item, second update removes 1 item and changes 1 item
+    List<ViewItem> intermediateViewItems = asList(
+      viewItems.get(0),
+      viewItems.get(1),
+      viewItems.get(2),
+      createViewItem(new ChildModel(3, "INSERTED"), 0) // INSERTED ViewItem
+    );
+    List<ViewItem> newViewItems = asList(
+      intermediateViewItems.get(0),
+      // REMOVED ViewItem
+      createViewItem(new ChildModel(2, "CHANGED"), 0), // CHANGED ViewItem
+      intermediateViewItems.get(3)
+    );
+    List<RecyclerView.ViewHolder> newChildViewHolders = asList(
+      childViewHolders.get(0),
+      childViewHolders.get(2), // CHANGED child ViewHolder
+      childViewHolders.get(1) // INSERTED child ViewHolder (Recycled from removed)
+    );
+
+    // EXPECT
+    // remove
+    delegates.get(0).unbindViewHolder(childViewHolders.get(1));
+
+    // update
+    delegates.get(0).bindViewHolder(newChildViewHolders.get(1), newViewItems.get(1).model);
+
+    // insert (using recycled child holder)
+    delegates.get(0).bindViewHolder(newChildViewHolders.get(2), newViewItems.get(2).model);
+
+    replayAll();
+
+    // generate payloads
+    DiffUtilComparator<List<ViewItem>> comparator = target.createDiffUtilComparator();
+    List<Object> changePayloads = asList(
+      comparator.getChangePayload(viewItems, intermediateViewItems),
+      comparator.getChangePayload(intermediateViewItems, newViewItems));
+
+    // WHEN
+    target.bindViewHolder(groupHolder, newViewItems, changePayloads);
+
+    // THEN
+    assertThat(groupHolder.viewGroup.getChildCount(), is(3));
+    assertThat(groupHolder.viewGroup.getChildAt(0), is(newChildViewHolders.get(0).itemView));
+    assertThat(groupHolder.viewGroup.getChildAt(1), is(newChildViewHolders.get(1).itemView));
+    assertThat(groupHolder.viewGroup.getChildAt(2), is(newChildViewHolders.get(2).itemView));
+    verifyAll();
+  }
+
+  @Test
+  public void bindViewHolderPayload_shouldRebindAllViews_whenPayloadsDoNotMatchBoundViews() {
+    // GIVEN
+    List<AdapterViewTypeDelegate> delegates =
+      singletonList(createValidAdapterViewTypeDelegate(0));
+
+    GroupViewHolder groupHolder = createGroupViewHolder();
+    List<ViewItem> viewItems = asList(
+      createViewItem(new ChildModel(0, ""), 0),
+      createViewItem(new ChildModel(1, ""), 0)
+    );
+    List<RecyclerView.ViewHolder> childViewHolders = asList(
+      createChildViewHolder("0"),
+      createChildViewHolder("1")
+    );
+
+    // Group ViewHolder already bound to multiple child items
+    TargetGroupAdapterViewTypeDelegate target = createTargetDelegateWithState(delegates, viewItems, childViewHolders, groupHolder);
+
+    List<ViewItem> newViewItems = asList(
+      createViewItem(new ChildModel(0, ""), 0),
+      createViewItem(new ChildModel(1, ""), 0),
+      createViewItem(new ChildModel(2, ""), 0)
+    );
+
+    // EXPECT
+    delegates.get(0).unbindViewHolder(childViewHolders.get(0));
+    delegates.get(0).unbindViewHolder(childViewHolders.get(1));
+    delegates.get(0).bindViewHolder(childViewHolders.get(0), newViewItems.get(0).model);
+    delegates.get(0).bindViewHolder(childViewHolders.get(1), newViewItems.get(1).model);
+    RecyclerView.ViewHolder insertedChildViewHolder = createChildViewHolder("2 INSERTED");
+    expect(delegates.get(0).createViewHolder(groupHolder.viewGroup)).andReturn(insertedChildViewHolder);
+    delegates.get(0).bindViewHolder(insertedChildViewHolder, newViewItems.get(2).model);
+
+    replayAll();
+
+    // a payload that describes an empty diff of the old items
+    Object stalePayload = target.createDiffUtilComparator().getChangePayload(viewItems, viewItems);
+
+    // WHEN
+    target.bindViewHolder(groupHolder, newViewItems, singletonList(stalePayload));
+
+    // THEN
+    assertThat(groupHolder.viewGroup.getChildCount(), is(3));
+    verifyAll();
+  }
+
   private AdapterViewTypeDelegate createValidAdapterViewTypeDelegate(int expectedViewType) {
     AdapterViewTypeDelegate delegate = createMock(AdapterViewTypeDelegate.class);
     expect(delegate.getViewType()).andStubReturn(RecyclerView.INVALID_TYPE);
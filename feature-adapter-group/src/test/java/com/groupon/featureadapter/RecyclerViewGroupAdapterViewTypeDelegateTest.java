@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.os.Parcelable;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.easymock.Capture;
+import org.easymock.EasyMockSupport;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+public class RecyclerViewGroupAdapterViewTypeDelegateTest extends EasyMockSupport {
+
+  @Test(expected = IllegalStateException.class)
+  public void constructor_shouldThrowException_whenSharingDelegates() {
+    // GIVEN
+    AdapterViewTypeDelegate delegate = createMock(AdapterViewTypeDelegate.class);
+    expect(delegate.getViewType()).andReturn(0);
+    replay(delegate);
+
+    // WHEN
+    new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(delegate));
+
+    // THEN
+    // expected exception
+  }
+
+  @Test
+  public void bindViewHolder_shouldSetupNestedRecyclerView_whenBindingFreshViewHolder() {
+    // GIVEN
+    StubAdapterViewTypeDelegate childDelegate = new StubAdapterViewTypeDelegate();
+    TargetRecyclerViewGroupAdapterViewTypeDelegate target =
+      new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(childDelegate));
+    LinearLayoutManager layoutManager = createMock(LinearLayoutManager.class);
+    RecyclerView recyclerView = createNestedRecyclerView(layoutManager);
+    Capture<RecyclerView.Adapter> adapterCapture = newCapture();
+
+    // EXPECT
+    layoutManager.setInitialPrefetchItemCount(RecyclerViewGroupAdapterViewTypeDelegate.DEFAULT_INITIAL_PREFETCH_ITEM_COUNT);
+    recyclerView.setRecycledViewPool(target.getRecycledViewPool());
+    recyclerView.setAdapter(capture(adapterCapture));
+
+    replayAll();
+
+    List<ViewItem> viewItems = asList(
+      new ViewItem<>("0", childDelegate),
+      new ViewItem<>("1", childDelegate),
+      new ViewItem<>("2", childDelegate));
+
+    // WHEN
+    target.bindViewHolder(new GroupViewHolder(recyclerView), viewItems);
+
+    // THEN
+    assertThat(adapterCapture.getValue(), sameInstance(target.childAdapter));
+    assertThat(target.childAdapter.getItemCount(), is(3));
+    verifyAll();
+  }
+
+  @Test
+  public void bindViewHolderPayload_shouldApplyDiffToNestedAdapter_whenGivenGroupPayload() {
+    // GIVEN
+    StubAdapterViewTypeDelegate childDelegate = new StubAdapterViewTypeDelegate();
+    TargetRecyclerViewGroupAdapterViewTypeDelegate target =
+      new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(childDelegate));
+    RecyclerView recyclerView = createNestedRecyclerView(createNiceMock(LinearLayoutManager.class));
+    GroupViewHolder groupHolder = new GroupViewHolder(recyclerView);
+
+    replayAll();
+
+    List<ViewItem> viewItems = asList(
+      new ViewItem<>("0", childDelegate),
+      new ViewItem<>("1", childDelegate));
+    List<ViewItem> newViewItems = asList(
+      viewItems.get(0),
+      viewItems.get(1),
+      new ViewItem<>("2", childDelegate));
+    target.bindViewHolder(groupHolder, viewItems);
+    Object changePayload = target.createDiffUtilComparator().getChangePayload(viewItems, newViewItems);
+
+    // WHEN
+    target.bindViewHolder(groupHolder, newViewItems, singletonList(changePayload));
+
+    // THEN
+    assertThat(target.childAdapter.getItemCount(), is(3));
+    verifyAll();
+  }
+
+  @Test
+  public void unbindViewHolder_shouldClearNestedAdapterAndSaveScrollState_whenGroupHasAKey() {
+    // GIVEN
+    StubAdapterViewTypeDelegate childDelegate = new StubAdapterViewTypeDelegate();
+    TargetRecyclerViewGroupAdapterViewTypeDelegate target =
+      new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(childDelegate));
+    target.scrollStateKey = "carousel";
+    LinearLayoutManager layoutManager = createNiceMock(LinearLayoutManager.class);
+    RecyclerView recyclerView = createNestedRecyclerView(layoutManager);
+    GroupViewHolder groupHolder = new GroupViewHolder(recyclerView);
+    List<ViewItem> viewItems = singletonList(new ViewItem<>("0", childDelegate));
+
+    // EXPECT
+    expect(layoutManager.onSaveInstanceState()).andReturn(null).once();
+
+    replayAll();
+
+    target.bindViewHolder(groupHolder, viewItems);
+
+    // WHEN
+    target.unbindViewHolder(groupHolder);
+
+    // THEN
+    assertThat(target.childAdapter.getItemCount(), is(0));
+    verifyAll();
+  }
+
+  @Test
+  public void bindViewHolder_shouldShareTheChildComparators_whenBindingSeveralViewHolders() {
+    // GIVEN
+    CountingAdapterViewTypeDelegate childDelegate = new CountingAdapterViewTypeDelegate();
+    TargetRecyclerViewGroupAdapterViewTypeDelegate target =
+      new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(childDelegate));
+    GroupViewHolder groupHolder0 = new GroupViewHolder(createNestedRecyclerView(createNiceMock(LinearLayoutManager.class)));
+    GroupViewHolder groupHolder1 = new GroupViewHolder(createNestedRecyclerView(createNiceMock(LinearLayoutManager.class)));
+
+    replayAll();
+
+    List<ViewItem> viewItems = singletonList(new ViewItem<>("0", childDelegate));
+
+    // WHEN
+    target.bindViewHolder(groupHolder0, viewItems);
+    target.bindViewHolder(groupHolder1, viewItems);
+
+    // THEN
+    assertThat(childDelegate.comparatorCount, is(1));
+    assertThat(childDelegate.viewTypeAssignmentCount, is(1));
+    verifyAll();
+  }
+
+  @Test
+  public void unbindViewHolder_shouldDropTheLeastRecentScrollState_whenTooManyAreSaved() {
+    // GIVEN
+    StubAdapterViewTypeDelegate childDelegate = new StubAdapterViewTypeDelegate();
+    TargetRecyclerViewGroupAdapterViewTypeDelegate target =
+      new TargetRecyclerViewGroupAdapterViewTypeDelegate(singletonList(childDelegate));
+    LinearLayoutManager layoutManager = createNiceMock(LinearLayoutManager.class);
+    GroupViewHolder groupHolder = new GroupViewHolder(createNestedRecyclerView(layoutManager));
+    Parcelable scrollState = createMock(Parcelable.class);
+    List<ViewItem> viewItems = singletonList(new ViewItem<>("0", childDelegate));
+
+    // EXPECT
+    expect(layoutManager.onSaveInstanceState()).andStubReturn(scrollState);
+    // only the group recycled last is restored, the first one was dropped
+    layoutManager.onRestoreInstanceState(scrollState);
+    expectLastCall().once();
+
+    replayAll();
+
+    for (int i = 0; i <= RecyclerViewGroupAdapterViewTypeDelegate.MAX_SCROLL_STATE_COUNT; i++) {
+      target.scrollStateKey = i;
+      target.bindViewHolder(groupHolder, viewItems);
+      target.unbindViewHolder(groupHolder);
+    }
+
+    // WHEN
+    target.scrollStateKey = 0;
+    target.bindViewHolder(groupHolder, viewItems);
+    target.unbindViewHolder(groupHolder);
+    target.scrollStateKey = RecyclerViewGroupAdapterViewTypeDelegate.MAX_SCROLL_STATE_COUNT;
+    target.bindViewHolder(groupHolder, viewItems);
+
+    // THEN
+    verifyAll();
+  }
+
+  private RecyclerView createNestedRecyclerView(RecyclerView.LayoutManager layoutManager) {
+    RecyclerView recyclerView = createNiceMock(RecyclerView.class);
+    Capture<Object> tagCapture = newCapture();
+    expect(recyclerView.getLayoutManager()).andStubReturn(layoutManager);
+    recyclerView.setTag(capture(tagCapture));
+    expectLastCall().once();
+    expect(recyclerView.getTag()).andStubAnswer(() -> tagCapture.hasCaptured() ? tagCapture.getValue() : null);
+    return recyclerView;
+  }
+
+  private static class CountingAdapterViewTypeDelegate extends StubAdapterViewTypeDelegate {
+
+    int comparatorCount;
+    int viewTypeAssignmentCount;
+
+    @Override
+    public DiffUtilComparator createDiffUtilComparator() {
+      comparatorCount++;
+      return super.createDiffUtilComparator();
+    }
+
+    @Override
+    void setViewType(int viewType) {
+      viewTypeAssignmentCount++;
+      super.setViewType(viewType);
+    }
+  }
+
+  private static class GroupViewHolder extends RecyclerView.ViewHolder {
+
+    final RecyclerView recyclerView;
+
+    GroupViewHolder(RecyclerView recyclerView) {
+      super(recyclerView);
+      this.recyclerView = recyclerView;
+    }
+  }
+
+  private static class TargetRecyclerViewGroupAdapterViewTypeDelegate extends RecyclerViewGroupAdapterViewTypeDelegate<GroupViewHolder> {
+
+    FeaturesAdapter<List<ViewItem>> childAdapter;
+    Object scrollStateKey;
+
+    TargetRecyclerViewGroupAdapterViewTypeDelegate(List<AdapterViewTypeDelegate> delegates) {
+      super(delegates);
+    }
+
+    @Override
+    public GroupViewHolder createViewHolder(ViewGroup parent) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected RecyclerView getRecyclerView(GroupViewHolder groupViewHolder) {
+      return groupViewHolder.recyclerView;
+    }
+
+    @Override
+    protected Object getScrollStateKey(List<ViewItem> viewItems) {
+      return scrollStateKey;
+    }
+
+    @Override
+    FeaturesAdapter<List<ViewItem>> createChildAdapter(FeatureController<List<ViewItem>> controller) {
+      childAdapter = super.createChildAdapter(controller);
+      try {
+        fixAdapterForTesting(childAdapter);
+      } catch (ReflectiveOperationException e) {
+        throw new AssertionError(e);
+      }
+      return childAdapter;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.groupon.featureadapter;
 
+import static java.util.Collections.nCopies;
 import static rx.Observable.from;
 import static rx.Observable.just;
 import static rx.android.schedulers.AndroidSchedulers.mainThread;
@@ -25,9 +26,10 @@ import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import rx.Observable;
 import rx.functions.Func2;
-import rx.subjects.BehaviorSubject;
+import rx.subjects.PublishSubject;
 
 public class RxFeaturesAdapter<MODEL> extends FeaturesAdapter<MODEL> {
 
@@ -59,44 +61,100 @@ public class RxFeaturesAdapter<MODEL> extends FeaturesAdapter<MODEL> {
    * @return an observable of {@link FeatureUpdate} for tracking the adapter changes.
    */
   public Observable<List<FeatureUpdate>> updateFeatureItems(Observable<MODEL> modelObservable) {
+    return updateFeatureItems(modelObservable, 1);
+  }
+
+  /**
+   * Calculates each feature's new items and diff in parallel in the computation scheduler pool,
+   * then dispatches feature updates to adapter in feature order.
+   *
+   * <p>With a pipeline depth greater than 1, the updates of the next models are computed while
+   * the updates of the previous model wait to be dispatched on the main thread: the items of the
+   * next model are diffed against the items of the previous, not yet dispatched, update. If another
+   * update of a controller lands first, the update is diffed again when it is dispatched.
+   *
+   * @param modelObservable the stream of models
+   * @param pipelineDepth the maximum number of models whose updates are computed or waiting to be
+   *     dispatched at the same time. 1 processes one model at a time.
+   * @return an observable of {@link FeatureUpdate} for tracking the adapter changes.
+   */
+  public Observable<List<FeatureUpdate>> updateFeatureItems(
+      Observable<MODEL> modelObservable, int pipelineDepth) {
+    if (pipelineDepth < 1) {
+      throw new IllegalArgumentException("The pipeline depth must be at least 1: " + pipelineDepth);
+    }
     // the ticker observable is gonna emit an item every time all the
-    // list of items from all the feature controllers have been computed
-    // so we just process the model instances one at a time
+    // list of items from all the feature controllers have been computed and dispatched
+    // so we just process pipelineDepth model instances at a time
     // this is meant to be a very fine grained back pressure mechanism.
-    BehaviorSubject<Object> tickObservable = BehaviorSubject.create();
-    tickObservable.onNext(null);
+    PublishSubject<Object> tickObservable = PublishSubject.create();
+    // the last update computed for each controller, dispatched or not, the next model is diffed
+    // against its items
+    AtomicReferenceArray<FeatureUpdate> pendingFeatureUpdates =
+        new AtomicReferenceArray<>(getFeatureControllers().size());
     return modelObservable
         .observeOn(mainThread())
-        .zipWith(tickObservable, (model, tick) -> model)
+        // the state adopted from a previous adapter was already built from this model
+        .filter(model -> !isAdoptedModel(model))
+        .zipWith(tickObservable.startWith(nCopies(pipelineDepth, null)), (model, tick) -> model)
         .onBackpressureLatest()
-        .flatMap(
+        // the updates of a model are computed once the updates of the previous model are, but
+        // without waiting for their dispatch
+        .concatMap(
             model ->
                 from(getFeatureControllers())
                     .flatMap(
                         // each feature controller receives a fork of the model observable
-                        // and compute its items in parallel, and then updates the UI ASAP
-                        // but we still aggregate all the list to be sure to pace the model
-                        // observable
-                        // correctly using the tick observable
+                        // and compute its items in parallel
                         feature ->
                             just(feature)
                                 .observeOn(computation())
-                                .map(featureController -> toFeatureUpdate(featureController, model))
+                                .map(
+                                    featureController ->
+                                        toPipelinedFeatureUpdate(
+                                            featureController, model, pendingFeatureUpdates))
                                 .filter(featureUpdate -> featureUpdate != null))
                     // collect all observable of feature updates in a list in feature order
                     .toSortedList(featureUpdateComparator::compare)
-                    .observeOn(mainThread())
-                    // dispatch each feature update in order to the adapter
-                    // (this also updates the internal adapter state)
-                    .map(this::dispatchFeatureUpdates)
-                    .map(
-                        list -> {
-                          tickObservable.onNext(null);
-                          if (recyclerView != null) {
-                            recyclerView.setItemViewCacheSize(getItemCount());
-                          }
-                          return list;
-                        }));
+                    .map(featureUpdates -> new ModelFeatureUpdates<>(model, featureUpdates)))
+        .observeOn(mainThread())
+        // dispatch each feature update in order to the adapter
+        // (this also updates the internal adapter state)
+        .map(
+            modelFeatureUpdates -> {
+              final List<FeatureUpdate> list =
+                  dispatchFeatureUpdates(modelFeatureUpdates.featureUpdates);
+              setLastModel(modelFeatureUpdates.model);
+              tickObservable.onNext(null);
+              if (recyclerView != null) {
+                recyclerView.setItemViewCacheSize(getItemCount());
+              }
+              return list;
+            });
+  }
+
+  /** Builds a deferred controller in the computation scheduler pool, like the other builds. */
+  @Override
+  void buildDeferredFeatureItems(FeatureController featureController, Object model) {
+    just(featureController)
+        .observeOn(computation())
+        .map(feature -> toDeferredFeatureUpdate(feature, model))
+        .filter(featureUpdate -> featureUpdate != null)
+        .observeOn(mainThread())
+        .subscribe(this::dispatchFeatureUpdate);
+  }
+
+  private FeatureUpdate toPipelinedFeatureUpdate(
+      FeatureController<MODEL> featureController,
+      MODEL model,
+      AtomicReferenceArray<FeatureUpdate> pendingFeatureUpdates) {
+    final int index = featureUpdateComparator.indexOf(featureController);
+    final FeatureUpdate featureUpdate =
+        toFeatureUpdate(featureController, model, pendingFeatureUpdates.get(index));
+    if (featureUpdate != null) {
+      pendingFeatureUpdates.set(index, featureUpdate);
+    }
+    return featureUpdate;
   }
 
   private static class FeatureUpdateComparator<T> implements Comparator<FeatureUpdate> {
@@ -111,10 +169,23 @@ public class RxFeaturesAdapter<MODEL> extends FeaturesAdapter<MODEL> {
       }
     }
 
+    int indexOf(FeatureController featureController) {
+      return mapFeatureControllerToIndex.get(featureController);
+    }
+
     @Override
     public int compare(FeatureUpdate o1, FeatureUpdate o2) {
-      return mapFeatureControllerToIndex.get(o1.featureController)
-          - mapFeatureControllerToIndex.get(o2.featureController);
+      return indexOf(o1.featureController) - indexOf(o2.featureController);
+    }
+  }
+
+  private static class ModelFeatureUpdates<MODEL> {
+    final MODEL model;
+    final List<FeatureUpdate> featureUpdates;
+
+    ModelFeatureUpdates(MODEL model, List<FeatureUpdate> featureUpdates) {
+      this.model = model;
+      this.featureUpdates = featureUpdates;
     }
   }
 
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+import com.groupon.featureadapter.FeatureController;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Subscribes to the events of a controller that may be fired from any thread. Fired events are
+ * offered to a lock-free queue, and drained in batches on a worker of the scheduler: a single drain
+ * is scheduled for all the events fired while the previous drain has not run yet.
+ */
+final class ConcurrentFeatureControllerOnSubscribe implements Observable.OnSubscribe<FeatureEvent> {
+  final FeatureController featureController;
+  final Scheduler scheduler;
+
+  ConcurrentFeatureControllerOnSubscribe(FeatureController featureController, Scheduler scheduler) {
+    this.featureController = featureController;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public void call(final Subscriber<? super FeatureEvent> subscriber) {
+    final Scheduler.Worker worker = scheduler.createWorker();
+    final DrainingListener listener = new DrainingListener(subscriber, worker);
+
+    subscriber.add(worker);
+    subscriber.add(
+        Subscriptions.create(() -> featureController.removeFeatureEventListener(listener)));
+
+    featureController.addFeatureEventListener(listener);
+  }
+
+  private static final class DrainingListener implements FeatureEventListener, Action0 {
+    private final Queue<FeatureEvent> queue = new ConcurrentLinkedQueue<>();
+    /** Number of events offered and not drained yet, a drain is scheduled when it leaves 0. */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Subscriber<? super FeatureEvent> subscriber;
+    private final Scheduler.Worker worker;
+
+    DrainingListener(Subscriber<? super FeatureEvent> subscriber, Scheduler.Worker worker) {
+      this.subscriber = subscriber;
+      this.worker = worker;
+    }
+
+    @Override
+    public void onFeatureEvent(FeatureEvent featureEvent) {
+      if (subscriber.isUnsubscribed()) {
+        return;
+      }
+      queue.offer(featureEvent);
+      if (pendingCount.getAndIncrement() == 0) {
+        worker.schedule(this);
+      }
+    }
+
+    /** Drains the queue, including the events offered while draining. */
+    @Override
+    public void call() {
+      int drainCount = pendingCount.get();
+      do {
+        for (int i = 0; i < drainCount; i++) {
+          final FeatureEvent featureEvent = queue.poll();
+          if (subscriber.isUnsubscribed()) {
+            queue.clear();
+            return;
+          }
+          subscriber.onNext(featureEvent);
+        }
+        drainCount = pendingCount.addAndGet(-drainCount);
+      } while (drainCount != 0);
+    }
+  }
+}
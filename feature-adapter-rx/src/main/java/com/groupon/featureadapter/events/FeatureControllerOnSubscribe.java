@@ -22,15 +22,17 @@ import rx.Observable;
 import rx.Subscriber;
 import rx.android.MainThreadSubscription;
 
-final class FeatureControllerOnSubscribe implements Observable.OnSubscribe<FeatureEvent> {
+final class FeatureControllerOnSubscribe<EVENT> implements Observable.OnSubscribe<EVENT> {
   final FeatureController featureController;
+  final Class<EVENT> eventClass;
 
-  FeatureControllerOnSubscribe(FeatureController featureController) {
+  FeatureControllerOnSubscribe(FeatureController featureController, Class<EVENT> eventClass) {
     this.featureController = featureController;
+    this.eventClass = eventClass;
   }
 
   @Override
-  public void call(final Subscriber<? super FeatureEvent> subscriber) {
+  public void call(final Subscriber<? super EVENT> subscriber) {
     verifyMainThread();
 
     FeatureEventListener listener =
@@ -38,7 +40,8 @@ final class FeatureControllerOnSubscribe implements Observable.OnSubscribe<Featu
           @Override
           public void onFeatureEvent(FeatureEvent event) {
             if (!subscriber.isUnsubscribed()) {
-              subscriber.onNext(event);
+              //noinspection unchecked
+              subscriber.onNext((EVENT) event);
             }
           }
         };
@@ -47,10 +50,10 @@ final class FeatureControllerOnSubscribe implements Observable.OnSubscribe<Featu
         new MainThreadSubscription() {
           @Override
           protected void onUnsubscribe() {
-            featureController.removeFeatureEventListener(listener);
+            featureController.removeFeatureEventListener(eventClass, listener);
           }
         });
 
-    featureController.addFeatureEventListener(listener);
+    featureController.addFeatureEventListener(eventClass, listener);
   }
 }
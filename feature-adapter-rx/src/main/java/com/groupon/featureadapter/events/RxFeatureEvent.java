@@ -16,11 +16,19 @@
 package com.groupon.featureadapter.events;
 
 import static rx.Observable.merge;
+import static rx.schedulers.Schedulers.computation;
 
 import com.groupon.featureadapter.FeatureController;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 import rx.Observable;
+import rx.Scheduler;
 
 /**
  * A helper class to make it easier to use {@link FeatureEvent}s from {@link FeatureController}s
@@ -28,6 +36,10 @@ import rx.Observable;
  */
 public class RxFeatureEvent {
 
+  /** The shared event stream of each controller, released with the controller. */
+  private static final Map<FeatureController, Observable<FeatureEvent>> SHARED_FEATURE_EVENTS =
+      new WeakHashMap<>();
+
   /**
    * Creates an observable of {@link FeatureEvent}s out of a {@link FeatureControllerGroup}. It is
    * possible to call this method multiple times on the controller.
@@ -59,6 +71,232 @@ public class RxFeatureEvent {
    */
   public static <MODEL> Observable<FeatureEvent> featureEvents(
       FeatureController<MODEL> controller) {
-    return Observable.create(new FeatureControllerOnSubscribe(controller));
+    return featureEvents(controller, FeatureEvent.class);
+  }
+
+  /**
+   * Creates an observable of {@link FeatureEvent}s out of a list of {@link FeatureController}s
+   * that may fire events from any thread.
+   *
+   * @param featureControllers a list of feature controllers.
+   * @param scheduler the scheduler on which the events are emitted.
+   * @return an observable of the {@link FeatureEvent} that this group emits, on {@code scheduler}.
+   * @see #concurrentFeatureEvents(FeatureController, Scheduler)
+   */
+  public static <MODEL> Observable<FeatureEvent> concurrentFeatureEvents(
+      List<FeatureController<MODEL>> featureControllers, Scheduler scheduler) {
+    List<Observable<FeatureEvent>> observables = new ArrayList<>();
+    for (FeatureController controller : featureControllers) {
+      observables.add(concurrentFeatureEvents(controller, scheduler));
+    }
+    return merge(observables);
+  }
+
+  /**
+   * Creates an observable of {@link FeatureEvent}s out of a {@link FeatureController} that may fire
+   * events from any thread, for instance when some background work completes. Unlike {@link
+   * #featureEvents(FeatureController)}, it can be subscribed from any thread. Fired events are
+   * handed off through a lock-free queue and emitted on {@code scheduler}, in batches: the events
+   * fired while a batch is pending are emitted with it, without scheduling anything for them.
+   *
+   * <p><em>Warning:</em> The created observable keeps a strong reference to {@code controller}.
+   * Unsubscribe to free this reference.
+   *
+   * @param controller a {@link FeatureController}.
+   * @param scheduler the scheduler on which the events are emitted, typically {@code
+   *     AndroidSchedulers.mainThread()}.
+   * @return an observable of the {@link FeatureEvent} that this controller emits, on {@code
+   *     scheduler}.
+   */
+  public static <MODEL> Observable<FeatureEvent> concurrentFeatureEvents(
+      FeatureController<MODEL> controller, Scheduler scheduler) {
+    return Observable.create(new ConcurrentFeatureControllerOnSubscribe(controller, scheduler));
+  }
+
+  /**
+   * Returns the shared observable of {@link FeatureEvent}s of each {@link FeatureController} of a
+   * list, merged.
+   *
+   * @param featureControllers a list of feature controllers.
+   * @return an observable of the {@link FeatureEvent} that this group emits.
+   * @see #sharedFeatureEvents(FeatureController)
+   */
+  public static <MODEL> Observable<FeatureEvent> sharedFeatureEvents(
+      List<FeatureController<MODEL>> featureControllers) {
+    List<Observable<FeatureEvent>> observables = new ArrayList<>();
+    for (FeatureController controller : featureControllers) {
+      observables.add(sharedFeatureEvents(controller));
+    }
+    return merge(observables);
+  }
+
+  /**
+   * Returns the shared observable of {@link FeatureEvent}s of a {@link FeatureController}. Unlike
+   * {@link #featureEvents(FeatureController)}, which registers a listener on the controller and
+   * all its delegates for each subscriber, the shared observable registers a single listener when
+   * it gets its first subscriber, and removes it when its last subscriber unsubscribes. The same
+   * instance is returned for a given controller. Subscribe on the main thread.
+   *
+   * <p>The shared observable does not keep a reference to {@code controller} while it has no
+   * subscriber.
+   *
+   * @param controller a {@link FeatureController}.
+   * @return the shared observable of the {@link FeatureEvent} that this controller emits.
+   */
+  public static synchronized <MODEL> Observable<FeatureEvent> sharedFeatureEvents(
+      FeatureController<MODEL> controller) {
+    Observable<FeatureEvent> sharedFeatureEvents = SHARED_FEATURE_EVENTS.get(controller);
+    if (sharedFeatureEvents == null) {
+      // a weak reference, as the cached observable must not keep its key reachable
+      final WeakReference<FeatureController<MODEL>> controllerReference =
+          new WeakReference<>(controller);
+      sharedFeatureEvents =
+          Observable.defer(
+                  () -> {
+                    final FeatureController<MODEL> featureController = controllerReference.get();
+                    return featureController == null
+                        ? Observable.<FeatureEvent>empty()
+                        : featureEvents(featureController);
+                  })
+              .share();
+      SHARED_FEATURE_EVENTS.put(controller, sharedFeatureEvents);
+    }
+    return sharedFeatureEvents;
+  }
+
+  /**
+   * Creates an observable of the events of a given class out of a list of {@link
+   * FeatureController}s. The events of other classes are not dispatched to the observable at all,
+   * which is cheaper than filtering or casting a stream of all the events.
+   *
+   * <p><em>Warning:</em> The created observable keeps a strong reference to {@code
+   * featureControllers}. Unsubscribe to free this reference.
+   *
+   * @param featureControllers a list of feature controllers.
+   * @param eventClass the class of the events to observe. A {@link FeatureEvent} subtype, or any
+   *     interface implemented by the events.
+   * @return an observable of the events of class {@code eventClass} that this group emits.
+   */
+  public static <MODEL, EVENT> Observable<EVENT> featureEvents(
+      List<FeatureController<MODEL>> featureControllers, Class<EVENT> eventClass) {
+    List<Observable<EVENT>> observables = new ArrayList<>();
+    for (FeatureController controller : featureControllers) {
+      observables.add(featureEvents(controller, eventClass));
+    }
+    return merge(observables);
+  }
+
+  /**
+   * Creates an observable of the events of a given class out of a {@link FeatureController}. It is
+   * possible to call this method multiple times on the controller.
+   *
+   * <p><em>Warning:</em> The created observable keeps a strong reference to {@code controller}.
+   * Unsubscribe to free this reference.
+   *
+   * @param controller a {@link FeatureController}.
+   * @param eventClass the class of the events to observe. A {@link FeatureEvent} subtype, or any
+   *     interface implemented by the events.
+   * @return an observable of the events of class {@code eventClass} that this controller emits.
+   */
+  public static <MODEL, EVENT> Observable<EVENT> featureEvents(
+      FeatureController<MODEL> controller, Class<EVENT> eventClass) {
+    return Observable.create(new FeatureControllerOnSubscribe<>(controller, eventClass));
+  }
+
+  /**
+   * Coalesces the events of a stream per class: during each window of {@code timespan}, only the
+   * latest event of each class is kept. At the end of the window, the kept events are emitted in
+   * the order their class was first seen in the window. A burst of events of the same class, such
+   * as rapid toggles, is then emitted as a single event.
+   *
+   * <p>Example: {@code featureEvents(controllers).compose(latestPerClass(100, MILLISECONDS))}
+   *
+   * @param timespan the duration of a window.
+   * @param unit the unit of {@code timespan}.
+   * @return a transformer to use with {@link Observable#compose(Observable.Transformer)}.
+   */
+  public static <EVENT> Observable.Transformer<EVENT, EVENT> latestPerClass(
+      long timespan, TimeUnit unit) {
+    return latestPerClass(timespan, unit, computation());
+  }
+
+  /**
+   * Same as {@link #latestPerClass(long, TimeUnit)}, with windows timed on {@code scheduler}.
+   *
+   * @param timespan the duration of a window.
+   * @param unit the unit of {@code timespan}.
+   * @param scheduler the scheduler that times the windows and emits the events.
+   * @return a transformer to use with {@link Observable#compose(Observable.Transformer)}.
+   */
+  public static <EVENT> Observable.Transformer<EVENT, EVENT> latestPerClass(
+      long timespan, TimeUnit unit, Scheduler scheduler) {
+    return events ->
+        events
+            .buffer(timespan, unit, scheduler)
+            .filter(window -> !window.isEmpty())
+            .concatMapIterable(RxFeatureEvent::keepLatestPerClass);
+  }
+
+  /**
+   * Batches the events of a stream: the events emitted during each window of {@code timespan} are
+   * emitted together as a single {@link FeatureEventBatch}. Empty windows are not emitted. A burst
+   * of events can then be reduced into a single state update by the subscriber.
+   *
+   * @param timespan the duration of a window.
+   * @param unit the unit of {@code timespan}.
+   * @return a transformer to use with {@link Observable#compose(Observable.Transformer)}.
+   */
+  public static Observable.Transformer<FeatureEvent, FeatureEventBatch> batchEvents(
+      long timespan, TimeUnit unit) {
+    return batchEvents(timespan, unit, computation());
+  }
+
+  /**
+   * Same as {@link #batchEvents(long, TimeUnit)}, with windows timed on {@code scheduler}.
+   *
+   * @param timespan the duration of a window.
+   * @param unit the unit of {@code timespan}.
+   * @param scheduler the scheduler that times the windows and emits the batches.
+   * @return a transformer to use with {@link Observable#compose(Observable.Transformer)}.
+   */
+  public static Observable.Transformer<FeatureEvent, FeatureEventBatch> batchEvents(
+      long timespan, TimeUnit unit, Scheduler scheduler) {
+    return events ->
+        events
+            .buffer(timespan, unit, scheduler)
+            .filter(window -> !window.isEmpty())
+            .map(FeatureEventBatch::new);
+  }
+
+  /**
+   * Drops the events that are equal to the previous event of the same class. Unlike {@link
+   * Observable#distinctUntilChanged()}, events of other classes emitted in between do not reset
+   * the comparison. Events must implement {@code equals} for this to be useful.
+   *
+   * @return a transformer to use with {@link Observable#compose(Observable.Transformer)}.
+   */
+  public static <EVENT> Observable.Transformer<EVENT, EVENT> distinctPerClassUntilChanged() {
+    return events ->
+        Observable.defer(
+            () -> {
+              // one state per subscription, the filter is called sequentially
+              final Map<Class<?>, EVENT> previousEvents = new HashMap<>();
+              return events.filter(
+                  event -> {
+                    final EVENT previousEvent = previousEvents.put(event.getClass(), event);
+                    return previousEvent == null || !previousEvent.equals(event);
+                  });
+            });
+  }
+
+  private static <EVENT> Iterable<EVENT> keepLatestPerClass(List<EVENT> window) {
+    if (window.size() == 1) {
+      return window;
+    }
+    final Map<Class<?>, EVENT> latestEvents = new LinkedHashMap<>();
+    for (EVENT event : window) {
+      latestEvents.put(event.getClass(), event);
+    }
+    return latestEvents.values();
   }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static rx.Observable.just;
+
+import android.database.Observable;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+import android.view.ViewGroup;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Scheduler;
+import rx.android.plugins.RxAndroidPlugins;
+import rx.android.plugins.RxAndroidSchedulersHook;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.observers.TestSubscriber;
+import rx.plugins.RxJavaHooks;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+public class RxFeaturesAdapterTest {
+
+  private final TestScheduler mainScheduler = new TestScheduler();
+  private final TestScheduler computationScheduler = new TestScheduler();
+  private final List<String> comparisons = new ArrayList<>();
+  private final RecordingAdapterViewTypeDelegate delegate = new RecordingAdapterViewTypeDelegate();
+
+  @Before
+  public void setUp() {
+    RxJavaHooks.setOnComputationScheduler(scheduler -> computationScheduler);
+    RxAndroidPlugins.getInstance()
+        .registerSchedulersHook(
+            new RxAndroidSchedulersHook() {
+              @Override
+              public Scheduler getMainThreadScheduler() {
+                return mainScheduler;
+              }
+            });
+    AndroidSchedulers.reset();
+  }
+
+  @After
+  public void tearDown() {
+    RxJavaHooks.reset();
+    RxAndroidPlugins.getInstance().reset();
+    AndroidSchedulers.reset();
+  }
+
+  @Test
+  public void updateFeatureItems_should_diffTheNextModelAgainstThePendingUpdate_when_pipelined()
+      throws Exception {
+    //GIVEN
+    RxFeaturesAdapter<String> featuresAdapter =
+        new RxFeaturesAdapter<>(singletonList(new CharItemsController(delegate)));
+    fixAdapterForTesting(featuresAdapter);
+    PublishSubject<String> modelSubject = PublishSubject.create();
+    TestSubscriber<List<FeatureUpdate>> subscriber = new TestSubscriber<>();
+    featuresAdapter.updateFeatureItems(modelSubject, 2).subscribe(subscriber);
+    modelSubject.onNext("a");
+    modelSubject.onNext("ab");
+    mainScheduler.triggerActions();
+
+    //WHEN
+    computationScheduler.triggerActions();
+    String comparisonsBeforeDispatch = comparisons.toString();
+    mainScheduler.triggerActions();
+
+    //THEN
+    // the second model was diffed against the items of the first one before they were dispatched
+    assertThat(comparisons.contains("a/a"), is(true));
+    // and its update was dispatched as computed
+    assertThat(comparisons.toString(), is(comparisonsBeforeDispatch));
+    assertThat(subscriber.getOnNextEvents().size(), is(2));
+    assertThat(subscriber.getOnNextEvents().get(1).get(0).baseVersion, is(1L));
+    assertThat(featuresAdapter.getItemCount(), is(2));
+  }
+
+  @Test
+  public void updateFeatureItems_should_diffThePendingUpdateAgain_when_itsBaseItemsWereReplaced()
+      throws Exception {
+    //GIVEN
+    RxFeaturesAdapter<String> featuresAdapter =
+        new RxFeaturesAdapter<>(singletonList(new CharItemsController(delegate)));
+    fixAdapterForTesting(featuresAdapter);
+    PublishSubject<String> modelSubject = PublishSubject.create();
+    TestSubscriber<List<FeatureUpdate>> subscriber = new TestSubscriber<>();
+    featuresAdapter.updateFeatureItems(modelSubject, 2).subscribe(subscriber);
+    modelSubject.onNext("a");
+    modelSubject.onNext("ab");
+    mainScheduler.triggerActions();
+    computationScheduler.triggerActions();
+
+    //WHEN
+    // another update of the controller lands before the pipelined updates are dispatched
+    featuresAdapter.updateFeatureItems("xyz");
+    mainScheduler.triggerActions();
+
+    //THEN
+    // both pipelined updates are diffed again against the items on screen
+    assertThat(subscriber.getOnNextEvents().size(), is(2));
+    assertThat(subscriber.getOnNextEvents().get(0).get(0).baseVersion, is(1L));
+    assertThat(subscriber.getOnNextEvents().get(1).get(0).baseVersion, is(2L));
+    assertThat(comparisons.contains("x/a"), is(true));
+    assertThat(featuresAdapter.getItemCount(), is(2));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(1).model, is((Object) "b"));
+  }
+
+  @Test
+  public void buildDeferredFeatureItems_should_buildTheControllerInTheComputationScheduler()
+      throws Exception {
+    //GIVEN
+    RxFeaturesAdapter<String> featuresAdapter =
+        new RxFeaturesAdapter<>(
+            asList(
+                new CharItemsController(delegate),
+                new CharItemsController(new RecordingAdapterViewTypeDelegate())));
+    ManualIdleViewportBuildScheduler scheduler = new ManualIdleViewportBuildScheduler();
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems(just("ab")).subscribe(new TestSubscriber<>());
+    mainScheduler.triggerActions();
+    computationScheduler.triggerActions();
+    mainScheduler.triggerActions();
+    int itemCountBeforeIdle = featuresAdapter.getItemCount();
+
+    //WHEN
+    scheduler.idleHandler.queueIdle();
+    // nothing is built on the main thread
+    mainScheduler.triggerActions();
+    int itemCountBeforeBuild = featuresAdapter.getItemCount();
+    computationScheduler.triggerActions();
+    mainScheduler.triggerActions();
+
+    //THEN
+    // the second controller, beyond the estimated items of the first one, was deferred
+    assertThat(itemCountBeforeIdle, is(2));
+    assertThat(itemCountBeforeBuild, is(2));
+    assertThat(featuresAdapter.getItemCount(), is(4));
+    assertThat(scheduler.getDeferredCount(), is(0));
+  }
+
+  /** Hooks the adapter up to a nice mock observer, android.database.Observable is a stub. */
+  private static void fixAdapterForTesting(RecyclerView.Adapter adapter) throws Exception {
+    final Field observableField = RecyclerView.Adapter.class.getDeclaredField("mObservable");
+    observableField.setAccessible(true);
+    final Field observersField = Observable.class.getDeclaredField("mObservers");
+    observersField.setAccessible(true);
+    final ArrayList<Object> observers = new ArrayList<>();
+    observers.add(createNiceMock(RecyclerView.AdapterDataObserver.class));
+    observersField.set(observableField.get(adapter), observers);
+  }
+
+  /** Builds an item per character of the model. */
+  private static class CharItemsController extends FeatureController<String> {
+    private final AdapterViewTypeDelegate delegate;
+
+    CharItemsController(AdapterViewTypeDelegate delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+      return singletonList(delegate);
+    }
+
+    @Override
+    public List<ViewItem> buildItems(String model) {
+      final List<ViewItem> items = new ArrayList<>();
+      for (char c : model.toCharArray()) {
+        items.add(new ViewItem<>(String.valueOf(c), delegate));
+      }
+      return items;
+    }
+  }
+
+  /** Keeps the idle handler instead of adding it to the queue of the main thread. */
+  private static class ManualIdleViewportBuildScheduler extends ViewportBuildScheduler {
+    MessageQueue.IdleHandler idleHandler;
+
+    ManualIdleViewportBuildScheduler() {
+      // nothing is visible yet, only the first controller is near the top of the list
+      super(0, 10);
+    }
+
+    @Override
+    void scheduleIdleBuild(MessageQueue.IdleHandler idleHandler) {
+      this.idleHandler = idleHandler;
+    }
+  }
+
+  /** Records the items compared by the diffs, as "old/new". */
+  private class RecordingAdapterViewTypeDelegate
+      extends AdapterViewTypeDelegate<ViewHolder, String> {
+    @Override
+    public DiffUtilComparator createDiffUtilComparator() {
+      return new DiffUtilComparator<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldModel, String newModel) {
+          comparisons.add(oldModel + "/" + newModel);
+          return oldModel.equals(newModel);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldModel, String newModel) {
+          return oldModel.equals(newModel);
+        }
+
+        @Override
+        public Object getChangePayload(String oldModel, String newModel) {
+          return null;
+        }
+      };
+    }
+
+    @Override
+    public ViewHolder createViewHolder(ViewGroup parent) {
+      return null;
+    }
+
+    @Override
+    public void bindViewHolder(ViewHolder holder, String model) {}
+
+    @Override
+    public void unbindViewHolder(ViewHolder holder) {}
+  }
+}
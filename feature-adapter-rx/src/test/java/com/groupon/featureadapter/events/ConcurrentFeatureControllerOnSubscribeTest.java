@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+import static com.groupon.featureadapter.events.RxFeatureEvent.concurrentFeatureEvents;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import rx.observers.Observers;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+public class ConcurrentFeatureControllerOnSubscribeTest {
+
+  private static final int PRODUCER_COUNT = 4;
+  private static final int EVENT_COUNT_PER_PRODUCER = 1000;
+
+  private final TestScheduler scheduler = new TestScheduler();
+  private final EventFiringFeatureController controller = new EventFiringFeatureController();
+
+  @Test
+  public void call_should_emitAllTheEventsOfConcurrentProducers_inTheirOrder() throws Exception {
+    //GIVEN
+    TestSubscriber<FeatureEvent> subscriber = new TestSubscriber<>();
+    concurrentFeatureEvents(controller, scheduler).subscribe(subscriber);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    List<Thread> producers = new ArrayList<>();
+    for (int producerIndex = 0; producerIndex < PRODUCER_COUNT; producerIndex++) {
+      final int producer = producerIndex;
+      producers.add(
+          new Thread(
+              () -> {
+                try {
+                  startLatch.await();
+                } catch (InterruptedException e) {
+                  throw new IllegalStateException(e);
+                }
+                for (int index = 0; index < EVENT_COUNT_PER_PRODUCER; index++) {
+                  controller.fire(new IndexedEvent(producer, index));
+                }
+              }));
+    }
+    for (Thread producer : producers) {
+      producer.start();
+    }
+
+    //WHEN
+    startLatch.countDown();
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    int eventCountBeforeDrain = subscriber.getOnNextEvents().size();
+    scheduler.triggerActions();
+
+    //THEN
+    assertThat(eventCountBeforeDrain, is(0));
+    assertThat(
+        subscriber.getOnNextEvents().size(), is(PRODUCER_COUNT * EVENT_COUNT_PER_PRODUCER));
+    // the events of each producer are emitted in the order they were fired
+    int[] nextIndexes = new int[PRODUCER_COUNT];
+    for (FeatureEvent event : subscriber.getOnNextEvents()) {
+      IndexedEvent indexedEvent = (IndexedEvent) event;
+      assertThat(indexedEvent.index, is(nextIndexes[indexedEvent.producer]++));
+    }
+  }
+
+  @Test
+  public void call_should_emitTheEventsFiredDuringADrain_inTheSameDrain() {
+    //GIVEN
+    TestSubscriber<FeatureEvent> subscriber =
+        new TestSubscriber<>(
+            Observers.create(
+                event -> {
+                  if (((IndexedEvent) event).index == 0) {
+                    controller.fire(new IndexedEvent(0, 1));
+                  }
+                }));
+    concurrentFeatureEvents(controller, scheduler).subscribe(subscriber);
+    controller.fire(new IndexedEvent(0, 0));
+
+    //WHEN
+    scheduler.triggerActions();
+
+    //THEN
+    assertThat(subscriber.getOnNextEvents().toString(), is("[0/0, 0/1]"));
+    // a new drain is scheduled for the next event
+    controller.fire(new IndexedEvent(0, 2));
+    scheduler.triggerActions();
+    assertThat(subscriber.getOnNextEvents().toString(), is("[0/0, 0/1, 0/2]"));
+  }
+
+  @Test
+  public void call_should_stopTheDrain_when_theSubscriberUnsubscribesDuringIt() {
+    //GIVEN
+    TestSubscriber<FeatureEvent> subscriber =
+        new TestSubscriber<FeatureEvent>() {
+          @Override
+          public void onNext(FeatureEvent event) {
+            super.onNext(event);
+            unsubscribe();
+          }
+        };
+    concurrentFeatureEvents(controller, scheduler).subscribe(subscriber);
+    controller.fire(new IndexedEvent(0, 0));
+    controller.fire(new IndexedEvent(0, 1));
+    controller.fire(new IndexedEvent(0, 2));
+
+    //WHEN
+    scheduler.triggerActions();
+    controller.fire(new IndexedEvent(0, 3));
+    scheduler.triggerActions();
+
+    //THEN
+    assertThat(subscriber.getOnNextEvents().toString(), is("[0/0]"));
+    assertThat(controller.removedListenerCount.get(), is(1));
+  }
+
+  private static class IndexedEvent implements FeatureEvent {
+    final int producer;
+    final int index;
+
+    IndexedEvent(int producer, int index) {
+      this.producer = producer;
+      this.index = index;
+    }
+
+    @Override
+    public String toString() {
+      return producer + "/" + index;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+import static java.util.Collections.emptyList;
+
+import com.groupon.featureadapter.AdapterViewTypeDelegate;
+import com.groupon.featureadapter.FeatureController;
+import com.groupon.featureadapter.ViewItem;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Fires the events it is given, and counts its listeners. */
+class EventFiringFeatureController extends FeatureController<Void> {
+
+  final AtomicInteger addedListenerCount = new AtomicInteger();
+  final AtomicInteger removedListenerCount = new AtomicInteger();
+
+  @Override
+  public Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+    return emptyList();
+  }
+
+  @Override
+  public List<ViewItem> buildItems(Void model) {
+    return emptyList();
+  }
+
+  @Override
+  public void addFeatureEventListener(FeatureEventListener featureEventListener) {
+    addedListenerCount.incrementAndGet();
+    super.addFeatureEventListener(featureEventListener);
+  }
+
+  @Override
+  public void addFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    addedListenerCount.incrementAndGet();
+    super.addFeatureEventListener(eventClass, featureEventListener);
+  }
+
+  @Override
+  public void removeFeatureEventListener(FeatureEventListener featureEventListener) {
+    removedListenerCount.incrementAndGet();
+    super.removeFeatureEventListener(featureEventListener);
+  }
+
+  @Override
+  public void removeFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    removedListenerCount.incrementAndGet();
+    super.removeFeatureEventListener(eventClass, featureEventListener);
+  }
+
+  void fire(FeatureEvent featureEvent) {
+    fireEvent(featureEvent);
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+import static com.groupon.featureadapter.events.RxFeatureEvent.batchEvents;
+import static com.groupon.featureadapter.events.RxFeatureEvent.distinctPerClassUntilChanged;
+import static com.groupon.featureadapter.events.RxFeatureEvent.latestPerClass;
+import static com.groupon.featureadapter.events.RxFeatureEvent.sharedFeatureEvents;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.groupon.featureadapter.FeatureController;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+public class RxFeatureEventTest {
+
+  private final TestScheduler scheduler = new TestScheduler();
+
+  @Test
+  public void latestPerClass_should_emitTheLatestEventOfEachClass_inTheOrderTheClassWasFirstSeen() {
+    //GIVEN
+    PublishSubject<FeatureEvent> events = PublishSubject.create();
+    TestSubscriber<FeatureEvent> subscriber = new TestSubscriber<>();
+    events.compose(latestPerClass(100, MILLISECONDS, scheduler)).subscribe(subscriber);
+
+    //WHEN
+    events.onNext(new ToggleEvent("t1"));
+    events.onNext(new ScrollEvent("s1"));
+    events.onNext(new ToggleEvent("t2"));
+    scheduler.advanceTimeBy(99, MILLISECONDS);
+    int eventCountBeforeTheEndOfTheWindow = subscriber.getOnNextEvents().size();
+    scheduler.advanceTimeBy(1, MILLISECONDS);
+
+    //THEN
+    assertThat(eventCountBeforeTheEndOfTheWindow, is(0));
+    assertThat(subscriber.getOnNextEvents().toString(), is("[t2, s1]"));
+  }
+
+  @Test
+  public void latestPerClass_should_notEmitAnything_when_aWindowIsEmpty() {
+    //GIVEN
+    PublishSubject<FeatureEvent> events = PublishSubject.create();
+    TestSubscriber<FeatureEvent> subscriber = new TestSubscriber<>();
+    events.compose(latestPerClass(100, MILLISECONDS, scheduler)).subscribe(subscriber);
+    events.onNext(new ToggleEvent("t1"));
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+
+    //WHEN
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+    events.onNext(new ToggleEvent("t2"));
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+
+    //THEN
+    assertThat(subscriber.getOnNextEvents().toString(), is("[t1, t2]"));
+  }
+
+  @Test
+  public void batchEvents_should_emitTheEventsOfAWindowAsOneBatch_inTheOrderTheyWereEmitted() {
+    //GIVEN
+    PublishSubject<FeatureEvent> events = PublishSubject.create();
+    TestSubscriber<FeatureEventBatch> subscriber = new TestSubscriber<>();
+    events.compose(batchEvents(100, MILLISECONDS, scheduler)).subscribe(subscriber);
+
+    //WHEN
+    events.onNext(new ToggleEvent("t1"));
+    events.onNext(new ScrollEvent("s1"));
+    events.onNext(new ToggleEvent("t2"));
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+    events.onNext(new ScrollEvent("s2"));
+    scheduler.advanceTimeBy(100, MILLISECONDS);
+
+    //THEN
+    // the empty window in between is not emitted
+    assertThat(subscriber.getOnNextEvents().size(), is(2));
+    assertThat(subscriber.getOnNextEvents().get(0).events.toString(), is("[t1, s1, t2]"));
+    assertThat(subscriber.getOnNextEvents().get(1).events.toString(), is("[s2]"));
+  }
+
+  @Test
+  public void distinctPerClassUntilChanged_should_dropTheEventsEqualToThePreviousOneOfTheirClass() {
+    //GIVEN
+    PublishSubject<FeatureEvent> events = PublishSubject.create();
+    TestSubscriber<FeatureEvent> subscriber = new TestSubscriber<>();
+    events.compose(distinctPerClassUntilChanged()).subscribe(subscriber);
+
+    //WHEN
+    events.onNext(new ToggleEvent("on"));
+    // an event of another class in between does not reset the comparison
+    events.onNext(new ScrollEvent("on"));
+    events.onNext(new ToggleEvent("on"));
+    events.onNext(new ToggleEvent("off"));
+    events.onNext(new ScrollEvent("on"));
+    events.onNext(new ToggleEvent("on"));
+
+    //THEN
+    assertThat(subscriber.getOnNextEvents().toString(), is("[on, on, off, on]"));
+  }
+
+  @Test
+  public void distinctPerClassUntilChanged_should_compareTheEventsOfEachSubscriptionSeparately() {
+    //GIVEN
+    PublishSubject<FeatureEvent> events = PublishSubject.create();
+    Observable<FeatureEvent> distinctEvents = events.compose(distinctPerClassUntilChanged());
+    TestSubscriber<FeatureEvent> firstSubscriber = new TestSubscriber<>();
+    distinctEvents.subscribe(firstSubscriber);
+    events.onNext(new ToggleEvent("on"));
+
+    //WHEN
+    TestSubscriber<FeatureEvent> secondSubscriber = new TestSubscriber<>();
+    distinctEvents.subscribe(secondSubscriber);
+    events.onNext(new ToggleEvent("on"));
+
+    //THEN
+    assertThat(firstSubscriber.getOnNextEvents().toString(), is("[on]"));
+    assertThat(secondSubscriber.getOnNextEvents().toString(), is("[on]"));
+  }
+
+  @Test
+  public void sharedFeatureEvents_should_registerASingleListener_forAllTheSubscribers() {
+    //GIVEN
+    EventFiringFeatureController controller = new EventFiringFeatureController();
+    TestSubscriber<FeatureEvent> firstSubscriber = new TestSubscriber<>();
+    TestSubscriber<FeatureEvent> secondSubscriber = new TestSubscriber<>();
+
+    //WHEN
+    sharedFeatureEvents(controller).subscribe(firstSubscriber);
+    sharedFeatureEvents(controller).subscribe(secondSubscriber);
+    controller.fire(new ToggleEvent("t1"));
+
+    //THEN
+    assertThat(sharedFeatureEvents(controller), sameInstance(sharedFeatureEvents(controller)));
+    assertThat(controller.addedListenerCount.get(), is(1));
+    assertThat(firstSubscriber.getOnNextEvents().toString(), is("[t1]"));
+    assertThat(secondSubscriber.getOnNextEvents().toString(), is("[t1]"));
+  }
+
+  @Test
+  public void sharedFeatureEvents_should_removeTheListener_when_theLastSubscriberUnsubscribes() {
+    //GIVEN
+    EventFiringFeatureController controller = new EventFiringFeatureController();
+    Subscription firstSubscription = sharedFeatureEvents(controller).subscribe();
+    Subscription secondSubscription = sharedFeatureEvents(controller).subscribe();
+
+    //WHEN
+    firstSubscription.unsubscribe();
+    int removedListenerCountAfterFirstUnsubscribe = controller.removedListenerCount.get();
+    secondSubscription.unsubscribe();
+
+    //THEN
+    assertThat(removedListenerCountAfterFirstUnsubscribe, is(0));
+    assertThat(controller.removedListenerCount.get(), is(1));
+  }
+
+  @Test
+  public void sharedFeatureEvents_should_registerAgain_when_subscribedAfterTheLastUnsubscribe() {
+    //GIVEN
+    EventFiringFeatureController controller = new EventFiringFeatureController();
+    sharedFeatureEvents(controller).subscribe().unsubscribe();
+    TestSubscriber<FeatureEvent> subscriber = new TestSubscriber<>();
+
+    //WHEN
+    sharedFeatureEvents(controller).subscribe(subscriber);
+    controller.fire(new ToggleEvent("t1"));
+
+    //THEN
+    assertThat(controller.addedListenerCount.get(), is(2));
+    assertThat(subscriber.getOnNextEvents().toString(), is("[t1]"));
+  }
+
+  @Test
+  public void sharedFeatureEvents_should_notKeepTheControllerReachable() throws Exception {
+    //GIVEN
+    List<Observable<FeatureEvent>> sharedObservables = new ArrayList<>();
+    WeakReference<FeatureController> controllerReference =
+        subscribeAndUnsubscribeSharedFeatureEvents(sharedObservables);
+
+    //WHEN
+    for (int i = 0; i < 10 && controllerReference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    //THEN
+    // the shared observable is still reachable, the controller is not
+    assertThat(sharedObservables.size(), is(1));
+    assertThat(controllerReference.get(), nullValue());
+  }
+
+  private static WeakReference<FeatureController> subscribeAndUnsubscribeSharedFeatureEvents(
+      List<Observable<FeatureEvent>> sharedObservables) {
+    EventFiringFeatureController controller = new EventFiringFeatureController();
+    sharedObservables.add(sharedFeatureEvents(controller));
+    sharedObservables.get(0).subscribe().unsubscribe();
+    return new WeakReference<>(controller);
+  }
+
+  /** An event equal to the events of the same class with the same value. */
+  private abstract static class ValueEvent implements FeatureEvent {
+    private final String value;
+
+    ValueEvent(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o != null && o.getClass() == getClass() && ((ValueEvent) o).value.equals(value);
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return value;
+    }
+  }
+
+  private static class ToggleEvent extends ValueEvent {
+    ToggleEvent(String value) {
+      super(value);
+    }
+  }
+
+  private static class ScrollEvent extends ValueEvent {
+    ScrollEvent(String value) {
+      super(value);
+    }
+  }
+}
@@ -51,6 +51,7 @@ import com.groupon.featureadapter.FeatureAdapterItemDecoration;
 import com.groupon.featureadapter.FeatureAnimatorController;
 import com.groupon.featureadapter.FeatureController;
 import com.groupon.featureadapter.FeatureUpdate;
+import com.groupon.featureadapter.FeaturesAdapterState;
 import com.groupon.featureadapter.RxFeaturesAdapter;
 import com.groupon.grox.commands.rxjava1.Command;
 import java.util.List;
@@ -77,6 +78,7 @@ public class DealDetailsActivity extends AppCompatActivity {
   @Inject FeatureControllerListCreator featureControllerListCreator;
 
   private Scope scope;
+  private RxFeaturesAdapter<SampleModel> adapter;
 
   private final CompositeSubscription subscriptions = new CompositeSubscription();
 
@@ -95,7 +97,14 @@ public class DealDetailsActivity extends AppCompatActivity {
 
     List<FeatureController<SampleModel>> features =
         featureControllerListCreator.getFeatureControllerList();
-    RxFeaturesAdapter<SampleModel> adapter = new RxFeaturesAdapter<>(features);
+    adapter = new RxFeaturesAdapter<>(features);
+    // reuse the items computed before a configuration change instead of building them again
+    @SuppressWarnings("unchecked")
+    FeaturesAdapterState<SampleModel> retainedState =
+        (FeaturesAdapterState<SampleModel>) getLastCustomNonConfigurationInstance();
+    if (retainedState != null) {
+      adapter.adoptState(retainedState);
+    }
 
     recyclerView.setHasFixedSize(true);
     recyclerView.setLayoutManager(new FlexboxLayoutManager(this));
@@ -109,9 +118,8 @@ public class DealDetailsActivity extends AppCompatActivity {
 
     // listen for feature events
     subscriptions.add(
-        featureEvents(features)
+        featureEvents(features, Command.class)
             .observeOn(computation())
-            .cast(Command.class)
             .flatMap(Command::actions)
             .subscribe(store::dispatch, this::logError));
 
@@ -131,6 +139,11 @@ public class DealDetailsActivity extends AppCompatActivity {
     }
   }
 
+  @Override
+  public Object onRetainCustomNonConfigurationInstance() {
+    return adapter.retainState();
+  }
+
   @Override
   protected void onDestroy() {
     subscriptions.unsubscribe();
@@ -23,6 +23,7 @@ import android.widget.TextView;
 
 import com.groupon.android.featureadapter.sample.rx.R;
 import com.groupon.featureadapter.AdapterViewTypeDelegate;
+import com.groupon.featureadapter.ChangedFields;
 import com.groupon.featureadapter.DiffUtilComparator;
 
 import java.util.List;
@@ -36,24 +37,27 @@ class BadgeAdapterViewTypeDelegate extends AdapterViewTypeDelegate<BadgeAdapterV
 
   @Override
   public ViewHolder createViewHolder(ViewGroup parent) {
-    return new ViewHolder(LayoutInflater.from(parent.getContext()).inflate(LAYOUT, parent, false));
+    final ViewHolder holder = new ViewHolder(LayoutInflater.from(parent.getContext()).inflate(LAYOUT, parent, false));
+    holder.badgeText.setOnClickListener(createFeatureEventOnClickListener(holder, model -> new OnBadgeTap(model.badgeText)));
+    return holder;
   }
 
   @Override
   public void bindViewHolder(ViewHolder holder, BadgeModel model) {
     holder.badgeText.setText(model.badgeText);
     holder.badgeText.setAllCaps(model.isHighlighted);
-    holder.badgeText.setOnClickListener(v -> fireEvent(new OnBadgeTap(model.badgeText)));
   }
 
   @Override
   public void bindViewHolder(ViewHolder holder, BadgeModel model, List<Object> payloads) {
-    if (payloads == null || payloads.isEmpty()) {
+    final long changedFields = ChangedFields.of(payloads);
+    if (changedFields == ChangedFields.ALL) {
       bindViewHolder(holder, model);
       return;
     }
-    // only highlighted has been modified
-    holder.badgeText.setAllCaps(model.isHighlighted);
+    if ((changedFields & BadgeModelDiffUtilComparator.CHANGED_IS_HIGHLIGHTED) != 0) {
+      holder.badgeText.setAllCaps(model.isHighlighted);
+    }
   }
 
   @Override
@@ -63,23 +67,7 @@ class BadgeAdapterViewTypeDelegate extends AdapterViewTypeDelegate<BadgeAdapterV
 
   @Override
   public DiffUtilComparator createDiffUtilComparator() {
-    return new DiffUtilComparator<BadgeModel>() {
-
-      @Override
-      public boolean areItemsTheSame(BadgeModel oldModel, BadgeModel newModel) {
-        return oldModel.badgeText.equals(newModel.badgeText);
-      }
-
-      @Override
-      public boolean areContentsTheSame(BadgeModel oldModel, BadgeModel newModel) {
-        return oldModel.isHighlighted == newModel.isHighlighted;
-      }
-
-      @Override
-      public Object getChangePayload(BadgeModel oldModel, BadgeModel newModel) {
-        return "isHighlighted";
-      }
-    };
+    return new BadgeModelDiffUtilComparator();
   }
 
   static class ViewHolder extends RecyclerView.ViewHolder {
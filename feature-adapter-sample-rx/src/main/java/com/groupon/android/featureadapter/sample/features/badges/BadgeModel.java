@@ -15,8 +15,12 @@
  */
 package com.groupon.android.featureadapter.sample.features.badges;
 
+import com.groupon.featureadapter.annotations.DiffId;
+import com.groupon.featureadapter.annotations.GenerateDiffUtilComparator;
+
+@GenerateDiffUtilComparator
 class BadgeModel {
-  final String badgeText;
+  @DiffId final String badgeText;
   final boolean isHighlighted;
 
   BadgeModel(String badgeText, boolean isHighlighted) {
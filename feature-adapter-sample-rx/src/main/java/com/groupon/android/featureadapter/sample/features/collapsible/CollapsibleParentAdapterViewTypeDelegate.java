@@ -33,14 +33,15 @@ class CollapsibleParentAdapterViewTypeDelegate extends AdapterViewTypeDelegate<C
 
   @Override
   public CollapsibleParentViewHolder createViewHolder(ViewGroup parent) {
-    return new CollapsibleParentViewHolder(LayoutInflater.from(parent.getContext()).inflate(LAYOUT, parent, false));
+    final CollapsibleParentViewHolder holder = new CollapsibleParentViewHolder(LayoutInflater.from(parent.getContext()).inflate(LAYOUT, parent, false));
+    holder.itemView.setOnClickListener(createFeatureEventOnClickListener(holder, model -> new OnCollapsibleParentTap()));
+    return holder;
   }
 
   @Override
   public void bindViewHolder(CollapsibleParentViewHolder holder, CollapsibleParentModel model) {
     holder.titleText.setText(model.title);
     holder.caretImage.setRotation(model.isCollapsed ? CARET_ROTATION_COLLAPSED : CARET_ROTATION_EXPANDED);
-    holder.itemView.setOnClickListener(v -> fireEvent(new OnCollapsibleParentTap()));
     holder.model = model;
   }
 
@@ -18,16 +18,17 @@ package com.groupon.android.featureadapter.sample.features.collapsible;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.RecyclerView;
 import android.widget.ImageView;
 
-import com.groupon.featureadapter.FeatureAnimatorListener;
+import com.groupon.featureadapter.RecyclingFeatureAnimatorListener;
 
 import static android.view.View.ROTATION;
 import static com.groupon.android.featureadapter.sample.features.collapsible.CollapsibleParentAdapterViewTypeDelegate.CARET_ROTATION_COLLAPSED;
 import static com.groupon.android.featureadapter.sample.features.collapsible.CollapsibleParentAdapterViewTypeDelegate.CARET_ROTATION_EXPANDED;
 
-class CollapsibleParentAnimatorListener implements FeatureAnimatorListener<CollapsibleParentViewHolder, CollapsibleParentItemInfo> {
+class CollapsibleParentAnimatorListener implements RecyclingFeatureAnimatorListener<CollapsibleParentViewHolder, CollapsibleParentItemInfo> {
 
   @Override
   public CollapsibleParentItemInfo getPreLayoutInformation(CollapsibleParentViewHolder viewHolder) {
@@ -40,27 +41,49 @@ class CollapsibleParentAnimatorListener implements FeatureAnimatorListener<Colla
   }
 
   @Override
-  public Animator setupChangeAnimation(RecyclerView.ItemAnimator itemAnimator, CollapsibleParentViewHolder oldHolder, CollapsibleParentViewHolder newHolder, CollapsibleParentItemInfo preInfo, CollapsibleParentItemInfo postInfo) {
+  public Animator setupChangeAnimation(RecyclerView.ItemAnimator itemAnimator, CollapsibleParentViewHolder oldHolder, CollapsibleParentViewHolder newHolder, CollapsibleParentItemInfo preInfo, CollapsibleParentItemInfo postInfo, @Nullable Animator recycledAnimator) {
     if (preInfo.isCollapsed == postInfo.isCollapsed) {
       return null;
     }
     final float rotationFrom = preInfo.isCollapsed ? CARET_ROTATION_COLLAPSED : CARET_ROTATION_EXPANDED;
     final float rotationTo = !preInfo.isCollapsed ? CARET_ROTATION_COLLAPSED : CARET_ROTATION_EXPANDED;
-    final ObjectAnimator animation = ObjectAnimator.ofFloat(newHolder.caretImage, ROTATION.getName(), rotationFrom, rotationTo);
-    animation.addListener(new OnAnimationFinishListener(newHolder.caretImage, rotationTo));
+    final ObjectAnimator animation;
+    final OnAnimationFinishListener finishListener;
+    if (recycledAnimator != null) {
+      // reuse the animator and its listener, they were created together below
+      animation = (ObjectAnimator) recycledAnimator;
+      finishListener = getOnAnimationFinishListener(animation);
+      animation.setTarget(newHolder.caretImage);
+      animation.setFloatValues(rotationFrom, rotationTo);
+    } else {
+      animation = ObjectAnimator.ofFloat(newHolder.caretImage, ROTATION.getName(), rotationFrom, rotationTo);
+      finishListener = new OnAnimationFinishListener();
+      animation.addListener(finishListener);
+    }
+    finishListener.reset(newHolder.caretImage, rotationTo);
     return animation;
   }
 
+  private static OnAnimationFinishListener getOnAnimationFinishListener(Animator animator) {
+    for (Animator.AnimatorListener listener : animator.getListeners()) {
+      if (listener instanceof OnAnimationFinishListener) {
+        return (OnAnimationFinishListener) listener;
+      }
+    }
+    throw new IllegalStateException("The recycled animator was not created by this listener");
+  }
+
   private static class OnAnimationFinishListener extends AnimatorListenerAdapter {
 
     private boolean isCancelled;
 
-    private final ImageView caretImage;
-    private final float rotationTo;
+    private ImageView caretImage;
+    private float rotationTo;
 
-    OnAnimationFinishListener(ImageView caretImage, float rotationTo) {
+    void reset(ImageView caretImage, float rotationTo) {
       this.caretImage = caretImage;
       this.rotationTo = rotationTo;
+      isCancelled = false;
     }
 
     @Override
@@ -23,6 +23,10 @@ import android.widget.TextView;
 
 import com.groupon.android.featureadapter.sample.rx.R;
 import com.groupon.featureadapter.AdapterViewTypeDelegate;
+import com.groupon.featureadapter.ChangedFields;
+import com.groupon.featureadapter.DiffUtilComparator;
+
+import java.util.List;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -33,7 +37,9 @@ class OptionsAdapterViewTypeDelegate extends AdapterViewTypeDelegate<OptionsAdap
 
   @Override
   public OptionsViewHolder createViewHolder(ViewGroup viewGroup) {
-    return new OptionsViewHolder(LayoutInflater.from(viewGroup.getContext()).inflate(LAYOUT, viewGroup, false));
+    final OptionsViewHolder holder = new OptionsViewHolder(LayoutInflater.from(viewGroup.getContext()).inflate(LAYOUT, viewGroup, false));
+    holder.itemView.setOnClickListener(createFeatureEventOnClickListener(holder, optionsModel -> new OnOptionClickEvent(optionsModel.uuid())));
+    return holder;
   }
 
   @Override
@@ -41,7 +47,24 @@ class OptionsAdapterViewTypeDelegate extends AdapterViewTypeDelegate<OptionsAdap
     holder.titleText.setText(optionsModel.title());
     holder.titleText.setAllCaps(optionsModel.selected());
     holder.priceText.setText(optionsModel.price());
-    holder.itemView.setOnClickListener(ignored -> fireEvent(new OnOptionClickEvent(optionsModel.uuid())));
+  }
+
+  @Override
+  public void bindViewHolder(OptionsViewHolder holder, OptionsModel optionsModel, List<Object> payloads) {
+    final long changedFields = ChangedFields.of(payloads);
+    if (changedFields == ChangedFields.ALL) {
+      bindViewHolder(holder, optionsModel);
+      return;
+    }
+    if ((changedFields & OptionsModelDiffUtilComparator.CHANGED_TITLE) != 0) {
+      holder.titleText.setText(optionsModel.title());
+    }
+    if ((changedFields & OptionsModelDiffUtilComparator.CHANGED_SELECTED) != 0) {
+      holder.titleText.setAllCaps(optionsModel.selected());
+    }
+    if ((changedFields & OptionsModelDiffUtilComparator.CHANGED_PRICE) != 0) {
+      holder.priceText.setText(optionsModel.price());
+    }
   }
 
   @Override
@@ -49,6 +72,11 @@ class OptionsAdapterViewTypeDelegate extends AdapterViewTypeDelegate<OptionsAdap
     // no op
   }
 
+  @Override
+  public DiffUtilComparator createDiffUtilComparator() {
+    return new OptionsModelDiffUtilComparator();
+  }
+
   static class OptionsViewHolder extends RecyclerView.ViewHolder {
 
     @BindView(R.id.option_title_text) TextView titleText;
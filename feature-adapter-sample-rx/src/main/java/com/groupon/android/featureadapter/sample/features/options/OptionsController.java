@@ -57,7 +57,8 @@ public class OptionsController extends FeatureController<SampleModel> {
 
     if (decoration == null) {
       decoration = new OptionsItemDecoration(activity);
-      featureAdapterItemDecoration.registerFeatureDecoration(decoration, optionsDelegate);
+      // the divider only depends on the view type, its offsets can be cached
+      featureAdapterItemDecoration.registerFeatureDecoration(decoration, optionsDelegate, true);
     }
 
     List<ViewItem> items = new ArrayList<>(deal.options.size());
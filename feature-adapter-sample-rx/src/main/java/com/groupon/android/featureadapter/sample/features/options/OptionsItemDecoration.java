@@ -24,9 +24,11 @@ import android.support.v7.widget.RecyclerView;
 import android.view.View;
 
 import com.groupon.android.featureadapter.sample.rx.R;
-import com.groupon.featureadapter.FeatureItemDecoration;
+import com.groupon.featureadapter.BatchFeatureItemDecoration;
 
-class OptionsItemDecoration implements FeatureItemDecoration {
+import java.util.List;
+
+class OptionsItemDecoration implements BatchFeatureItemDecoration {
 
   private final Drawable divider;
   private final Rect tempBounds = new Rect();
@@ -41,11 +43,13 @@ class OptionsItemDecoration implements FeatureItemDecoration {
   }
 
   @Override
-  public void onDrawViewImpl(Canvas canvas, View view, RecyclerView.ViewHolder holder, RecyclerView parent, RecyclerView.State state) {
+  public void onDrawViewsImpl(Canvas canvas, List<View> views, List<RecyclerView.ViewHolder> holders, RecyclerView parent, RecyclerView.State state) {
     canvas.save();
-    parent.getDecoratedBoundsWithMargins(view, tempBounds);
-    divider.setBounds(tempBounds.left, tempBounds.bottom - divider.getIntrinsicHeight(), tempBounds.right, tempBounds.bottom);
-    divider.draw(canvas);
+    for (int i = 0; i < views.size(); i++) {
+      parent.getDecoratedBoundsWithMargins(views.get(i), tempBounds);
+      divider.setBounds(tempBounds.left, tempBounds.bottom - divider.getIntrinsicHeight(), tempBounds.right, tempBounds.bottom);
+      divider.draw(canvas);
+    }
     canvas.restore();
   }
 }
@@ -16,15 +16,19 @@
 package com.groupon.android.featureadapter.sample.features.options;
 
 import com.google.auto.value.AutoValue;
+import com.groupon.featureadapter.annotations.DiffId;
+import com.groupon.featureadapter.annotations.GenerateDiffUtilComparator;
 
 /**
  * It is not mandatory to use AutoValue to create the feature (small) models, we recommend it
  * as it generates valid equals and hashcode methods, and enforces immutable models.
  * (which are required)
+ * The comparator of the options is generated from the properties of the model.
  */
 @AutoValue
+@GenerateDiffUtilComparator
 abstract class OptionsModel {
-  abstract String uuid();
+  @DiffId abstract String uuid();
   abstract String title();
   abstract String price();
   abstract boolean selected();
@@ -17,12 +17,17 @@ package com.groupon.featureadapter;
 
 import static android.support.v7.widget.RecyclerView.Adapter;
 
+import android.support.annotation.Nullable;
 import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.view.View;
 import android.view.ViewGroup;
 import com.groupon.featureadapter.events.FeatureEvent;
+import com.groupon.featureadapter.events.FeatureEventFactory;
 import com.groupon.featureadapter.events.FeatureEventListener;
 import com.groupon.featureadapter.events.FeatureEventSource;
+import com.groupon.featureadapter.impressions.ImpressionTracker;
+import com.groupon.featurecontrol.R;
 import java.util.List;
 
 /**
@@ -108,7 +113,8 @@ public abstract class AdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHo
 
   /**
    * Called by the Adapter from {@link Adapter#onViewAttachedToWindow(RecyclerView.ViewHolder)} A
-   * good place to register NST impressions
+   * good place to register NST impressions. Impressions can also be tracked by an {@link
+   * ImpressionTracker}, see {@link #getImpressionKey(Object)}.
    *
    * @param holder Holder of the view being attached
    */
@@ -121,6 +127,73 @@ public abstract class AdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHo
    */
   public void onDetachToWindow(HOLDER holder) {}
 
+  /**
+   * Returns the key that identifies an item for the {@link ImpressionTracker} of the adapter. Two
+   * items with equal keys make a single impression per session. By default it returns null and the
+   * items of this delegate are not tracked.
+   *
+   * @param model the model of the item.
+   * @return a key with valid equals and hashcode methods, or null.
+   */
+  @Nullable
+  public Object getImpressionKey(MODEL model) {
+    return null;
+  }
+
+  /**
+   * Returns the serializer of the models of this delegate, used to persist its items in a {@link
+   * FeatureItemsSnapshot}. By default it returns null and the items of the controllers that use
+   * this delegate are not persisted.
+   *
+   * @return a serializer, or null.
+   */
+  @Nullable
+  public FeatureItemSerializer<MODEL> getFeatureItemSerializer() {
+    return null;
+  }
+
+  /**
+   * Creates a click listener that fires the event created by {@code featureEventFactory} from the
+   * model currently bound to {@code holder}. Call it once per holder, from {@link
+   * #createViewHolder(ViewGroup)}, instead of creating a new listener and event in {@link
+   * #bindViewHolder(RecyclerView.ViewHolder, MODEL)}: binding then allocates nothing for event
+   * wiring.
+   *
+   * <p>Example:
+   *
+   * <pre>
+   *   holder.itemView.setOnClickListener(
+   *       createFeatureEventOnClickListener(holder, model -> new OnItemTap(model.id)));
+   * </pre>
+   *
+   * @param holder the holder whose bound model is used to create the events.
+   * @param featureEventFactory creates the event from the bound model when a click occurs.
+   * @return a listener to set on one of the views of {@code holder}.
+   */
+  protected View.OnClickListener createFeatureEventOnClickListener(
+      HOLDER holder, FeatureEventFactory<MODEL> featureEventFactory) {
+    return new FeatureEventOnClickListener(holder, featureEventFactory);
+  }
+
+  /**
+   * @param holder a holder created by this delegate.
+   * @return the model that was last bound to {@code holder} by the adapter, or null if {@code
+   *     holder} is not bound.
+   */
+  @Nullable
+  protected MODEL getBoundModel(HOLDER holder) {
+    //noinspection unchecked
+    return (MODEL) holder.itemView.getTag(R.id.feature_adapter_bound_model);
+  }
+
+  /**
+   * Records the model bound to a holder, so that holder scoped event listeners can resolve it.
+   * Called by the adapters before binding a holder, and with a null model when it is recycled.
+   */
+  static void setBoundModel(RecyclerView.ViewHolder holder, Object model) {
+    holder.itemView.setTag(R.id.feature_adapter_bound_model, model);
+  }
+
   /**
    * Adds a listener to the list of listeners.
    *
@@ -130,6 +203,17 @@ public abstract class AdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHo
     featureEventSource.addFeatureEventListener(featureEventListener);
   }
 
+  /**
+   * Adds a listener to the listeners of a class of events.
+   *
+   * @param eventClass the class of the events to listen to.
+   * @param featureEventListener the listener to be added.
+   */
+  protected void addFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    featureEventSource.addFeatureEventListener(eventClass, featureEventListener);
+  }
+
   /**
    * Removes a listener to the list of listeners.
    *
@@ -139,6 +223,17 @@ public abstract class AdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHo
     featureEventSource.removeFeatureEventListener(featureEventListener);
   }
 
+  /**
+   * Removes a listener from the listeners of a class of events.
+   *
+   * @param eventClass the class the listener was added with.
+   * @param featureEventListener the listener to be removed.
+   */
+  protected void removeFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    featureEventSource.removeFeatureEventListener(eventClass, featureEventListener);
+  }
+
   /**
    * Fires an {@link FeatureEvent} to all listeners.
    *
@@ -147,4 +242,28 @@ public abstract class AdapterViewTypeDelegate<HOLDER extends RecyclerView.ViewHo
   protected void fireEvent(FeatureEvent featureEvent) {
     featureEventSource.fireEvent(featureEvent);
   }
+
+  /** Fires the event created from the model bound to a holder. Created once per holder. */
+  private class FeatureEventOnClickListener implements View.OnClickListener {
+
+    private final HOLDER holder;
+    private final FeatureEventFactory<MODEL> featureEventFactory;
+
+    FeatureEventOnClickListener(HOLDER holder, FeatureEventFactory<MODEL> featureEventFactory) {
+      this.holder = holder;
+      this.featureEventFactory = featureEventFactory;
+    }
+
+    @Override
+    public void onClick(View view) {
+      final MODEL model = getBoundModel(holder);
+      if (model == null) {
+        return;
+      }
+      final FeatureEvent featureEvent = featureEventFactory.createFeatureEvent(model);
+      if (featureEvent != null) {
+        fireEvent(featureEvent);
+      }
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Decides how the animations of a {@link FeatureAdapterDefaultAnimator} degrade when the updates
+ * are too large, too frequent, or when frames take too long to render. For each batch of pending
+ * animations, the policy returns a degradation:
+ *
+ * <ul>
+ *   <li>{@link #SKIP} when the batch has more changes than {@code maxAnimatedChanges}, or when the
+ *       average reported frame duration is longer than {@code maxFrameDuration}: the animations
+ *       jump to their end.
+ *   <li>{@link #SHORTEN} when the batch comes less than {@code minUpdateInterval} after the
+ *       previous one: the item animations run with durations scaled by {@link
+ *       #getShortenedDurationScale()}.
+ *   <li>{@link #NONE} otherwise.
+ * </ul>
+ *
+ * Frame durations are not measured by the policy, report them with {@link
+ * #reportFrameDuration(long)}, for instance from a {@code Choreographer.FrameCallback}. The
+ * average only holds while frames are reported: once no frame was reported for {@code
+ * minUpdateInterval}, it is ignored and restarts from the next reported frame.
+ */
+public class AnimationDegradationPolicy {
+
+  /** The animations run normally. */
+  public static final int NONE = 0;
+  /** The item animations run with shortened durations. */
+  public static final int SHORTEN = 1;
+  /** The animations jump to their end. */
+  public static final int SKIP = 2;
+
+  /** The batch had too many changes. */
+  public static final int REASON_CHANGE_COUNT = 1;
+  /** The batch came too soon after the previous one. */
+  public static final int REASON_UPDATE_RATE = 2;
+  /** The frames took too long to render. */
+  public static final int REASON_FRAME_DURATION = 3;
+
+  public static final float DEFAULT_SHORTENED_DURATION_SCALE = 0.5f;
+
+  /** Reacts to the degradation of the animations, to log or monitor it. */
+  public interface OnAnimationsDegradedListener {
+    /**
+     * @param degradation {@link #SHORTEN} or {@link #SKIP}.
+     * @param reason {@link #REASON_CHANGE_COUNT}, {@link #REASON_UPDATE_RATE} or {@link
+     *     #REASON_FRAME_DURATION}.
+     * @param changeCount the number of changes in the degraded batch.
+     */
+    void onAnimationsDegraded(int degradation, int reason, int changeCount);
+  }
+
+  private final int maxAnimatedChanges;
+  private final long minUpdateInterval;
+  private final long maxFrameDuration;
+  private float shortenedDurationScale = DEFAULT_SHORTENED_DURATION_SCALE;
+  private OnAnimationsDegradedListener onAnimationsDegradedListener;
+
+  private long lastBatchTime = -1;
+  private long lastFrameReportTime = -1;
+  private long averageFrameDuration;
+
+  /**
+   * @param maxAnimatedChanges the maximum number of changes animated in a batch.
+   * @param minUpdateInterval the minimum duration between 2 batches for the second one to be
+   *     animated normally, in milliseconds.
+   * @param maxFrameDuration the maximum average frame duration for the batches to be animated,
+   *     in milliseconds.
+   */
+  public AnimationDegradationPolicy(int maxAnimatedChanges, long minUpdateInterval, long maxFrameDuration) {
+    this.maxAnimatedChanges = maxAnimatedChanges;
+    this.minUpdateInterval = minUpdateInterval;
+    this.maxFrameDuration = maxFrameDuration;
+  }
+
+  public float getShortenedDurationScale() {
+    return shortenedDurationScale;
+  }
+
+  public void setShortenedDurationScale(float shortenedDurationScale) {
+    this.shortenedDurationScale = shortenedDurationScale;
+  }
+
+  public OnAnimationsDegradedListener getOnAnimationsDegradedListener() {
+    return onAnimationsDegradedListener;
+  }
+
+  public void setOnAnimationsDegradedListener(OnAnimationsDegradedListener onAnimationsDegradedListener) {
+    this.onAnimationsDegradedListener = onAnimationsDegradedListener;
+  }
+
+  /**
+   * Reports the duration of a rendered frame. The policy keeps a moving average of the durations
+   * reported since frames were last reported less than {@code minUpdateInterval} apart.
+   *
+   * @param frameDuration the duration of the frame, in milliseconds.
+   */
+  public void reportFrameDuration(long frameDuration) {
+    final long now = now();
+    if (isFrameReportRecent(now)) {
+      averageFrameDuration = (averageFrameDuration * 3 + frameDuration) / 4;
+    } else {
+      // the frames of an earlier animation say nothing about the current ones
+      averageFrameDuration = frameDuration;
+    }
+    lastFrameReportTime = now;
+  }
+
+  /**
+   * Decides the degradation of a batch of pending animations, and reports it if the animations
+   * are degraded. Called by {@link FeatureAdapterDefaultAnimator#runPendingAnimations()}.
+   *
+   * @param changeCount the number of changes in the batch.
+   * @return {@link #NONE}, {@link #SHORTEN} or {@link #SKIP}.
+   */
+  public int onPendingAnimations(int changeCount) {
+    final long now = now();
+    final boolean isUpdateTooSoon = lastBatchTime >= 0 && now - lastBatchTime < minUpdateInterval;
+    lastBatchTime = now;
+
+    if (changeCount > maxAnimatedChanges) {
+      return degrade(SKIP, REASON_CHANGE_COUNT, changeCount);
+    }
+    if (isFrameReportRecent(now) && averageFrameDuration > maxFrameDuration) {
+      return degrade(SKIP, REASON_FRAME_DURATION, changeCount);
+    }
+    if (isUpdateTooSoon) {
+      return degrade(SHORTEN, REASON_UPDATE_RATE, changeCount);
+    }
+    return NONE;
+  }
+
+  private boolean isFrameReportRecent(long now) {
+    return lastFrameReportTime >= 0 && now - lastFrameReportTime < minUpdateInterval;
+  }
+
+  @VisibleForTesting
+  long now() {
+    return SystemClock.uptimeMillis();
+  }
+
+  private int degrade(int degradation, int reason, int changeCount) {
+    if (onAnimationsDegradedListener != null) {
+      onAnimationsDegradedListener.onAnimationsDegraded(degradation, reason, changeCount);
+    }
+    return degradation;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import java.util.List;
+
+/**
+ * A {@link FeatureItemDecoration} that draws all the visible views of its view type in a single
+ * call, for instance to set up the canvas or paints once per frame instead of once per view.
+ * {@link #onDrawViewImpl(Canvas, View, RecyclerView.ViewHolder, RecyclerView, RecyclerView.State)}
+ * is not called for these decorations.
+ */
+public interface BatchFeatureItemDecoration extends FeatureItemDecoration {
+
+  /**
+   * Draws the decorations of all the visible views of the view type.
+   *
+   * @param views the visible views of the view type, in layout order.
+   * @param holders the holders of {@code views}, at the same indexes.
+   */
+  void onDrawViewsImpl(Canvas canvas, List<View> views, List<RecyclerView.ViewHolder> holders, RecyclerView parent, RecyclerView.State state);
+
+  @Override
+  default void onDrawViewImpl(Canvas canvas, View view, RecyclerView.ViewHolder holder, RecyclerView parent, RecyclerView.State state) {
+    // the views are drawn in batches
+  }
+}
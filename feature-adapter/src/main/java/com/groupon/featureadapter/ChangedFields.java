@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import java.util.List;
+
+/**
+ * Reads the payloads of the comparators generated for the models annotated with {@link
+ * com.groupon.featureadapter.annotations.GenerateDiffUtilComparator}. Each payload is the bitmask
+ * of the properties that changed, a partial bind can receive several of them.
+ */
+public final class ChangedFields {
+
+  /** All the properties changed, the item must be fully bound. */
+  public static final long ALL = -1L;
+
+  private ChangedFields() {}
+
+  /**
+   * Combines the payloads of a partial bind.
+   *
+   * @param payloads the payloads of {@link AdapterViewTypeDelegate#bindViewHolder(
+   *     android.support.v7.widget.RecyclerView.ViewHolder, Object, List)}.
+   * @return the bitmask of the properties that changed, {@link #ALL} if there is no payload or if
+   *     one of them is not a bitmask.
+   */
+  public static long of(List<Object> payloads) {
+    if (payloads == null || payloads.isEmpty()) {
+      return ALL;
+    }
+    long changedFields = 0;
+    for (int i = 0; i < payloads.size(); i++) {
+      final Object payload = payloads.get(i);
+      if (!(payload instanceof Long)) {
+        return ALL;
+      }
+      changedFields |= (Long) payload;
+    }
+    return changedFields;
+  }
+}
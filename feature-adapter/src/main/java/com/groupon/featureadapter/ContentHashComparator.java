@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+/**
+ * A {@link DiffUtilComparator} whose models have a 64-bit hash of their contents. The hash of each
+ * item is computed once, when the {@link FeaturesAdapter} receives the items built by {@link
+ * FeatureController#buildItems(Object)}, and is kept with these items until they are replaced.
+ * When comparing the contents of 2 items, DiffUtil compares their hashes instead of calling {@link
+ * #areContentsTheSame(Object, Object)}: equal hashes mean the contents are the same. To also
+ * resolve collisions of hashes, return true from {@link #confirmsEqualHashes()} and {@link
+ * #areContentsTheSame(Object, Object)} is called when the hashes are equal.
+ *
+ * <p>Use it when the comparison of the contents is expensive, for instance a deep comparison of
+ * the fields of large models: a diff compares the contents of the items many times, but hashes
+ * each item only once. The models must not change after they have been hashed.
+ *
+ * @param <MODEL> the class of the items to compare.
+ */
+public interface ContentHashComparator<MODEL> extends DiffUtilComparator<MODEL> {
+
+  /**
+   * Returns the hash of the contents of a model. Models whose contents are the same, according to
+   * {@link #areContentsTheSame(Object, Object)}, must have the same hash.
+   *
+   * @param model the model to hash.
+   * @return the 64-bit hash of the contents of the model.
+   */
+  long getContentHash(MODEL model);
+
+  /**
+   * @return true if {@link #areContentsTheSame(Object, Object)} must confirm that items with equal
+   *     hashes have the same contents, false if equal hashes are enough. False by default.
+   */
+  default boolean confirmsEqualHashes() {
+    return false;
+  }
+}
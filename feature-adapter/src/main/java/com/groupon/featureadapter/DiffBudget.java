@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static android.support.v7.util.DiffUtil.calculateDiff;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.DiffUtil.DiffResult;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the cost of the diffs of a {@link FeaturesAdapter}. The worst case of DiffUtil grows with
+ * the number of items times the number of edits, on a large controller whose items all changed it
+ * can block the update of the whole model for a long time.
+ *
+ * <p>Each diff of a controller gets the same budget: a maximum number of item comparisons, and a
+ * maximum duration. When one of them is exceeded, DiffUtil is aborted and the changed window of
+ * the items of the controller is dispatched as a range change, followed by the insertion or the
+ * removal of the extra items. The rows are rebound instead of animated, but the update is not
+ * delayed any longer. Controllers can get their own limits with {@link
+ * #setLimits(FeatureController, int, long)}.
+ *
+ * <p>The budget counts the diffs and the fallbacks, to monitor the fallback rate. The budget can
+ * be used from the threads the diffs are computed on.
+ */
+public class DiffBudget {
+
+  /** The diff compared more items than the maximum. */
+  public static final int REASON_COMPARISON_COUNT = 1;
+  /** The diff took longer than the maximum duration. */
+  public static final int REASON_DURATION = 2;
+
+  /** Disables a limit. */
+  public static final int NO_LIMIT = 0;
+
+  /** The number of comparisons between 2 reads of the clock. */
+  private static final int CLOCK_READ_INTERVAL = 256;
+
+  /** Reacts to the fallbacks of the diffs, to log or monitor them. */
+  public interface OnDiffFallbackListener {
+    /**
+     * Called on the thread the diff was computed on.
+     *
+     * @param featureController the controller whose diff was aborted.
+     * @param reason {@link #REASON_COMPARISON_COUNT} or {@link #REASON_DURATION}.
+     * @param oldItemCount the number of old items DiffUtil had to compare.
+     * @param newItemCount the number of new items DiffUtil had to compare.
+     */
+    void onDiffFallback(
+        FeatureController featureController, int reason, int oldItemCount, int newItemCount);
+  }
+
+  private final Limits defaultLimits;
+  private final Map<FeatureController, Limits> controllerLimits = new ConcurrentHashMap<>();
+  private final AtomicLong diffCount = new AtomicLong();
+  private final AtomicLong fallbackCount = new AtomicLong();
+  private volatile OnDiffFallbackListener onDiffFallbackListener;
+
+  /**
+   * @param maxComparisons the maximum number of item comparisons of a diff, or {@link #NO_LIMIT}.
+   * @param maxDiffDuration the maximum duration of a diff, in milliseconds, or {@link #NO_LIMIT}.
+   */
+  public DiffBudget(int maxComparisons, long maxDiffDuration) {
+    defaultLimits = new Limits(maxComparisons, maxDiffDuration);
+  }
+
+  /**
+   * Overrides the limits of the diffs of a controller.
+   *
+   * @param featureController the controller.
+   * @param maxComparisons the maximum number of item comparisons of a diff, or {@link #NO_LIMIT}.
+   * @param maxDiffDuration the maximum duration of a diff, in milliseconds, or {@link #NO_LIMIT}.
+   */
+  public void setLimits(
+      FeatureController featureController, int maxComparisons, long maxDiffDuration) {
+    controllerLimits.put(featureController, new Limits(maxComparisons, maxDiffDuration));
+  }
+
+  public OnDiffFallbackListener getOnDiffFallbackListener() {
+    return onDiffFallbackListener;
+  }
+
+  public void setOnDiffFallbackListener(OnDiffFallbackListener onDiffFallbackListener) {
+    this.onDiffFallbackListener = onDiffFallbackListener;
+  }
+
+  /** @return the number of diffs that ran DiffUtil, the trivial diffs are not counted. */
+  public long getDiffCount() {
+    return diffCount.get();
+  }
+
+  /** @return the number of diffs that exceeded their budget. */
+  public long getFallbackCount() {
+    return fallbackCount.get();
+  }
+
+  /** @return the ratio of the diffs that exceeded their budget, 0 if no diff ran. */
+  public float getFallbackRate() {
+    final long diffs = diffCount.get();
+    return diffs == 0 ? 0f : (float) fallbackCount.get() / diffs;
+  }
+
+  /** Resets the counts of the diffs and of the fallbacks. */
+  public void resetCounts() {
+    diffCount.set(0);
+    fallbackCount.set(0);
+  }
+
+  /**
+   * Runs DiffUtil within the budget of a controller. Called by {@link FeatureDiff}.
+   *
+   * @param featureController the controller whose items are compared.
+   * @param callback the callback comparing the items.
+   * @return the result of DiffUtil, or null if the budget was exceeded.
+   */
+  @Nullable
+  DiffResult calculateDiffWithinBudget(
+      FeatureController featureController, DiffUtil.Callback callback) {
+    diffCount.incrementAndGet();
+    final Limits limits = controllerLimits.get(featureController);
+    final BudgetedCallback budgetedCallback =
+        new BudgetedCallback(callback, limits == null ? defaultLimits : limits);
+    try {
+      return calculateDiff(budgetedCallback, false);
+    } catch (BudgetExceededException exception) {
+      fallbackCount.incrementAndGet();
+      final OnDiffFallbackListener listener = onDiffFallbackListener;
+      if (listener != null) {
+        listener.onDiffFallback(
+            featureController,
+            exception.reason,
+            callback.getOldListSize(),
+            callback.getNewListSize());
+      }
+      return null;
+    }
+  }
+
+  @VisibleForTesting
+  long now() {
+    return SystemClock.uptimeMillis();
+  }
+
+  private static final class Limits {
+    final int maxComparisons;
+    final long maxDiffDuration;
+
+    Limits(int maxComparisons, long maxDiffDuration) {
+      this.maxComparisons = maxComparisons;
+      this.maxDiffDuration = maxDiffDuration;
+    }
+  }
+
+  /** Counts the comparisons of DiffUtil, and aborts it when the budget is exceeded. */
+  private final class BudgetedCallback extends DiffUtil.Callback {
+    private final DiffUtil.Callback callback;
+    private final Limits limits;
+    private final long deadline;
+    private int comparisonCount;
+
+    BudgetedCallback(DiffUtil.Callback callback, Limits limits) {
+      this.callback = callback;
+      this.limits = limits;
+      deadline =
+          limits.maxDiffDuration == NO_LIMIT ? Long.MAX_VALUE : now() + limits.maxDiffDuration;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return callback.getOldListSize();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return callback.getNewListSize();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      comparisonCount++;
+      if (limits.maxComparisons != NO_LIMIT && comparisonCount > limits.maxComparisons) {
+        throw new BudgetExceededException(REASON_COMPARISON_COUNT);
+      }
+      if (deadline != Long.MAX_VALUE
+          && comparisonCount % CLOCK_READ_INTERVAL == 0
+          && now() > deadline) {
+        throw new BudgetExceededException(REASON_DURATION);
+      }
+      return callback.areItemsTheSame(oldItemPosition, newItemPosition);
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return callback.areContentsTheSame(oldItemPosition, newItemPosition);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+      return callback.getChangePayload(oldItemPosition, newItemPosition);
+    }
+  }
+
+  /** Aborts DiffUtil, it has no stack trace as it never leaves the budget. */
+  private static final class BudgetExceededException extends RuntimeException {
+    final int reason;
+
+    BudgetExceededException(int reason) {
+      this.reason = reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
@@ -19,65 +19,137 @@ import android.support.annotation.Nullable;
 import android.support.v7.util.DiffUtil;
 
 import java.util.List;
-import java.util.Map;
 
 /**
  * Callback of DiffUtil to compare items. It uses the {@link FeatureController}s' {@link
- * DiffUtilComparator} to do so.
+ * DiffUtilComparator} to do so. The contents of items hashed by a {@link ContentHashComparator}
+ * are compared by their hashes, see {@link ContentHashComparator#confirmsEqualHashes()}.
  */
 class DiffUtilCallbackImpl extends DiffUtil.Callback {
 
-  private final Map<Integer, DiffUtilComparator> mapViewTypeToItemComparator;
+  private final DiffUtilComparators itemComparators;
   private final List<? extends ViewItem> oldList;
   private final List<? extends ViewItem> newList;
+  @Nullable private final long[] oldContentHashes;
+  @Nullable private final long[] newContentHashes;
+  private final int start;
+  private final int oldListSize;
+  private final int newListSize;
 
   DiffUtilCallbackImpl(
-      Map<Integer, DiffUtilComparator> mapViewTypeToItemComparator,
+      DiffUtilComparators itemComparators,
       List<? extends ViewItem> oldList,
       List<? extends ViewItem> newList) {
-    this.mapViewTypeToItemComparator = mapViewTypeToItemComparator;
+    this(itemComparators, oldList, null, newList, null);
+  }
+
+  /**
+   * @param oldContentHashes the content hashes of the old items, or null if they were not hashed.
+   * @param newContentHashes the content hashes of the new items, or null if they were not hashed.
+   */
+  DiffUtilCallbackImpl(
+      DiffUtilComparators itemComparators,
+      List<? extends ViewItem> oldList,
+      @Nullable long[] oldContentHashes,
+      List<? extends ViewItem> newList,
+      @Nullable long[] newContentHashes) {
+    this(
+        itemComparators,
+        oldList,
+        oldContentHashes,
+        newList,
+        newContentHashes,
+        0,
+        oldList.size(),
+        newList.size());
+  }
+
+  private DiffUtilCallbackImpl(
+      DiffUtilComparators itemComparators,
+      List<? extends ViewItem> oldList,
+      @Nullable long[] oldContentHashes,
+      List<? extends ViewItem> newList,
+      @Nullable long[] newContentHashes,
+      int start,
+      int oldListSize,
+      int newListSize) {
+    this.itemComparators = itemComparators;
     this.oldList = oldList;
+    this.oldContentHashes = oldContentHashes;
     this.newList = newList;
+    this.newContentHashes = newContentHashes;
+    this.start = start;
+    this.oldListSize = oldListSize;
+    this.newListSize = newListSize;
+  }
+
+  /**
+   * @param start the position of the first item of the window in both lists.
+   * @param oldWindowSize the number of old items in the window.
+   * @param newWindowSize the number of new items in the window.
+   * @return a callback that compares the items of the window, at positions relative to its start.
+   */
+  DiffUtilCallbackImpl window(int start, int oldWindowSize, int newWindowSize) {
+    return new DiffUtilCallbackImpl(
+        itemComparators,
+        oldList,
+        oldContentHashes,
+        newList,
+        newContentHashes,
+        this.start + start,
+        oldWindowSize,
+        newWindowSize);
   }
 
   @Override
   public int getOldListSize() {
-    return oldList.size();
+    return oldListSize;
   }
 
   @Override
   public int getNewListSize() {
-    return newList.size();
+    return newListSize;
   }
 
   @Override
   public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-    final ViewItem oldItem = oldList.get(oldItemPosition);
-    final ViewItem newItem = newList.get(newItemPosition);
+    final ViewItem oldItem = oldList.get(start + oldItemPosition);
+    final ViewItem newItem = newList.get(start + newItemPosition);
     // noinspection unchecked
     return oldItem.viewType == newItem.viewType
-        && mapViewTypeToItemComparator
+        && itemComparators
             .get(oldItem.viewType)
             .areItemsTheSame(oldItem.model, newItem.model);
   }
 
   @Override
   public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-    final ViewItem oldItem = oldList.get(oldItemPosition);
-    final ViewItem newItem = newList.get(newItemPosition);
+    final ViewItem oldItem = oldList.get(start + oldItemPosition);
+    final ViewItem newItem = newList.get(start + newItemPosition);
+    final DiffUtilComparator comparator = itemComparators.get(oldItem.viewType);
+    if (comparator instanceof ContentHashComparator
+        && oldContentHashes != null
+        && newContentHashes != null) {
+      // both items were hashed by this comparator when their lists were built
+      if (oldContentHashes[start + oldItemPosition]
+          != newContentHashes[start + newItemPosition]) {
+        return false;
+      }
+      if (!((ContentHashComparator) comparator).confirmsEqualHashes()) {
+        return true;
+      }
+    }
     // noinspection unchecked
-    return mapViewTypeToItemComparator
-        .get(oldItem.viewType)
-        .areContentsTheSame(oldItem.model, newItem.model);
+    return comparator.areContentsTheSame(oldItem.model, newItem.model);
   }
 
   @Nullable
   @Override
   public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-    final ViewItem oldItem = oldList.get(oldItemPosition);
-    final ViewItem newItem = newList.get(newItemPosition);
+    final ViewItem oldItem = oldList.get(start + oldItemPosition);
+    final ViewItem newItem = newList.get(start + newItemPosition);
     // noinspection unchecked
-    return mapViewTypeToItemComparator
+    return itemComparators
         .get(oldItem.viewType)
         .getChangePayload(oldItem.model, newItem.model);
   }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+/**
+ * Provides the {@link DiffUtilComparator} of the items of a view type. The comparators of a
+ * {@link FeaturesAdapter} are created the first time the items of their view type are diffed.
+ */
+interface DiffUtilComparators {
+  /**
+   * @param viewType the view type of the items.
+   * @return the comparator of the items of the view type.
+   */
+  DiffUtilComparator get(int viewType);
+}
@@ -16,6 +16,7 @@
 package com.groupon.featureadapter;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.widget.DefaultItemAnimator;
 import android.support.v7.widget.RecyclerView;
 
@@ -25,13 +26,38 @@ import java.util.List;
  * Default implementation that takes and utilizes a {@link FeatureAnimatorController} to allow
  * Features to register and run their own Animations with a similar pattern to
  * {@link RecyclerView.ItemAnimator}.
+ *
+ * An optional {@link AnimationDegradationPolicy} skips or shortens the animations of the batches
+ * that are too large or too frequent.
  */
 public final class FeatureAdapterDefaultAnimator extends DefaultItemAnimator {
 
   private final FeatureAnimatorController featureAnimatorController;
+  @Nullable private final AnimationDegradationPolicy animationDegradationPolicy;
+
+  private int pendingChangeCount;
+  // the durations set on this animator, before they are shortened by the degradation policy
+  private long addDuration;
+  private long removeDuration;
+  private long moveDuration;
+  private long changeDuration;
 
   public FeatureAdapterDefaultAnimator(FeatureAnimatorController featureAnimatorController) {
+    this(featureAnimatorController, null);
+  }
+
+  /**
+   * @param featureAnimatorController the controller of the feature animations.
+   * @param animationDegradationPolicy the policy that decides whether each batch of animations
+   *     is skipped or shortened, or null to always animate.
+   */
+  public FeatureAdapterDefaultAnimator(FeatureAnimatorController featureAnimatorController, @Nullable AnimationDegradationPolicy animationDegradationPolicy) {
     this.featureAnimatorController = featureAnimatorController;
+    this.animationDegradationPolicy = animationDegradationPolicy;
+    addDuration = getAddDuration();
+    removeDuration = getRemoveDuration();
+    moveDuration = getMoveDuration();
+    changeDuration = getChangeDuration();
   }
 
   @Override
@@ -59,12 +85,45 @@ public final class FeatureAdapterDefaultAnimator extends DefaultItemAnimator {
 
   @Override
   public boolean animateChange(@NonNull RecyclerView.ViewHolder oldHolder, @NonNull RecyclerView.ViewHolder newHolder, @NonNull ItemHolderInfo preInfo, @NonNull ItemHolderInfo postInfo) {
+    pendingChangeCount++;
     return featureAnimatorController.animateChange(this, oldHolder, newHolder, preInfo, postInfo) ||
       super.animateChange(oldHolder, newHolder, preInfo, postInfo);
   }
 
+  @Override
+  public boolean animateAdd(RecyclerView.ViewHolder holder) {
+    pendingChangeCount++;
+    return super.animateAdd(holder);
+  }
+
+  @Override
+  public boolean animateRemove(RecyclerView.ViewHolder holder) {
+    pendingChangeCount++;
+    return super.animateRemove(holder);
+  }
+
+  @Override
+  public boolean animateMove(RecyclerView.ViewHolder holder, int fromX, int fromY, int toX, int toY) {
+    pendingChangeCount++;
+    return super.animateMove(holder, fromX, fromY, toX, toY);
+  }
+
   @Override
   public void runPendingAnimations() {
+    final int changeCount = pendingChangeCount;
+    pendingChangeCount = 0;
+    if (animationDegradationPolicy != null) {
+      final int degradation = animationDegradationPolicy.onPendingAnimations(changeCount);
+      if (degradation == AnimationDegradationPolicy.SKIP) {
+        // jump the pending animations to their end
+        super.endAnimations();
+        featureAnimatorController.skipPendingAnimations();
+        return;
+      }
+      scaleDurations(degradation == AnimationDegradationPolicy.SHORTEN
+        ? animationDegradationPolicy.getShortenedDurationScale()
+        : 1f);
+    }
     super.runPendingAnimations();
     featureAnimatorController.runPendingAnimations();
   }
@@ -85,4 +144,37 @@ public final class FeatureAdapterDefaultAnimator extends DefaultItemAnimator {
     super.endAnimations();
     featureAnimatorController.endAnimations();
   }
+
+  @Override
+  public void setAddDuration(long addDuration) {
+    this.addDuration = addDuration;
+    super.setAddDuration(addDuration);
+  }
+
+  @Override
+  public void setRemoveDuration(long removeDuration) {
+    this.removeDuration = removeDuration;
+    super.setRemoveDuration(removeDuration);
+  }
+
+  @Override
+  public void setMoveDuration(long moveDuration) {
+    this.moveDuration = moveDuration;
+    super.setMoveDuration(moveDuration);
+  }
+
+  @Override
+  public void setChangeDuration(long changeDuration) {
+    this.changeDuration = changeDuration;
+    super.setChangeDuration(changeDuration);
+  }
+
+  // the durations are read when the animations start, after runPendingAnimations returns, so they
+  // are kept until the next batch
+  private void scaleDurations(float scale) {
+    super.setAddDuration((long) (addDuration * scale));
+    super.setRemoveDuration((long) (removeDuration * scale));
+    super.setMoveDuration((long) (moveDuration * scale));
+    super.setChangeDuration((long) (changeDuration * scale));
+  }
 }
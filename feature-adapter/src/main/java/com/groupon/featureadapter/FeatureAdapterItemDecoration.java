@@ -18,28 +18,85 @@ package com.groupon.featureadapter;
 import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.support.v7.widget.RecyclerView;
-import android.util.SparseArray;
 import android.view.View;
+import com.groupon.featurecontrol.R;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Simple ItemDecoration that allows Features to register implementations that only run on their
  * own view types.
+ *
+ * <p>The offsets of a decoration can be cached per item, when they only depend on the view type
+ * and the model of the item, see {@link #registerFeatureDecoration(FeatureItemDecoration,
+ * AdapterViewTypeDelegate, boolean)}. The cache is cleared whenever the adapter notifies a change.
+ * Decorations that implement {@link BatchFeatureItemDecoration} draw all the views of their view
+ * type in a single call.
+ *
+ * <p>The decorations can be registered from any thread, for instance while a controller builds its
+ * items, and are read on the main thread without locking.
  */
 public final class FeatureAdapterItemDecoration extends RecyclerView.ItemDecoration {
 
-  private final SparseArray<FeatureItemDecoration> viewTypeDecorationMap = new SparseArray<>();
+  private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+  /**
+   * The registrations indexed by view type, they are read for every view of every frame. The array
+   * is copied on write, by the synchronized registrations, and is never modified once published.
+   */
+  private volatile Registration[] viewTypeRegistrations = NO_REGISTRATIONS;
+  private final RecyclerView.AdapterDataObserver invalidatingObserver = new InvalidatingAdapterDataObserver();
+  private RecyclerView.Adapter observedAdapter;
 
   public void registerFeatureDecoration(FeatureItemDecoration decoration, AdapterViewTypeDelegate viewTypeDelegate) {
-    viewTypeDecorationMap.put(viewTypeDelegate.getViewType(), decoration);
+    registerFeatureDecoration(decoration, viewTypeDelegate, false);
+  }
+
+  /**
+   * @param decoration the decoration of the view type.
+   * @param viewTypeDelegate the delegate of the view type.
+   * @param cacheItemOffsets true if the offsets of {@code decoration} only depend on the view type
+   *     and the model of an item. They are then computed once per model until the adapter notifies
+   *     a change.
+   */
+  public synchronized void registerFeatureDecoration(FeatureItemDecoration decoration, AdapterViewTypeDelegate viewTypeDelegate, boolean cacheItemOffsets) {
+    final int viewType = viewTypeDelegate.getViewType();
+    if (viewType < 0) {
+      // the delegate has no view type yet, none of its views can be decorated
+      return;
+    }
+    final Registration[] registrations = viewTypeRegistrations;
+    final Registration[] newRegistrations = new Registration[Math.max(registrations.length, viewType + 1)];
+    System.arraycopy(registrations, 0, newRegistrations, 0, registrations.length);
+    newRegistrations[viewType] = new Registration(decoration, cacheItemOffsets);
+    viewTypeRegistrations = newRegistrations;
   }
 
   @Override
   public void getItemOffsets(Rect outRect, View view, RecyclerView parent, RecyclerView.State state) {
     final RecyclerView.ViewHolder holder = parent.getChildViewHolder(view);
-    final int viewType = holder.getItemViewType();
-    final FeatureItemDecoration decoration = viewTypeDecorationMap.get(viewType);
-    if (decoration != null) {
+    final Registration registration = getRegistration(viewTypeRegistrations, holder.getItemViewType());
+    if (registration == null) {
+      return;
+    }
+
+    final FeatureItemDecoration decoration = registration.decoration;
+    final Map<Object, Rect> offsetsCache = registration.offsetsCache;
+    final Object model = offsetsCache != null ? view.getTag(R.id.feature_adapter_bound_model) : null;
+    if (model == null) {
+      decoration.getItemOffsetsImpl(outRect, view, holder, parent, state);
+      return;
+    }
+    observeAdapter(parent.getAdapter());
+    Rect offsets = offsetsCache.get(model);
+    if (offsets == null) {
       decoration.getItemOffsetsImpl(outRect, view, holder, parent, state);
+      offsets = new Rect(outRect);
+      offsetsCache.put(model, offsets);
+    } else {
+      outRect.set(offsets);
     }
   }
 
@@ -48,14 +105,125 @@ public final class FeatureAdapterItemDecoration extends RecyclerView.ItemDecorat
     if (parent.getLayoutManager() == null) {
       return;
     }
+    // a single read of the registrations, the batches filled are the batches drawn
+    final Registration[] registrations = viewTypeRegistrations;
     for (int i = 0; i < parent.getChildCount(); i++) {
       final View view = parent.getChildAt(i);
       final RecyclerView.ViewHolder holder = parent.getChildViewHolder(view);
-      final int viewType = holder.getItemViewType();
-      final FeatureItemDecoration decoration = viewTypeDecorationMap.get(viewType);
-      if (decoration != null) {
-        decoration.onDrawViewImpl(canvas, view, holder, parent, state);
+      final Registration registration = getRegistration(registrations, holder.getItemViewType());
+      if (registration == null) {
+        continue;
+      }
+      final DrawBatch drawBatch = registration.drawBatch;
+      if (drawBatch != null) {
+        drawBatch.views.add(view);
+        drawBatch.holders.add(holder);
+      } else {
+        registration.decoration.onDrawViewImpl(canvas, view, holder, parent, state);
+      }
+    }
+    for (Registration registration : registrations) {
+      if (registration != null && registration.drawBatch != null) {
+        registration.drawBatch.draw(canvas, parent, state);
+      }
+    }
+  }
+
+  private static Registration getRegistration(Registration[] registrations, int viewType) {
+    return viewType >= 0 && viewType < registrations.length ? registrations[viewType] : null;
+  }
+
+  private void observeAdapter(RecyclerView.Adapter adapter) {
+    if (adapter == observedAdapter) {
+      return;
+    }
+    if (observedAdapter != null) {
+      observedAdapter.unregisterAdapterDataObserver(invalidatingObserver);
+    }
+    invalidateItemOffsets();
+    observedAdapter = adapter;
+    if (adapter != null) {
+      adapter.registerAdapterDataObserver(invalidatingObserver);
+    }
+  }
+
+  private void invalidateItemOffsets() {
+    for (Registration registration : viewTypeRegistrations) {
+      if (registration != null && registration.offsetsCache != null) {
+        registration.offsetsCache.clear();
+      }
+    }
+  }
+
+  /**
+   * The decoration of a view type, with its offsets cache and its draw batch. A new registration
+   * replaces the previous one of the view type, its caches are only used on the main thread.
+   */
+  private static final class Registration {
+    final FeatureItemDecoration decoration;
+    /** The cached offsets of each model, or null if the offsets are not cached. */
+    final Map<Object, Rect> offsetsCache;
+    /** The views of a batched view type, reused for every frame, or null if it is not batched. */
+    final DrawBatch drawBatch;
+
+    Registration(FeatureItemDecoration decoration, boolean cacheItemOffsets) {
+      this.decoration = decoration;
+      offsetsCache = cacheItemOffsets ? new IdentityHashMap<>() : null;
+      drawBatch =
+          decoration instanceof BatchFeatureItemDecoration ? new DrawBatch((BatchFeatureItemDecoration) decoration) : null;
+    }
+  }
+
+  /** The visible views of a batched view type. */
+  private static class DrawBatch {
+    final BatchFeatureItemDecoration decoration;
+    final List<View> views = new ArrayList<>();
+    final List<RecyclerView.ViewHolder> holders = new ArrayList<>();
+
+    DrawBatch(BatchFeatureItemDecoration decoration) {
+      this.decoration = decoration;
+    }
+
+    void draw(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+      if (views.isEmpty()) {
+        return;
       }
+      decoration.onDrawViewsImpl(canvas, views, holders, parent, state);
+      views.clear();
+      holders.clear();
+    }
+  }
+
+  /** Clears the cached offsets when the items change, including the diff dispatches. */
+  private class InvalidatingAdapterDataObserver extends RecyclerView.AdapterDataObserver {
+    @Override
+    public void onChanged() {
+      invalidateItemOffsets();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+      invalidateItemOffsets();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      invalidateItemOffsets();
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      invalidateItemOffsets();
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      invalidateItemOffsets();
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      invalidateItemOffsets();
     }
   }
 }
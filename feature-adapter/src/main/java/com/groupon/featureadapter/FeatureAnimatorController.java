@@ -24,8 +24,9 @@ import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.ItemAnimator;
 import android.support.v7.widget.RecyclerView.ItemAnimator.ItemHolderInfo;
 import android.support.v7.widget.RecyclerView.ViewHolder;
-import java.util.Hashtable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,14 +35,52 @@ import java.util.Map;
  *
  * Refer to {@link FeatureAdapterDefaultAnimator} for an example on how to use this class with an
  * existing {@link RecyclerView.ItemAnimator}
+ *
+ * Listeners that implement {@link RecyclingFeatureAnimatorListener} get their ended animators back
+ * from a pool per view type, holding at most {@link #MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE}
+ * animators.
  */
 public class FeatureAnimatorController {
 
-  private final Hashtable<Integer, FeatureAnimatorListener> viewTypeFeatureAnimatorMap = new Hashtable<>();
+  public static final int MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE = 5;
+
+  private static final FeatureAnimatorListener[] NO_LISTENERS = new FeatureAnimatorListener[0];
+
+  /**
+   * Listeners indexed by view type. Copied on registration, so that it is read without locking or
+   * boxing the view type on every layout.
+   */
+  private volatile FeatureAnimatorListener[] viewTypeFeatureAnimators = NO_LISTENERS;
   private final Map<ViewHolder, Animator> viewHolderAnimatorMap = new ArrayMap<>();
+  private final List<Animator> skippedAnimators = new ArrayList<>();
+  /**
+   * Ended animations of the recycling listeners, indexed by view type like the listeners. Only used
+   * on the main thread.
+   */
+  private List<RecycledAnimation>[] recycledAnimations = newRecycledAnimations(0);
 
-  public void registerFeatureAnimatorListener(FeatureAnimatorListener featureAnimator, AdapterViewTypeDelegate viewTypeDelegate) {
-    viewTypeFeatureAnimatorMap.put(viewTypeDelegate.getViewType(), featureAnimator);
+  /**
+   * Registers the animator of a view type. It can be called from any thread, and must be called
+   * after {@code viewTypeDelegate} was registered in its adapter, so that its view type is valid.
+   *
+   * @param featureAnimator the animator of the view type, replaces the previous one if any.
+   * @param viewTypeDelegate the delegate of the view type.
+   */
+  public synchronized void registerFeatureAnimatorListener(FeatureAnimatorListener featureAnimator, AdapterViewTypeDelegate viewTypeDelegate) {
+    final int viewType = viewTypeDelegate.getViewType();
+    if (viewType < 0) {
+      // the delegate has no view type yet, none of its holders can be animated
+      return;
+    }
+    final FeatureAnimatorListener[] listeners = viewTypeFeatureAnimators;
+    if (viewType < listeners.length && listeners[viewType] == featureAnimator) {
+      return;
+    }
+    final FeatureAnimatorListener[] newListeners =
+      new FeatureAnimatorListener[Math.max(listeners.length, viewType + 1)];
+    System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+    newListeners[viewType] = featureAnimator;
+    viewTypeFeatureAnimators = newListeners;
   }
 
   @Nullable
@@ -57,11 +96,19 @@ public class FeatureAnimatorController {
   }
 
   public FeatureAnimatorListener getFeatureAnimatorListener(@NonNull ViewHolder viewHolder) {
-    return viewTypeFeatureAnimatorMap.get(viewHolder.getItemViewType());
+    return getFeatureAnimatorListener(viewHolder.getItemViewType());
+  }
+
+  private FeatureAnimatorListener getFeatureAnimatorListener(int viewType) {
+    final FeatureAnimatorListener[] listeners = viewTypeFeatureAnimators;
+    return viewType >= 0 && viewType < listeners.length ? listeners[viewType] : null;
   }
 
   public boolean animateChange(@NonNull ItemAnimator itemAnimator, @NonNull ViewHolder oldHolder, @NonNull ViewHolder newHolder, @NonNull ItemHolderInfo preInfo, @NonNull ItemHolderInfo postInfo) {
-    final FeatureAnimatorListener listener = viewTypeFeatureAnimatorMap.get(oldHolder.getItemViewType());
+    final FeatureAnimatorListener listener = getFeatureAnimatorListener(oldHolder.getItemViewType());
+    if (listener instanceof RecyclingFeatureAnimatorListener) {
+      return animateRecyclingChange((RecyclingFeatureAnimatorListener) listener, itemAnimator, oldHolder, newHolder, preInfo, postInfo);
+    }
     if (listener != null) {
       final Animator animator = listener.setupChangeAnimation(itemAnimator, oldHolder, newHolder, preInfo, postInfo);
       if (animator != null) {
@@ -79,6 +126,22 @@ public class FeatureAnimatorController {
     }
   }
 
+  /**
+   * Jumps the pending animations to their end instead of running them, see {@link
+   * AnimationDegradationPolicy}.
+   */
+  public void skipPendingAnimations() {
+    if (viewHolderAnimatorMap.isEmpty()) {
+      return;
+    }
+    // ending an animation removes it from the map
+    skippedAnimators.addAll(viewHolderAnimatorMap.values());
+    for (int i = 0; i < skippedAnimators.size(); i++) {
+      skippedAnimators.get(i).end();
+    }
+    skippedAnimators.clear();
+  }
+
   public boolean isRunning() {
     return !viewHolderAnimatorMap.isEmpty();
   }
@@ -98,6 +161,91 @@ public class FeatureAnimatorController {
     }
   }
 
+  private boolean animateRecyclingChange(RecyclingFeatureAnimatorListener listener, ItemAnimator itemAnimator, ViewHolder oldHolder, ViewHolder newHolder, ItemHolderInfo preInfo, ItemHolderInfo postInfo) {
+    final int viewType = oldHolder.getItemViewType();
+    final RecycledAnimation recycledAnimation = obtainRecycledAnimation(viewType);
+    final Animator recycledAnimator = recycledAnimation != null ? recycledAnimation.animator : null;
+    //noinspection unchecked
+    final Animator animator = listener.setupChangeAnimation(itemAnimator, oldHolder, newHolder, preInfo, postInfo, recycledAnimator);
+    if (animator == null) {
+      if (recycledAnimation != null) {
+        recycleAnimation(recycledAnimation);
+      }
+      return false;
+    }
+
+    final RecycledAnimation animation;
+    if (recycledAnimation != null && animator == recycledAnimator) {
+      animation = recycledAnimation;
+    } else {
+      // a new animator, its end listener is added once for all its uses
+      animation = new RecycledAnimation(viewType, animator);
+      animator.addListener(animation);
+    }
+    animation.itemAnimator = itemAnimator;
+    animation.holder = newHolder;
+    viewHolderAnimatorMap.put(newHolder, animator);
+    return true;
+  }
+
+  @Nullable
+  private RecycledAnimation obtainRecycledAnimation(int viewType) {
+    final List<RecycledAnimation> animations = viewType < recycledAnimations.length ? recycledAnimations[viewType] : null;
+    return animations == null || animations.isEmpty() ? null : animations.remove(animations.size() - 1);
+  }
+
+  private void recycleAnimation(RecycledAnimation animation) {
+    final int viewType = animation.viewType;
+    if (viewType >= recycledAnimations.length) {
+      final List<RecycledAnimation>[] newRecycledAnimations = newRecycledAnimations(viewType + 1);
+      System.arraycopy(recycledAnimations, 0, newRecycledAnimations, 0, recycledAnimations.length);
+      recycledAnimations = newRecycledAnimations;
+    }
+    List<RecycledAnimation> animations = recycledAnimations[viewType];
+    if (animations == null) {
+      animations = new ArrayList<>(MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE);
+      recycledAnimations[viewType] = animations;
+    }
+    if (animations.size() < MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE) {
+      animations.add(animation);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<RecycledAnimation>[] newRecycledAnimations(int size) {
+    return new List[size];
+  }
+
+  /**
+   * The end listener of a recycled animator, added once to the animator and reused with it.
+   */
+  private class RecycledAnimation extends AnimatorListenerAdapter {
+
+    final int viewType;
+    final Animator animator;
+    ItemAnimator itemAnimator;
+    ViewHolder holder;
+
+    RecycledAnimation(int viewType, Animator animator) {
+      this.viewType = viewType;
+      this.animator = animator;
+    }
+
+    @Override
+    public void onAnimationEnd(Animator animation) {
+      final ViewHolder endedHolder = holder;
+      final ItemAnimator endedItemAnimator = itemAnimator;
+      if (endedHolder == null) {
+        return;
+      }
+      holder = null;
+      itemAnimator = null;
+      viewHolderAnimatorMap.remove(endedHolder);
+      recycleAnimation(this);
+      endedItemAnimator.dispatchAnimationFinished(endedHolder);
+    }
+  }
+
   private class CustomAnimationEndListener extends AnimatorListenerAdapter {
 
     private final ViewHolder holder;
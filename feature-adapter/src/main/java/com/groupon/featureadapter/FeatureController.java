@@ -59,13 +59,22 @@ import java.util.List;
 public abstract class FeatureController<MODEL> {
 
   private final FeatureEventSource featureEventSource = new FeatureEventSource();
+  private Collection<AdapterViewTypeDelegate> adapterViewTypeDelegates;
 
   /**
    * @return the list of the {@link AdapterViewTypeDelegate} that will be used to represent each
-   *     item on screen.
+   *     item on screen. It is only called once, the delegates of a controller never change.
    */
   public abstract Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates();
 
+  /** @return the delegates returned by the first call to {@link #getAdapterViewTypeDelegates()}. */
+  final Collection<AdapterViewTypeDelegate> getCachedAdapterViewTypeDelegates() {
+    if (adapterViewTypeDelegates == null) {
+      adapterViewTypeDelegates = getAdapterViewTypeDelegates();
+    }
+    return adapterViewTypeDelegates;
+  }
+
   /**
    * Builds the list of items to represent the {@code model}. When building the {@link ViewItem}s,
    * we must provide them with a view type. The view type must be one of the view type of the {@link
@@ -79,6 +88,20 @@ public abstract class FeatureController<MODEL> {
    */
   public abstract List<ViewItem> buildItems(MODEL model);
 
+  /**
+   * Builds the items shown in place of the items of this controller while their build is deferred
+   * by a {@link ViewportBuildScheduler}, for instance a few skeleton rows with the height of the
+   * real items. It is only called while the controller has no items yet, and must be cheap. Their
+   * delegates must be among the delegates of the controller. By default, it returns null and the
+   * controller has no items until it is built.
+   *
+   * @param model the input model instance.
+   * @return the placeholder items, or null.
+   */
+  public List<ViewItem> buildPlaceholderItems(MODEL model) {
+    return null;
+  }
+
   /**
    * Adds a {@link FeatureEventListener} to all the {@link AdapterViewTypeDelegate} returned by
    * {@link #getAdapterViewTypeDelegates()}.
@@ -87,11 +110,29 @@ public abstract class FeatureController<MODEL> {
    */
   public void addFeatureEventListener(FeatureEventListener featureEventListener) {
     featureEventSource.addFeatureEventListener(featureEventListener);
-    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getAdapterViewTypeDelegates()) {
+    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getCachedAdapterViewTypeDelegates()) {
       adapterViewTypeDelegate.addFeatureEventListener(featureEventListener);
     }
   }
 
+  /**
+   * Adds a {@link FeatureEventListener} to all the {@link AdapterViewTypeDelegate} returned by
+   * {@link #getAdapterViewTypeDelegates()}, for a class of events only. The events of other
+   * classes are not dispatched to the listener, which is cheaper than filtering them in the
+   * listener.
+   *
+   * @param eventClass the class of the events to listen to. A {@link FeatureEvent} subtype, or
+   *     any interface implemented by the events.
+   * @param featureEventListener the listener to be added.
+   */
+  public void addFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    featureEventSource.addFeatureEventListener(eventClass, featureEventListener);
+    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getCachedAdapterViewTypeDelegates()) {
+      adapterViewTypeDelegate.addFeatureEventListener(eventClass, featureEventListener);
+    }
+  }
+
   /**
    * Removes a {@link FeatureEventListener} from all the {@link AdapterViewTypeDelegate} returned by
    * {@link #getAdapterViewTypeDelegates()}.
@@ -100,13 +141,29 @@ public abstract class FeatureController<MODEL> {
    */
   public void removeFeatureEventListener(FeatureEventListener featureEventListener) {
     featureEventSource.removeFeatureEventListener(featureEventListener);
-    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getAdapterViewTypeDelegates()) {
+    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getCachedAdapterViewTypeDelegates()) {
       adapterViewTypeDelegate.removeFeatureEventListener(featureEventListener);
     }
   }
 
   /**
-   * Fires an {@link FeatureEvent} to all listeners.
+   * Removes a {@link FeatureEventListener} added for a class of events from all the {@link
+   * AdapterViewTypeDelegate} returned by {@link #getAdapterViewTypeDelegates()}.
+   *
+   * @param eventClass the class the listener was added with.
+   * @param featureEventListener the listener to be removed.
+   */
+  public void removeFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    featureEventSource.removeFeatureEventListener(eventClass, featureEventListener);
+    for (AdapterViewTypeDelegate adapterViewTypeDelegate : getCachedAdapterViewTypeDelegates()) {
+      adapterViewTypeDelegate.removeFeatureEventListener(eventClass, featureEventListener);
+    }
+  }
+
+  /**
+   * Fires an {@link FeatureEvent} to all listeners. It can be called from any thread, listeners
+   * are called on the calling thread.
    *
    * @param featureEvent the event to be passed to all listeners.
    */
@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static android.support.v7.util.DiffUtil.calculateDiff;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.BatchingListUpdateCallback;
+import android.support.v7.util.DiffUtil.DiffResult;
+import android.support.v7.util.ListUpdateCallback;
+import java.util.List;
+
+/**
+ * The changes between the old and the new items of a {@link FeatureController}.
+ *
+ * <p>Before running {@link android.support.v7.util.DiffUtil}, the common prefix and suffix of the
+ * lists are trimmed with the {@link DiffUtilComparator}s, and DiffUtil only compares the window of
+ * items in between. When one of the lists is empty, or the window is empty on one side, the changes
+ * are known without DiffUtil at all.
+ *
+ * <p>With a {@link DiffBudget}, DiffUtil is aborted when it exceeds the budget, and the window is
+ * replaced: its overlapping rows are changed, and the extra rows inserted or removed.
+ */
+public final class FeatureDiff {
+
+  private static final int[] NO_POSITIONS = new int[0];
+  private static final Object[] NO_PAYLOADS = new Object[0];
+
+  /** Compares the whole lists, or null if the diff was created from a whole diff result. */
+  @Nullable private final DiffUtilCallbackImpl callback;
+  @Nullable private final DiffResult diffResult;
+  private final boolean isWholeDiffResult;
+  private final int windowStart;
+  private final int oldWindowSize;
+  private final int newWindowSize;
+  private final int[] changedPositions;
+  private final Object[] changePayloads;
+  private final int prefixChangeCount;
+  private final boolean isWindowReplaced;
+  @Nullable private volatile DiffResult calculatedWholeDiffResult;
+
+  private FeatureDiff(
+      @Nullable DiffUtilCallbackImpl callback,
+      @Nullable DiffResult diffResult,
+      boolean isWholeDiffResult,
+      boolean isWindowReplaced,
+      int windowStart,
+      int oldWindowSize,
+      int newWindowSize,
+      int[] changedPositions,
+      Object[] changePayloads,
+      int prefixChangeCount) {
+    this.callback = callback;
+    this.diffResult = diffResult;
+    this.isWholeDiffResult = isWholeDiffResult;
+    this.isWindowReplaced = isWindowReplaced;
+    this.windowStart = windowStart;
+    this.oldWindowSize = oldWindowSize;
+    this.newWindowSize = newWindowSize;
+    this.changedPositions = changedPositions;
+    this.changePayloads = changePayloads;
+    this.prefixChangeCount = prefixChangeCount;
+  }
+
+  /**
+   * @param diffResult the result of DiffUtil on the whole lists.
+   * @return the diff that dispatches the diff result.
+   */
+  static FeatureDiff of(DiffResult diffResult) {
+    return new FeatureDiff(null, diffResult, true, false, 0, 0, 0, NO_POSITIONS, NO_PAYLOADS, 0);
+  }
+
+  /**
+   * Computes the changes between two lists of items.
+   *
+   * @param itemComparators the comparators of the items, by view type.
+   * @param oldItems the old items.
+   * @param newItems the new items.
+   * @return the changes from the old items to the new items.
+   */
+  static FeatureDiff calculate(
+      DiffUtilComparators itemComparators,
+      List<ViewItem> oldItems,
+      List<ViewItem> newItems) {
+    return calculate(itemComparators, null, null, oldItems, newItems);
+  }
+
+  /**
+   * Computes the changes between two lists of items, within the budget of a controller.
+   *
+   * @param itemComparators the comparators of the items, by view type.
+   * @param diffBudget the budget of DiffUtil, or null to run it until it completes.
+   * @param featureController the controller whose items are compared.
+   * @param oldItems the old items.
+   * @param newItems the new items.
+   * @return the changes from the old items to the new items.
+   */
+  static FeatureDiff calculate(
+      DiffUtilComparators itemComparators,
+      @Nullable DiffBudget diffBudget,
+      @Nullable FeatureController featureController,
+      List<ViewItem> oldItems,
+      List<ViewItem> newItems) {
+    return calculate(itemComparators, diffBudget, featureController, oldItems, null, newItems, null);
+  }
+
+  /**
+   * Computes the changes between two lists of hashed items, within the budget of a controller.
+   *
+   * @param itemComparators the comparators of the items, by view type.
+   * @param diffBudget the budget of DiffUtil, or null to run it until it completes.
+   * @param featureController the controller whose items are compared.
+   * @param oldItems the old items.
+   * @param oldContentHashes the content hashes of the old items, or null if they were not hashed.
+   * @param newItems the new items.
+   * @param newContentHashes the content hashes of the new items, or null if they were not hashed.
+   * @return the changes from the old items to the new items.
+   */
+  static FeatureDiff calculate(
+      DiffUtilComparators itemComparators,
+      @Nullable DiffBudget diffBudget,
+      @Nullable FeatureController featureController,
+      List<ViewItem> oldItems,
+      @Nullable long[] oldContentHashes,
+      List<ViewItem> newItems,
+      @Nullable long[] newContentHashes) {
+    final int oldSize = oldItems.size();
+    final int newSize = newItems.size();
+    final DiffUtilCallbackImpl callback =
+        new DiffUtilCallbackImpl(
+            itemComparators, oldItems, oldContentHashes, newItems, newContentHashes);
+    if (oldItems == newItems) {
+      return new FeatureDiff(callback, null, false, false, 0, 0, 0, NO_POSITIONS, NO_PAYLOADS, 0);
+    }
+    if (oldSize == 0 || newSize == 0) {
+      return new FeatureDiff(
+          callback, null, false, false, 0, oldSize, newSize, NO_POSITIONS, NO_PAYLOADS, 0);
+    }
+
+    final int maxTrimmed = Math.min(oldSize, newSize);
+    int[] changedPositions = NO_POSITIONS;
+    Object[] changePayloads = NO_PAYLOADS;
+    int changeCount = 0;
+
+    // common prefix
+    int prefix = 0;
+    while (prefix < maxTrimmed && areItemsTheSame(callback, oldItems, newItems, prefix, prefix)) {
+      if (!areContentsTheSame(callback, oldItems, newItems, prefix, prefix)) {
+        if (changeCount == changedPositions.length) {
+          changedPositions = grow(changedPositions);
+          changePayloads = grow(changePayloads);
+        }
+        changedPositions[changeCount] = prefix;
+        changePayloads[changeCount] = callback.getChangePayload(prefix, prefix);
+        changeCount++;
+      }
+      prefix++;
+    }
+    final int prefixChangeCount = changeCount;
+
+    // common suffix, it does not overlap the prefix
+    int suffix = 0;
+    while (suffix < maxTrimmed - prefix
+        && areItemsTheSame(
+            callback, oldItems, newItems, oldSize - 1 - suffix, newSize - 1 - suffix)) {
+      final int oldPosition = oldSize - 1 - suffix;
+      final int newPosition = newSize - 1 - suffix;
+      if (!areContentsTheSame(callback, oldItems, newItems, oldPosition, newPosition)) {
+        if (changeCount == changedPositions.length) {
+          changedPositions = grow(changedPositions);
+          changePayloads = grow(changePayloads);
+        }
+        // the suffix changes are dispatched after the window, at their new position
+        changedPositions[changeCount] = newPosition;
+        changePayloads[changeCount] = callback.getChangePayload(oldPosition, newPosition);
+        changeCount++;
+      }
+      suffix++;
+    }
+
+    final int oldWindowSize = oldSize - prefix - suffix;
+    final int newWindowSize = newSize - prefix - suffix;
+    DiffResult windowDiffResult = null;
+    boolean isWindowReplaced = false;
+    if (oldWindowSize != 0 && newWindowSize != 0) {
+      final DiffUtilCallbackImpl windowCallback =
+          callback.window(prefix, oldWindowSize, newWindowSize);
+      if (diffBudget == null) {
+        windowDiffResult = calculateDiff(windowCallback, false);
+      } else {
+        windowDiffResult = diffBudget.calculateDiffWithinBudget(featureController, windowCallback);
+        isWindowReplaced = windowDiffResult == null;
+      }
+    }
+    if (changeCount != changedPositions.length) {
+      changedPositions = trim(changedPositions, changeCount);
+      changePayloads = trim(changePayloads, changeCount);
+    }
+    return new FeatureDiff(
+        callback,
+        windowDiffResult,
+        prefix == 0 && suffix == 0,
+        isWindowReplaced,
+        prefix,
+        oldWindowSize,
+        newWindowSize,
+        changedPositions,
+        changePayloads,
+        prefixChangeCount);
+  }
+
+  /** @return the result of DiffUtil if it was computed on the whole lists, null otherwise. */
+  @Nullable
+  DiffResult getWholeDiffResult() {
+    return isWholeDiffResult ? diffResult : null;
+  }
+
+  /**
+   * @return the result of DiffUtil on the whole lists. If it was not computed by the diff, it is
+   *     computed on the first call, without budget, and kept.
+   */
+  @NonNull
+  DiffResult calculateWholeDiffResult() {
+    if (isWholeDiffResult) {
+      return diffResult;
+    }
+    DiffResult wholeDiffResult = calculatedWholeDiffResult;
+    if (wholeDiffResult == null) {
+      wholeDiffResult = calculateDiff(callback, false);
+      calculatedWholeDiffResult = wholeDiffResult;
+    }
+    return wholeDiffResult;
+  }
+
+  /**
+   * Dispatches the changes to a callback, in the same way as {@link
+   * DiffResult#dispatchUpdatesTo(ListUpdateCallback)}.
+   *
+   * @param updateCallback the callback to notify of the changes.
+   */
+  public void dispatchUpdatesTo(ListUpdateCallback updateCallback) {
+    final BatchingListUpdateCallback batchingCallback =
+        updateCallback instanceof BatchingListUpdateCallback
+            ? (BatchingListUpdateCallback) updateCallback
+            : new BatchingListUpdateCallback(updateCallback);
+    for (int i = 0; i < prefixChangeCount; i++) {
+      batchingCallback.onChanged(changedPositions[i], 1, changePayloads[i]);
+    }
+    if (diffResult != null) {
+      diffResult.dispatchUpdatesTo(new OffsetListUpdateCallback(batchingCallback, windowStart));
+    } else if (isWindowReplaced) {
+      final int changedCount = Math.min(oldWindowSize, newWindowSize);
+      batchingCallback.onChanged(windowStart, changedCount, null);
+      if (oldWindowSize > changedCount) {
+        batchingCallback.onRemoved(windowStart + changedCount, oldWindowSize - changedCount);
+      } else if (newWindowSize > changedCount) {
+        batchingCallback.onInserted(windowStart + changedCount, newWindowSize - changedCount);
+      }
+    } else {
+      if (oldWindowSize != 0) {
+        batchingCallback.onRemoved(windowStart, oldWindowSize);
+      }
+      if (newWindowSize != 0) {
+        batchingCallback.onInserted(windowStart, newWindowSize);
+      }
+    }
+    for (int i = prefixChangeCount; i < changedPositions.length; i++) {
+      batchingCallback.onChanged(changedPositions[i], 1, changePayloads[i]);
+    }
+    batchingCallback.dispatchLastEvent();
+  }
+
+  private static boolean areItemsTheSame(
+      DiffUtilCallbackImpl callback,
+      List<ViewItem> oldItems,
+      List<ViewItem> newItems,
+      int oldPosition,
+      int newPosition) {
+    return oldItems.get(oldPosition) == newItems.get(newPosition)
+        || callback.areItemsTheSame(oldPosition, newPosition);
+  }
+
+  private static boolean areContentsTheSame(
+      DiffUtilCallbackImpl callback,
+      List<ViewItem> oldItems,
+      List<ViewItem> newItems,
+      int oldPosition,
+      int newPosition) {
+    return oldItems.get(oldPosition) == newItems.get(newPosition)
+        || callback.areContentsTheSame(oldPosition, newPosition);
+  }
+
+  private static int[] grow(int[] array) {
+    final int[] newArray = new int[Math.max(4, array.length * 2)];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
+  private static Object[] grow(Object[] array) {
+    final Object[] newArray = new Object[Math.max(4, array.length * 2)];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
+  private static int[] trim(int[] array, int length) {
+    final int[] newArray = new int[length];
+    System.arraycopy(array, 0, newArray, 0, length);
+    return newArray;
+  }
+
+  private static Object[] trim(Object[] array, int length) {
+    final Object[] newArray = new Object[length];
+    System.arraycopy(array, 0, newArray, 0, length);
+    return newArray;
+  }
+
+  /** Shifts the positions of the changes of the window by the size of the prefix. */
+  private static class OffsetListUpdateCallback implements ListUpdateCallback {
+
+    private final ListUpdateCallback callback;
+    private final int offset;
+
+    OffsetListUpdateCallback(ListUpdateCallback callback, int offset) {
+      this.callback = callback;
+      this.offset = offset;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      callback.onInserted(position + offset, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      callback.onRemoved(position + offset, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      callback.onMoved(fromPosition + offset, toPosition + offset);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      callback.onChanged(position + offset, count, payload);
+    }
+  }
+}
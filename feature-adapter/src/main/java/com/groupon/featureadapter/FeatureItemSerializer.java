@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads the models of the items of an {@link AdapterViewTypeDelegate} to and from a
+ * {@link FeatureItemsSnapshot}. See {@link AdapterViewTypeDelegate#getFeatureItemSerializer()}.
+ *
+ * <p>Serializers are called from background threads. The format is up to the serializer, but it
+ * should be compact. When it changes between 2 versions of the app, change {@link #getVersion()}:
+ * the snapshots written with another version are discarded.
+ *
+ * @param <MODEL> the view model of the items.
+ */
+public interface FeatureItemSerializer<MODEL> {
+
+  /**
+   * @param model the model to write.
+   * @param output the output of the snapshot.
+   * @throws IOException if the model can't be written.
+   */
+  void write(MODEL model, DataOutput output) throws IOException;
+
+  /**
+   * @param input the input of the snapshot, positioned on a model written by {@link
+   *     #write(Object, DataOutput)}.
+   * @return the model read.
+   * @throws IOException if the model can't be read, the snapshot is then discarded.
+   */
+  MODEL read(DataInput input) throws IOException;
+
+  /**
+   * @return the version of the format of the serializer, written in the header of the snapshots.
+   *     0 by default.
+   */
+  default int getVersion() {
+    return 0;
+  }
+}
@@ -15,9 +15,9 @@
  */
 package com.groupon.featureadapter;
 
-import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
 
+import android.support.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -25,55 +25,82 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Maintains adapter feature order, item position / ownership WARNING: this class is not thread
- * safe. RxFeatureAdapter guarantees the current state with its behavior.
+ * Maintains adapter feature order, item position / ownership. The items are published as
+ * immutable {@link FeatureItemsVersion}s: the writes must happen on the main thread, but the
+ * current version can be read from any thread. RxFeatureAdapter reads the items of the controllers
+ * from its computation threads.
  *
  * @param <MODEL> the input model of the {@link FeatureController}s and {@link FeaturesAdapter}
  */
 class FeatureItems<MODEL> {
 
-  private final List<FeatureController<MODEL>> featureControllers = new ArrayList<>();
-  private final Map<FeatureController<MODEL>, List<ViewItem>> mapFeatureControllerToItems =
-      new IdentityHashMap<>();
-  private final List<ViewItem> items = new ArrayList<>();
+  private final List<FeatureController<MODEL>> featureControllers;
+  private volatile FeatureItemsVersion version;
 
   FeatureItems(List<FeatureController<MODEL>> featureControllers) {
-    this.featureControllers.addAll(featureControllers);
-    for (FeatureController<MODEL> featureController : this.featureControllers) {
-      mapFeatureControllerToItems.put(featureController, emptyList());
+    this.featureControllers = unmodifiableList(new ArrayList<>(featureControllers));
+    final Map<FeatureController, Integer> mapFeatureControllerToIndex = new IdentityHashMap<>();
+    for (int i = 0; i < this.featureControllers.size(); i++) {
+      mapFeatureControllerToIndex.put(this.featureControllers.get(i), i);
     }
+    version = FeatureItemsVersion.empty(mapFeatureControllerToIndex);
   }
 
   List<FeatureController<MODEL>> getFeatureControllers() {
     return featureControllers;
   }
 
+  FeatureItemsVersion getVersion() {
+    return version;
+  }
+
   ViewItem get(int position) {
-    return items.get(position);
+    return version.get(position);
   }
 
   List<ViewItem> getItems(FeatureController<MODEL> featureController) {
-    return mapFeatureControllerToItems.get(featureController);
+    return version.getItems(featureController);
   }
 
   int size() {
-    return items.size();
+    return version.size();
   }
 
   Iterator<ViewItem> iterator() {
-    return items.iterator();
+    return version.iterator();
   }
 
   int setItemsAndGetOffset(List<ViewItem> newItems, FeatureController<MODEL> featureController) {
-    mapFeatureControllerToItems.put(featureController, unmodifiableList(newItems));
-    items.clear();
-    int offset = 0;
-    for (FeatureController<MODEL> controller : featureControllers) {
-      if (controller == featureController) {
-        offset = items.size();
-      }
-      items.addAll(mapFeatureControllerToItems.get(controller));
-    }
-    return offset;
+    return setItemsAndGetOffset(newItems, null, featureController);
+  }
+
+  /**
+   * Replaces the items of a controller.
+   *
+   * @param newItems the new items of the controller.
+   * @param contentHashes the content hashes of the new items, or null if they were not hashed.
+   * @param featureController the controller of the items.
+   * @return the adapter position of the first item of the controller.
+   */
+  int setItemsAndGetOffset(
+      List<ViewItem> newItems,
+      @Nullable long[] contentHashes,
+      FeatureController<MODEL> featureController) {
+    final FeatureItemsVersion currentVersion = version;
+    final int index = currentVersion.indexOf(featureController);
+    final FeatureItemsVersion newVersion =
+        currentVersion.withSegment(index, unmodifiableList(newItems), contentHashes);
+    version = newVersion;
+    return newVersion.getOffset(featureController);
+  }
+
+  /**
+   * Replaces the items of all the controllers at once, a single version is published.
+   *
+   * @param controllerItems the immutable items of each controller, in the order of the
+   *     controllers.
+   */
+  void setAllItems(List<List<ViewItem>> controllerItems) {
+    version = version.withAllSegments(controllerItems);
   }
 }
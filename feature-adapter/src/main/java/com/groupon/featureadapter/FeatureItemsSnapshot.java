@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.support.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The items of the controllers of a {@link FeaturesAdapter}, that can be persisted to display the
+ * last rendered items as soon as a screen is opened, before the first model is available.
+ *
+ * <ul>
+ *   <li>{@link FeaturesAdapter#takeSnapshot()} captures the items on the main thread, then {@link
+ *       #writeTo(File)} writes them from a background thread.
+ *   <li>{@link #readFrom(File, FeaturesAdapter)} reads them from a background thread on the next
+ *       launch, then {@link FeaturesAdapter#restoreSnapshot(FeatureItemsSnapshot)} installs them
+ *       on the main thread, with a single insertion notification. The first update of the adapter
+ *       is then diffed against the restored items.
+ * </ul>
+ *
+ * The items of a controller are only persisted if all their delegates provide a {@link
+ * FeatureItemSerializer}, see {@link AdapterViewTypeDelegate#getFeatureItemSerializer()}. A
+ * snapshot is only restored in an adapter with the same controllers and delegates as the adapter it
+ * was taken from: the header of the snapshot has the class of the delegate and the version of the
+ * serializer of each view type. A snapshot that is truncated or can't be read is deleted.
+ */
+public final class FeatureItemsSnapshot {
+
+  private static final int MAGIC = 0x46415353; // FASS
+  private static final int VERSION = 2;
+  /** The smallest item, a view type and an empty model. */
+  private static final int MIN_ITEM_SIZE = 4;
+  private static final int NOT_PERSISTED = -1;
+
+  /** The items of each controller, in adapter order, or null if they are not persisted. */
+  private final List<List<ViewItem>> itemsPerController;
+  private final int viewTypeCount;
+  /** The delegate class of each view type, only used to write the snapshot. */
+  private final String[] delegateClassNames;
+  /** The serializer of each view type, only used to write the snapshot. */
+  private final FeatureItemSerializer[] serializers;
+
+  private FeatureItemsSnapshot(
+      List<List<ViewItem>> itemsPerController,
+      int viewTypeCount,
+      String[] delegateClassNames,
+      FeatureItemSerializer[] serializers) {
+    this.itemsPerController = itemsPerController;
+    this.viewTypeCount = viewTypeCount;
+    this.delegateClassNames = delegateClassNames;
+    this.serializers = serializers;
+  }
+
+  static <MODEL> FeatureItemsSnapshot of(FeaturesAdapter<MODEL> adapter, FeatureItems<MODEL> featureItems) {
+    final int viewTypeCount = adapter.getViewTypeCount();
+    final String[] delegateClassNames = new String[viewTypeCount];
+    final FeatureItemSerializer[] serializers = new FeatureItemSerializer[viewTypeCount];
+    for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+      final AdapterViewTypeDelegate delegate = adapter.getAdapterViewTypeDelegateForViewType(viewType);
+      delegateClassNames[viewType] = delegate.getClass().getName();
+      serializers[viewType] = delegate.getFeatureItemSerializer();
+    }
+    final List<List<ViewItem>> itemsPerController = new ArrayList<>();
+    for (FeatureController<MODEL> featureController : featureItems.getFeatureControllers()) {
+      final List<ViewItem> items = featureItems.getItems(featureController);
+      itemsPerController.add(areSerializable(items, serializers) ? items : null);
+    }
+    return new FeatureItemsSnapshot(itemsPerController, viewTypeCount, delegateClassNames, serializers);
+  }
+
+  /**
+   * Writes this snapshot to a file. The file is replaced atomically, a reader never sees a
+   * partially written snapshot. Call it from a background thread.
+   *
+   * @param file the file of the snapshot.
+   * @throws IOException if the snapshot can't be written.
+   */
+  public void writeTo(File file) throws IOException {
+    final File tempFile = new File(file.getPath() + ".tmp");
+    final DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(viewTypeCount);
+      for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+        output.writeUTF(delegateClassNames[viewType]);
+        output.writeInt(getSerializerVersion(serializers[viewType]));
+      }
+      output.writeInt(itemsPerController.size());
+      for (List<ViewItem> items : itemsPerController) {
+        if (items == null) {
+          output.writeInt(NOT_PERSISTED);
+          continue;
+        }
+        output.writeInt(items.size());
+        for (ViewItem item : items) {
+          output.writeInt(item.viewType);
+          //noinspection unchecked
+          serializers[item.viewType].write(item.model, output);
+        }
+      }
+    } finally {
+      output.close();
+    }
+    if (!tempFile.renameTo(file)) {
+      throw new IOException("Could not replace the snapshot " + file);
+    }
+  }
+
+  /**
+   * Reads a snapshot written by {@link #writeTo(File)}, for an adapter. The file is memory mapped.
+   * Call it from a background thread.
+   *
+   * @param file the file of the snapshot.
+   * @param adapter the adapter the snapshot will be restored in.
+   * @return the snapshot, or null if there is no snapshot, if it was taken from an adapter with
+   *     other controllers, delegates or serializer versions, or if it is invalid. An invalid
+   *     snapshot is deleted.
+   * @throws IOException if the file of the snapshot can't be read.
+   */
+  @Nullable
+  public static FeatureItemsSnapshot readFrom(File file, FeaturesAdapter<?> adapter) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    boolean isInvalid = false;
+    final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = randomAccessFile.getChannel();
+      final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        return read(buffer, adapter);
+      } catch (IOException | RuntimeException exception) {
+        // a truncated or corrupted snapshot, or a serializer that can't read its models anymore
+        isInvalid = true;
+        return null;
+      }
+    } finally {
+      randomAccessFile.close();
+      if (isInvalid) {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+      }
+    }
+  }
+
+  @Nullable
+  private static FeatureItemsSnapshot read(ByteBuffer buffer, FeaturesAdapter<?> adapter) throws IOException {
+    final DataInputStream input = new DataInputStream(new ByteBufferInputStream(buffer));
+    if (buffer.remaining() < 16 || input.readInt() != MAGIC || input.readInt() != VERSION) {
+      return null;
+    }
+    final int viewTypeCount = input.readInt();
+    if (viewTypeCount != adapter.getViewTypeCount()) {
+      return null;
+    }
+    for (int viewType = 0; viewType < viewTypeCount; viewType++) {
+      final AdapterViewTypeDelegate delegate = adapter.getAdapterViewTypeDelegateForViewType(viewType);
+      if (!input.readUTF().equals(delegate.getClass().getName())
+          || input.readInt() != getSerializerVersion(delegate.getFeatureItemSerializer())) {
+        return null;
+      }
+    }
+    final int controllerCount = input.readInt();
+    if (controllerCount != adapter.getFeatureControllers().size()) {
+      return null;
+    }
+
+    final List<List<ViewItem>> itemsPerController = new ArrayList<>(controllerCount);
+    for (int i = 0; i < controllerCount; i++) {
+      final int itemCount = input.readInt();
+      if (itemCount == NOT_PERSISTED) {
+        itemsPerController.add(null);
+        continue;
+      }
+      if (itemCount < 0 || itemCount > buffer.remaining() / MIN_ITEM_SIZE) {
+        throw new IOException("Invalid item count " + itemCount);
+      }
+      final List<ViewItem> items = new ArrayList<>(itemCount);
+      for (int j = 0; j < itemCount; j++) {
+        final int viewType = input.readInt();
+        if (viewType < 0 || viewType >= viewTypeCount) {
+          throw new IOException("Invalid view type " + viewType);
+        }
+        final AdapterViewTypeDelegate delegate = adapter.getAdapterViewTypeDelegateForViewType(viewType);
+        final FeatureItemSerializer serializer = delegate.getFeatureItemSerializer();
+        if (serializer == null) {
+          throw new IOException("The view type " + viewType + " has no serializer");
+        }
+        //noinspection unchecked
+        items.add(new ViewItem<>(serializer.read(input), delegate));
+      }
+      itemsPerController.add(items);
+    }
+    return new FeatureItemsSnapshot(itemsPerController, viewTypeCount, null, null);
+  }
+
+  /**
+   * @param controllerIndex the index of a controller in the adapter.
+   * @return the items of the controller, or null if they were not persisted.
+   */
+  @Nullable
+  List<ViewItem> getItems(int controllerIndex) {
+    return itemsPerController.get(controllerIndex);
+  }
+
+  int getControllerCount() {
+    return itemsPerController.size();
+  }
+
+  int getViewTypeCount() {
+    return viewTypeCount;
+  }
+
+  private static int getSerializerVersion(@Nullable FeatureItemSerializer serializer) {
+    return serializer == null ? NOT_PERSISTED : serializer.getVersion();
+  }
+
+  private static boolean areSerializable(List<ViewItem> items, FeatureItemSerializer[] serializers) {
+    for (ViewItem item : items) {
+      if (item.viewType < 0 || item.viewType >= serializers.length || serializers[item.viewType] == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Reads a buffer without copying it. */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      final int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static java.util.Collections.emptyList;
+
+import android.support.annotation.Nullable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable version of the items of a {@link FeaturesAdapter}. The main thread publishes a new
+ * version every time the items of a controller are dispatched, a version never changes once
+ * published: it can be read from any thread without copying or locking, for instance by analytics
+ * or prefetchers.
+ *
+ * <p>The items are kept as one segment per controller. A new version shares the segments of the
+ * controllers that were not updated with the previous version, only the array of segments and
+ * their offsets are copied.
+ */
+public final class FeatureItemsVersion implements Iterable<ViewItem> {
+
+  private final Map<FeatureController, Integer> mapFeatureControllerToIndex;
+  private final List<ViewItem>[] segments;
+  private final long[] segmentVersions;
+  private final long[][] segmentContentHashes;
+  private final int[] offsets;
+  private final int size;
+  private final long version;
+
+  /**
+   * @param mapFeatureControllerToIndex the index of each controller, it must not be modified
+   *     anymore.
+   * @return the first version, where the controllers have no items.
+   */
+  static FeatureItemsVersion empty(Map<FeatureController, Integer> mapFeatureControllerToIndex) {
+    //noinspection unchecked
+    final List<ViewItem>[] segments = new List[mapFeatureControllerToIndex.size()];
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = emptyList();
+    }
+    return new FeatureItemsVersion(
+        mapFeatureControllerToIndex,
+        segments,
+        new long[segments.length],
+        new long[segments.length][],
+        0L);
+  }
+
+  private FeatureItemsVersion(
+      Map<FeatureController, Integer> mapFeatureControllerToIndex,
+      List<ViewItem>[] segments,
+      long[] segmentVersions,
+      long[][] segmentContentHashes,
+      long version) {
+    this.mapFeatureControllerToIndex = mapFeatureControllerToIndex;
+    this.segments = segments;
+    this.segmentVersions = segmentVersions;
+    this.segmentContentHashes = segmentContentHashes;
+    this.version = version;
+    offsets = new int[segments.length];
+    int offset = 0;
+    for (int i = 0; i < segments.length; i++) {
+      offsets[i] = offset;
+      offset += segments[i].size();
+    }
+    size = offset;
+  }
+
+  /**
+   * @param index the index of the updated controller.
+   * @param items the new items of the controller, they must not be modified anymore.
+   * @param contentHashes the content hashes of the new items, or null if they were not hashed.
+   * @return the next version, that shares the other segments with this version.
+   */
+  FeatureItemsVersion withSegment(
+      int index, List<ViewItem> items, @Nullable long[] contentHashes) {
+    final List<ViewItem>[] newSegments = segments.clone();
+    final long[] newSegmentVersions = segmentVersions.clone();
+    final long[][] newSegmentContentHashes = segmentContentHashes.clone();
+    newSegments[index] = items;
+    newSegmentVersions[index]++;
+    newSegmentContentHashes[index] = contentHashes;
+    return new FeatureItemsVersion(
+        mapFeatureControllerToIndex,
+        newSegments,
+        newSegmentVersions,
+        newSegmentContentHashes,
+        version + 1);
+  }
+
+  /**
+   * @param allItems the new items of all the controllers, in the order of the controllers. They
+   *     must not be modified anymore, and are not hashed.
+   * @return the next version.
+   */
+  FeatureItemsVersion withAllSegments(List<List<ViewItem>> allItems) {
+    final List<ViewItem>[] newSegments = segments.clone();
+    final long[] newSegmentVersions = segmentVersions.clone();
+    for (int i = 0; i < newSegments.length; i++) {
+      newSegments[i] = allItems.get(i);
+      newSegmentVersions[i]++;
+    }
+    return new FeatureItemsVersion(
+        mapFeatureControllerToIndex,
+        newSegments,
+        newSegmentVersions,
+        new long[newSegments.length][],
+        version + 1);
+  }
+
+  int indexOf(FeatureController featureController) {
+    return mapFeatureControllerToIndex.get(featureController);
+  }
+
+  /** @return the number of this version, it increases with each dispatch. */
+  public long getVersion() {
+    return version;
+  }
+
+  /** @return the number of items of all the controllers. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param position the adapter position of the item.
+   * @return the item at this position.
+   */
+  public ViewItem get(int position) {
+    final int index = indexOfSegmentAt(position);
+    return segments[index].get(position - offsets[index]);
+  }
+
+  /**
+   * @param position an adapter position.
+   * @return the index of the controller that owns the item at this position.
+   */
+  int indexOfSegmentAt(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Invalid position " + position + ", size is " + size);
+    }
+    // the last segment that starts at or before the position, an empty segment shares its offset
+    // with the next one so it is never selected
+    int low = 0;
+    int high = offsets.length - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (offsets[middle] <= position) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  int getSegmentOffset(int index) {
+    return offsets[index];
+  }
+
+  /**
+   * @param featureController a controller of the adapter.
+   * @return the immutable items of the controller in this version.
+   */
+  public List<ViewItem> getItems(FeatureController featureController) {
+    return segments[indexOf(featureController)];
+  }
+
+  /**
+   * @param featureController a controller of the adapter.
+   * @return the hashes of the contents of the items of the controller in this version, by
+   *     position, or null if they were not hashed. The array must not be modified.
+   */
+  @Nullable
+  long[] getContentHashes(FeatureController featureController) {
+    return segmentContentHashes[indexOf(featureController)];
+  }
+
+  /**
+   * @param featureController a controller of the adapter.
+   * @return the number of times the items of the controller were set. It only changes when the
+   *     items of this controller are dispatched, so the version of the items an update will install
+   *     can be known before it is dispatched.
+   */
+  public long getSegmentVersion(FeatureController featureController) {
+    return segmentVersions[indexOf(featureController)];
+  }
+
+  /**
+   * @param featureController a controller of the adapter.
+   * @return the adapter position of the first item of the controller in this version.
+   */
+  public int getOffset(FeatureController featureController) {
+    return offsets[indexOf(featureController)];
+  }
+
+  @Override
+  public Iterator<ViewItem> iterator() {
+    return new Iterator<ViewItem>() {
+      private int segmentIndex;
+      private int itemIndex;
+
+      @Override
+      public boolean hasNext() {
+        while (segmentIndex < segments.length && itemIndex >= segments[segmentIndex].size()) {
+          segmentIndex++;
+          itemIndex = 0;
+        }
+        return segmentIndex < segments.length;
+      }
+
+      @Override
+      public ViewItem next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return segments[segmentIndex].get(itemIndex++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
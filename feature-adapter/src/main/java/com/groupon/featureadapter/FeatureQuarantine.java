@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Isolates the failures of the features of a {@link FeaturesAdapter}, see {@link
+ * FeaturesAdapter#setFeatureQuarantine(FeatureQuarantine)}. Once installed, the errors thrown by a
+ * {@link FeatureController} when building or diffing its items, and by an {@link
+ * AdapterViewTypeDelegate} when binding a view, are caught and counted instead of breaking the
+ * update of the other features:
+ *
+ * <ul>
+ *   <li>a controller that fails keeps its last good items. After {@code maxControllerFailures}
+ *       consecutive failures, it is quarantined: its items are frozen and it is not asked to build
+ *       items anymore.
+ *   <li>a delegate that fails leaves its view unbound. After {@code maxDelegateFailures}
+ *       consecutive failures, it is quarantined: its views are hidden and it is not asked to bind
+ *       them anymore, so that a delegate failing on every bind does not cost an exception per
+ *       frame. The error is only caught if it is reported, to the {@link OnFeatureErrorListener}
+ *       or to the {@link FeaturesAdapterErrorHandler} of the adapter, it is thrown otherwise.
+ * </ul>
+ *
+ * A quarantine lasts until {@link #release(FeatureController)} or {@link
+ * #release(AdapterViewTypeDelegate)} is called. Its methods can be called from any thread.
+ */
+public class FeatureQuarantine {
+
+  public static final int DEFAULT_MAX_FAILURES = 3;
+
+  /** Reports the errors of the features, to log or monitor them. */
+  public interface OnFeatureErrorListener {
+    /**
+     * @param controller the controller that failed to build or diff its items.
+     * @param throwable the error.
+     * @param isQuarantined true if the controller is quarantined after this error.
+     */
+    void onControllerError(FeatureController controller, Throwable throwable, boolean isQuarantined);
+
+    /**
+     * @param delegate the delegate that failed to bind a view.
+     * @param throwable the error.
+     * @param position the adapter position of the view.
+     * @param isQuarantined true if the delegate is quarantined after this error.
+     */
+    void onDelegateError(AdapterViewTypeDelegate delegate, Throwable throwable, int position, boolean isQuarantined);
+  }
+
+  private final int maxControllerFailures;
+  private final int maxDelegateFailures;
+  /** Consecutive failures, keyed by controller or delegate. */
+  private final Map<Object, Integer> failureCounts = new IdentityHashMap<>();
+  /** Whether {@link #failureCounts} has entries, read without locking on every bind. */
+  private volatile boolean hasFailures;
+  private OnFeatureErrorListener onFeatureErrorListener;
+
+  public FeatureQuarantine() {
+    this(DEFAULT_MAX_FAILURES, DEFAULT_MAX_FAILURES);
+  }
+
+  /**
+   * @param maxControllerFailures the number of consecutive failures after which a controller is
+   *     quarantined.
+   * @param maxDelegateFailures the number of consecutive failures after which a delegate is
+   *     quarantined.
+   */
+  public FeatureQuarantine(int maxControllerFailures, int maxDelegateFailures) {
+    this.maxControllerFailures = maxControllerFailures;
+    this.maxDelegateFailures = maxDelegateFailures;
+  }
+
+  public OnFeatureErrorListener getOnFeatureErrorListener() {
+    return onFeatureErrorListener;
+  }
+
+  public void setOnFeatureErrorListener(OnFeatureErrorListener onFeatureErrorListener) {
+    this.onFeatureErrorListener = onFeatureErrorListener;
+  }
+
+  public boolean isQuarantined(FeatureController controller) {
+    return hasFailures && isQuarantined(controller, maxControllerFailures);
+  }
+
+  public boolean isQuarantined(AdapterViewTypeDelegate delegate) {
+    return hasFailures && isQuarantined(delegate, maxDelegateFailures);
+  }
+
+  /**
+   * Lifts the quarantine of a controller, its items are built again on the next update.
+   *
+   * @param controller a controller.
+   */
+  public void release(FeatureController controller) {
+    onSuccess(controller);
+  }
+
+  /**
+   * Lifts the quarantine of a delegate. Its views are bound again the next time they are bound by
+   * the adapter, for instance after {@code notifyDataSetChanged()}.
+   *
+   * @param delegate a delegate.
+   */
+  public void release(AdapterViewTypeDelegate delegate) {
+    onSuccess(delegate);
+  }
+
+  void onControllerSuccess(FeatureController controller) {
+    onSuccess(controller);
+  }
+
+  void onControllerError(FeatureController controller, Throwable throwable) {
+    final boolean isQuarantined = onFailure(controller, maxControllerFailures);
+    if (onFeatureErrorListener != null) {
+      onFeatureErrorListener.onControllerError(controller, throwable, isQuarantined);
+    }
+  }
+
+  void onDelegateSuccess(AdapterViewTypeDelegate delegate) {
+    onSuccess(delegate);
+  }
+
+  void onDelegateError(AdapterViewTypeDelegate delegate, Throwable throwable, int position) {
+    final boolean isQuarantined = onFailure(delegate, maxDelegateFailures);
+    if (onFeatureErrorListener != null) {
+      onFeatureErrorListener.onDelegateError(delegate, throwable, position, isQuarantined);
+    }
+  }
+
+  private void onSuccess(Object feature) {
+    if (!hasFailures) {
+      return;
+    }
+    synchronized (this) {
+      failureCounts.remove(feature);
+      hasFailures = !failureCounts.isEmpty();
+    }
+  }
+
+  private synchronized boolean onFailure(Object feature, int maxFailures) {
+    final int failureCount = getFailureCount(feature) + 1;
+    failureCounts.put(feature, failureCount);
+    hasFailures = true;
+    return failureCount >= maxFailures;
+  }
+
+  private synchronized boolean isQuarantined(Object feature, int maxFailures) {
+    return getFailureCount(feature) >= maxFailures;
+  }
+
+  private int getFailureCount(Object feature) {
+    final Integer failureCount = failureCounts.get(feature);
+    return failureCount != null ? failureCount : 0;
+  }
+}
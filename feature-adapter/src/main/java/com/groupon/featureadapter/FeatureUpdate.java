@@ -16,20 +16,106 @@
 package com.groupon.featureadapter;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v7.util.DiffUtil.DiffResult;
 import java.util.List;
 
 public class FeatureUpdate {
+  /** The base version of an update that is dispatched without checking its base items. */
+  public static final long UNVERSIONED = -1;
+
   @NonNull public final FeatureController featureController;
   @NonNull public final List<ViewItem> newItems;
-  @NonNull public final DiffResult diffResult;
+  /**
+   * The result of DiffUtil on the whole lists of items, or null if the changes were found without
+   * it.
+   *
+   * @deprecated use {@link #featureDiff} to dispatch the changes, or {@link #getDiffResult()} for
+   *     a result of DiffUtil on the whole lists of items that is never null.
+   */
+  @Deprecated @Nullable public final DiffResult diffResult;
+  /** The changes between the items of the controller and the new items. */
+  @NonNull public final FeatureDiff featureDiff;
+  /**
+   * The {@link FeatureItemsVersion#getSegmentVersion(FeatureController)} of the items the diff was
+   * computed against, or {@link #UNVERSIONED}.
+   */
+  public final long baseVersion;
+  /**
+   * The hashes of the contents of {@link #newItems}, by position, or null if they were not hashed.
+   * They are owned by the update, and installed with its items.
+   */
+  @Nullable final long[] contentHashes;
+  /**
+   * The order of the build of the update among the builds of its controller, or 0 if it is not
+   * ordered. See {@link ViewportBuildScheduler#startBuild(int)}.
+   */
+  final long buildSequence;
 
   public FeatureUpdate(
       @NonNull FeatureController featureController,
       @NonNull List<ViewItem> newItems,
       @NonNull DiffResult diffResult) {
+    this(featureController, newItems, diffResult, UNVERSIONED);
+  }
+
+  /**
+   * @param baseVersion the segment version of the items of the controller the diff was computed
+   *     against. If the items of the controller were dispatched since, the diff is recomputed when
+   *     the update is dispatched.
+   */
+  public FeatureUpdate(
+      @NonNull FeatureController featureController,
+      @NonNull List<ViewItem> newItems,
+      @NonNull DiffResult diffResult,
+      long baseVersion) {
+    this(featureController, newItems, null, FeatureDiff.of(diffResult), baseVersion);
+  }
+
+  FeatureUpdate(
+      @NonNull FeatureController featureController,
+      @NonNull List<ViewItem> newItems,
+      @Nullable long[] contentHashes,
+      @NonNull FeatureDiff featureDiff,
+      long baseVersion) {
+    this(featureController, newItems, contentHashes, featureDiff, baseVersion, 0L);
+  }
+
+  private FeatureUpdate(
+      @NonNull FeatureController featureController,
+      @NonNull List<ViewItem> newItems,
+      @Nullable long[] contentHashes,
+      @NonNull FeatureDiff featureDiff,
+      long baseVersion,
+      long buildSequence) {
     this.featureController = featureController;
     this.newItems = newItems;
-    this.diffResult = diffResult;
+    this.contentHashes = contentHashes;
+    this.diffResult = featureDiff.getWholeDiffResult();
+    this.featureDiff = featureDiff;
+    this.baseVersion = baseVersion;
+    this.buildSequence = buildSequence;
+  }
+
+  /**
+   * @param buildSequence the order of the build of the update among the builds of its controller.
+   * @return a copy of this update, ordered among the builds of its controller.
+   */
+  FeatureUpdate withBuildSequence(long buildSequence) {
+    return new FeatureUpdate(
+        featureController, newItems, contentHashes, featureDiff, baseVersion, buildSequence);
+  }
+
+  /**
+   * Returns the result of DiffUtil on the whole lists of items, like {@link #diffResult} before
+   * the diffs trimmed the unchanged items. If the diff of the update did not compute it, it is
+   * computed on the first call, without {@link DiffBudget}: prefer {@link #featureDiff} to dispatch
+   * the changes.
+   *
+   * @return the result of DiffUtil on the old and the new items of the controller.
+   */
+  @NonNull
+  public DiffResult getDiffResult() {
+    return featureDiff.calculateWholeDiffResult();
   }
 }
@@ -15,20 +15,20 @@
  */
 package com.groupon.featureadapter;
 
-import static android.support.v7.util.DiffUtil.calculateDiff;
-
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
-import android.support.v7.util.DiffUtil.DiffResult;
 import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.ViewHolder;
+import android.view.View;
 import android.view.ViewGroup;
-import java.util.HashMap;
+import com.groupon.featureadapter.impressions.ImpressionTracker;
+import com.groupon.featurecontrol.R;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * An adapter of a {@link RecyclerView} that is based on features. Each feature is described a
@@ -41,9 +41,19 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
 
   private final FeatureItems<MODEL> featureItems;
   private FeaturesAdapterErrorHandler featuresAdapterErrorHandler;
-  private final Map<Integer, AdapterViewTypeDelegate> mapViewTypeToAdapterViewTypeDelegate =
-      new HashMap<>();
-  private final Map<Integer, DiffUtilComparator> mapViewTypeToItemComparator = new HashMap<>();
+  private ImpressionTracker impressionTracker;
+  private FeatureQuarantine featureQuarantine;
+  private DiffBudget diffBudget;
+  private ViewportBuildScheduler viewportBuildScheduler;
+  private MODEL lastModel;
+  private boolean hasLastModel;
+  private boolean isAdoptedModelPending;
+  private boolean hasPagedFeatureControllers;
+  /** The delegates, indexed by view type. */
+  private final List<AdapterViewTypeDelegate> adapterViewTypeDelegates;
+  /** The comparators, indexed by view type, created the first time a view type is diffed. */
+  private final AtomicReferenceArray<DiffUtilComparator> itemComparators;
+  private final DiffUtilComparators itemComparatorProvider;
 
   /**
    * Setup method to install a list of feature controllers into the adapter.
@@ -52,26 +62,88 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
    */
   public FeaturesAdapter(List<FeatureController<MODEL>> featureControllers) {
     featureItems = new FeatureItems<>(featureControllers);
+    adapterViewTypeDelegates = new ArrayList<>();
     registerAdapterViewTypeDelegates(featureItems.getFeatureControllers());
+    itemComparators = new AtomicReferenceArray<>(adapterViewTypeDelegates.size());
+    itemComparatorProvider = this::getItemComparator;
+    setupPagedFeatureControllers();
+  }
+
+  /**
+   * Creates an adapter that shares the delegates and the comparators of its owner, like the nested
+   * adapters of a group: the view types of the delegates are not assigned again, and no comparator
+   * is created.
+   *
+   * @param featureControllers the controllers, all their delegates must be shared delegates.
+   * @param sharedAdapterViewTypeDelegates the delegates, indexed by their view type.
+   * @param sharedItemComparators the comparators of the view types of the delegates.
+   */
+  FeaturesAdapter(
+      List<FeatureController<MODEL>> featureControllers,
+      List<AdapterViewTypeDelegate> sharedAdapterViewTypeDelegates,
+      DiffUtilComparators sharedItemComparators) {
+    featureItems = new FeatureItems<>(featureControllers);
+    adapterViewTypeDelegates = sharedAdapterViewTypeDelegates;
+    itemComparators = null;
+    itemComparatorProvider = sharedItemComparators;
+    setupPagedFeatureControllers();
+  }
+
+  private void setupPagedFeatureControllers() {
+    for (FeatureController<MODEL> featureController : featureItems.getFeatureControllers()) {
+      if (featureController instanceof PagedFeatureController) {
+        hasPagedFeatureControllers = true;
+        ((PagedFeatureController) featureController)
+            .setPagedItemsDispatcher(this::dispatchPagedItems);
+      }
+    }
   }
 
   @Override
   public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-    return mapViewTypeToAdapterViewTypeDelegate.get(viewType).createViewHolder(parent);
+    return adapterViewTypeDelegates.get(viewType).createViewHolder(parent);
   }
 
   @Override
   public void onBindViewHolder(ViewHolder holder, int position) {
     final ViewItem item = featureItems.get(position);
+    final AdapterViewTypeDelegate adapterViewTypeDelegate =
+        adapterViewTypeDelegates.get(item.viewType);
+    AdapterViewTypeDelegate.setBoundModel(holder, item.model);
+    if (impressionTracker != null && impressionTracker.isAttached(holder)) {
+      //noinspection unchecked
+      impressionTracker.onAttachedViewRebound(
+          holder, adapterViewTypeDelegate.getImpressionKey(item.model));
+    }
+    if (hasPagedFeatureControllers) {
+      onPagedItemBound(position);
+    }
+    if (featureQuarantine != null) {
+      bindViewHolderInQuarantine(adapterViewTypeDelegate, holder, item, position, null);
+      return;
+    }
     //noinspection unchecked
-    mapViewTypeToAdapterViewTypeDelegate.get(item.viewType).bindViewHolder(holder, item.model);
+    adapterViewTypeDelegate.bindViewHolder(holder, item.model);
   }
 
   @Override
   public void onBindViewHolder(ViewHolder holder, int position, List<Object> payloads) {
     final ViewItem item = featureItems.get(position);
     AdapterViewTypeDelegate adapterViewTypeDelegate =
-        mapViewTypeToAdapterViewTypeDelegate.get(item.viewType);
+        adapterViewTypeDelegates.get(item.viewType);
+    AdapterViewTypeDelegate.setBoundModel(holder, item.model);
+    if (impressionTracker != null && impressionTracker.isAttached(holder)) {
+      //noinspection unchecked
+      impressionTracker.onAttachedViewRebound(
+          holder, adapterViewTypeDelegate.getImpressionKey(item.model));
+    }
+    if (hasPagedFeatureControllers) {
+      onPagedItemBound(position);
+    }
+    if (featureQuarantine != null) {
+      bindViewHolderInQuarantine(adapterViewTypeDelegate, holder, item, position, payloads);
+      return;
+    }
 
     try {
       //noinspection unchecked
@@ -86,6 +158,65 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
     }
   }
 
+  private void bindViewHolderInQuarantine(
+      AdapterViewTypeDelegate adapterViewTypeDelegate,
+      ViewHolder holder,
+      ViewItem item,
+      int position,
+      @Nullable List<Object> payloads) {
+    if (featureQuarantine.isQuarantined(adapterViewTypeDelegate)) {
+      // do not even try to bind, hide the view instead of showing the content of another item
+      setHiddenByQuarantine(holder, true);
+      return;
+    }
+    setHiddenByQuarantine(holder, false);
+
+    try {
+      //noinspection unchecked
+      if (payloads == null) {
+        adapterViewTypeDelegate.bindViewHolder(holder, item.model);
+      } else {
+        adapterViewTypeDelegate.bindViewHolder(holder, item.model, payloads);
+      }
+      featureQuarantine.onDelegateSuccess(adapterViewTypeDelegate);
+
+    } catch (RuntimeException exception) {
+      featureQuarantine.onDelegateError(adapterViewTypeDelegate, exception, position);
+      if (featuresAdapterErrorHandler != null) {
+        featuresAdapterErrorHandler.onBindViewHolderError(exception, position);
+      } else if (featureQuarantine.getOnFeatureErrorListener() == null) {
+        // nobody would know about the error
+        throw exception;
+      }
+    }
+  }
+
+  private void onPagedItemBound(int position) {
+    final FeatureItemsVersion version = featureItems.getVersion();
+    final int index = version.indexOfSegmentAt(position);
+    final FeatureController<MODEL> featureController =
+        featureItems.getFeatureControllers().get(index);
+    if (featureController instanceof PagedFeatureController) {
+      ((PagedFeatureController) featureController)
+          .onItemBound(position - version.getSegmentOffset(index));
+    }
+  }
+
+  private ListUpdateCallback dispatchPagedItems(
+      FeatureController featureController, List<ViewItem> items) {
+    //noinspection unchecked
+    final int offset = featureItems.setItemsAndGetOffset(items, featureController);
+    return new ListUpdateCallbackImpl(this, offset);
+  }
+
+  private static void setHiddenByQuarantine(ViewHolder holder, boolean isHidden) {
+    final boolean wasHidden = holder.itemView.getTag(R.id.feature_adapter_quarantined) != null;
+    if (isHidden != wasHidden) {
+      holder.itemView.setTag(R.id.feature_adapter_quarantined, isHidden ? Boolean.TRUE : null);
+      holder.itemView.setVisibility(isHidden ? View.INVISIBLE : View.VISIBLE);
+    }
+  }
+
   @Override
   public int getItemCount() {
     return featureItems.size();
@@ -98,20 +229,38 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
 
   @Override
   public void onViewAttachedToWindow(ViewHolder holder) {
+    final AdapterViewTypeDelegate adapterViewTypeDelegate =
+        adapterViewTypeDelegates.get(holder.getItemViewType());
     //noinspection unchecked
-    mapViewTypeToAdapterViewTypeDelegate.get(holder.getItemViewType()).onAttachToWindow(holder);
+    adapterViewTypeDelegate.onAttachToWindow(holder);
+    if (impressionTracker != null) {
+      final Object model = holder.itemView.getTag(R.id.feature_adapter_bound_model);
+      //noinspection unchecked
+      impressionTracker.onViewAttached(
+          holder, model == null ? null : adapterViewTypeDelegate.getImpressionKey(model));
+    }
+    if (viewportBuildScheduler != null) {
+      viewportBuildScheduler.onViewAttached(holder);
+    }
   }
 
   @Override
   public void onViewDetachedFromWindow(ViewHolder holder) {
     //noinspection unchecked
-    mapViewTypeToAdapterViewTypeDelegate.get(holder.getItemViewType()).onDetachToWindow(holder);
+    adapterViewTypeDelegates.get(holder.getItemViewType()).onDetachToWindow(holder);
+    if (impressionTracker != null) {
+      impressionTracker.onViewDetached(holder);
+    }
+    if (viewportBuildScheduler != null) {
+      viewportBuildScheduler.onViewDetached(holder);
+    }
   }
 
   @Override
   public void onViewRecycled(ViewHolder holder) {
     //noinspection unchecked
-    mapViewTypeToAdapterViewTypeDelegate.get(holder.getItemViewType()).unbindViewHolder(holder);
+    adapterViewTypeDelegates.get(holder.getItemViewType()).unbindViewHolder(holder);
+    AdapterViewTypeDelegate.setBoundModel(holder, null);
   }
 
   /**
@@ -122,9 +271,30 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
    */
   @SuppressWarnings("WeakerAccess")
   public void updateFeatureItems(MODEL model) {
+    if (isAdoptedModel(model)) {
+      return;
+    }
     for (FeatureController<MODEL> featureController : featureItems.getFeatureControllers()) {
       dispatchFeatureUpdate(toFeatureUpdate(featureController, model));
     }
+    setLastModel(model);
+  }
+
+  /* Visible for Rx module. */
+  void setLastModel(MODEL model) {
+    lastModel = model;
+    hasLastModel = true;
+  }
+
+  /* Visible for Rx module. */
+  boolean isAdoptedModel(MODEL model) {
+    if (!isAdoptedModelPending) {
+      return false;
+    }
+    // only the first model after the adoption can be skipped, it is usually the same state
+    // re-emitted by the store to the recreated Activity
+    isAdoptedModelPending = false;
+    return model == lastModel || (model != null && model.equals(lastModel));
   }
 
   @VisibleForTesting void validateNewViewItems(FeatureController<MODEL> controller, List<ViewItem> viewItems) {
@@ -143,38 +313,241 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
     }
   }
 
+  /**
+   * Hashes the contents of the items whose comparator is a {@link ContentHashComparator}.
+   *
+   * @return the hashes of the items by position, or null if no comparator hashes its items.
+   */
+  @Nullable
+  private long[] hashContents(List<ViewItem> viewItems) {
+    long[] contentHashes = null;
+    for (int i = 0; i < viewItems.size(); i++) {
+      final ViewItem viewItem = viewItems.get(i);
+      final DiffUtilComparator comparator = itemComparatorProvider.get(viewItem.viewType);
+      if (comparator instanceof ContentHashComparator) {
+        if (contentHashes == null) {
+          contentHashes = new long[viewItems.size()];
+        }
+        // noinspection unchecked
+        contentHashes[i] = ((ContentHashComparator) comparator).getContentHash(viewItem.model);
+      }
+    }
+    return contentHashes;
+  }
+
   /* Visible for Rx module. */
   @Nullable
   FeatureUpdate toFeatureUpdate(FeatureController<MODEL> featureController, MODEL model) {
-    final List<ViewItem> oldItems = featureItems.getItems(featureController);
+    return toFeatureUpdate(featureController, model, null);
+  }
+
+  /**
+   * Builds the items of a controller and diffs them against the items of a pending update, an
+   * update that was computed but may not be dispatched yet. If the pending update was already
+   * dispatched, the items are diffed against the current items. Visible for Rx module.
+   */
+  @Nullable
+  FeatureUpdate toFeatureUpdate(
+      FeatureController<MODEL> featureController,
+      MODEL model,
+      @Nullable FeatureUpdate pendingFeatureUpdate) {
+    if (viewportBuildScheduler != null && !(featureController instanceof PagedFeatureController)) {
+      final FeatureItemsVersion version = featureItems.getVersion();
+      // a deferred build of the controller may be dispatched before or after this update
+      final long buildSequence =
+          viewportBuildScheduler.startBuild(version.indexOf(featureController));
+      final FeatureUpdate featureUpdate;
+      if (viewportBuildScheduler.deferBuild(featureController, version, model)) {
+        featureUpdate =
+            pendingFeatureUpdate == null && version.getSegmentVersion(featureController) == 0
+                ? toPlaceholderFeatureUpdate(featureController, model, version)
+                : null;
+      } else {
+        featureUpdate = buildFeatureUpdate(featureController, model, pendingFeatureUpdate);
+      }
+      return featureUpdate == null ? null : featureUpdate.withBuildSequence(buildSequence);
+    }
+    return buildFeatureUpdate(featureController, model, pendingFeatureUpdate);
+  }
+
+  /** Builds the items of a controller, and isolates its errors if there is a quarantine. */
+  @Nullable
+  private FeatureUpdate buildFeatureUpdate(
+      FeatureController<MODEL> featureController,
+      MODEL model,
+      @Nullable FeatureUpdate pendingFeatureUpdate) {
+    if (featureQuarantine == null) {
+      return computeFeatureUpdate(featureController, model, pendingFeatureUpdate);
+    }
+    if (featureQuarantine.isQuarantined(featureController)) {
+      // the items of the controller are frozen
+      return null;
+    }
+    try {
+      final FeatureUpdate featureUpdate =
+          computeFeatureUpdate(featureController, model, pendingFeatureUpdate);
+      featureQuarantine.onControllerSuccess(featureController);
+      return featureUpdate;
+    } catch (RuntimeException exception) {
+      // keep the last good items of the controller, and let the other controllers update
+      featureQuarantine.onControllerError(featureController, exception);
+      return null;
+    }
+  }
+
+  /**
+   * Installs the placeholder items of a deferred controller that has no items yet, the first
+   * deferred update of the controller is the only one to install them.
+   */
+  @Nullable
+  private FeatureUpdate toPlaceholderFeatureUpdate(
+      FeatureController<MODEL> featureController, MODEL model, FeatureItemsVersion version) {
+    final List<ViewItem> placeholderItems = featureController.buildPlaceholderItems(model);
+    if (placeholderItems == null || placeholderItems.isEmpty()) {
+      return null;
+    }
+    validateNewViewItems(featureController, placeholderItems);
+    return diffFeatureItems(
+        featureController,
+        version.getItems(featureController),
+        version.getContentHashes(featureController),
+        0L,
+        placeholderItems,
+        null);
+  }
+
+  /**
+   * Builds a controller whose build was deferred on the executor of the scheduler, and dispatches
+   * its update on the main thread. Visible for Rx module, which builds it on its own schedulers.
+   */
+  void buildDeferredFeatureItems(FeatureController featureController, Object model) {
+    viewportBuildScheduler.execute(
+        () -> {
+          final FeatureUpdate featureUpdate = toDeferredFeatureUpdate(featureController, model);
+          if (featureUpdate != null) {
+            viewportBuildScheduler.post(() -> dispatchFeatureUpdate(featureUpdate));
+          }
+        });
+  }
+
+  /** Builds a controller whose build was deferred, on any thread. Visible for Rx module. */
+  @Nullable
+  FeatureUpdate toDeferredFeatureUpdate(FeatureController featureController, Object model) {
+    final long buildSequence =
+        viewportBuildScheduler.startBuild(featureItems.getVersion().indexOf(featureController));
+    //noinspection unchecked
+    final FeatureUpdate featureUpdate = buildFeatureUpdate(featureController, (MODEL) model, null);
+    return featureUpdate == null ? null : featureUpdate.withBuildSequence(buildSequence);
+  }
+
+  @Nullable
+  private FeatureUpdate computeFeatureUpdate(
+      FeatureController<MODEL> featureController,
+      MODEL model,
+      @Nullable FeatureUpdate pendingFeatureUpdate) {
+    // a single read of the version, the items and their version must match
+    final FeatureItemsVersion version = featureItems.getVersion();
     final List<ViewItem> newItems = featureController.buildItems(model);
     if (newItems == null) {
       return null;
     }
     validateNewViewItems(featureController, newItems);
-    final DiffUtilCallbackImpl callback =
-        new DiffUtilCallbackImpl(mapViewTypeToItemComparator, oldItems, newItems);
-    final DiffResult diffResult = calculateDiff(callback, false);
-    return new FeatureUpdate(featureController, newItems, diffResult);
+    final long[] contentHashes = hashContents(newItems);
+    final long segmentVersion = version.getSegmentVersion(featureController);
+    if (pendingFeatureUpdate != null
+        && pendingFeatureUpdate.baseVersion != FeatureUpdate.UNVERSIONED
+        && pendingFeatureUpdate.baseVersion + 1 > segmentVersion) {
+      // the pending update is not dispatched yet, diff against the items it will install
+      return diffFeatureItems(
+          featureController,
+          pendingFeatureUpdate.newItems,
+          pendingFeatureUpdate.contentHashes,
+          pendingFeatureUpdate.baseVersion + 1,
+          newItems,
+          contentHashes);
+    }
+    return diffFeatureItems(
+        featureController,
+        version.getItems(featureController),
+        version.getContentHashes(featureController),
+        segmentVersion,
+        newItems,
+        contentHashes);
+  }
+
+  private FeatureUpdate diffFeatureItems(
+      FeatureController<MODEL> featureController,
+      List<ViewItem> oldItems,
+      @Nullable long[] oldContentHashes,
+      long baseVersion,
+      List<ViewItem> newItems,
+      @Nullable long[] newContentHashes) {
+    final FeatureDiff featureDiff =
+        FeatureDiff.calculate(
+            itemComparatorProvider,
+            diffBudget,
+            featureController,
+            oldItems,
+            oldContentHashes,
+            newItems,
+            newContentHashes);
+    return new FeatureUpdate(
+        featureController, newItems, newContentHashes, featureDiff, baseVersion);
   }
 
   /* Visible for Rx module. */
   List<FeatureUpdate> dispatchFeatureUpdates(@NonNull List<FeatureUpdate> featureUpdates) {
-    for (FeatureUpdate featureUpdate : featureUpdates) {
-      dispatchFeatureUpdate(featureUpdate);
+    List<FeatureUpdate> dispatchedFeatureUpdates = featureUpdates;
+    for (int i = 0; i < featureUpdates.size(); i++) {
+      final FeatureUpdate featureUpdate = featureUpdates.get(i);
+      final FeatureUpdate dispatchedFeatureUpdate = dispatchFeatureUpdate(featureUpdate);
+      if (dispatchedFeatureUpdate != featureUpdate) {
+        // the update was re-diffed or dropped, report what was actually dispatched
+        if (dispatchedFeatureUpdates == featureUpdates) {
+          dispatchedFeatureUpdates = new ArrayList<>(featureUpdates.subList(0, i));
+        }
+        if (dispatchedFeatureUpdate != null) {
+          dispatchedFeatureUpdates.add(dispatchedFeatureUpdate);
+        }
+      } else if (dispatchedFeatureUpdates != featureUpdates) {
+        dispatchedFeatureUpdates.add(featureUpdate);
+      }
     }
-    return featureUpdates;
+    return dispatchedFeatureUpdates;
   }
 
   /* Visible for Rx module. */
+  @Nullable
   FeatureUpdate dispatchFeatureUpdate(@Nullable FeatureUpdate featureUpdate) {
     if (featureUpdate == null) {
       return null;
     }
+    final FeatureItemsVersion version = featureItems.getVersion();
+    if (featureUpdate.buildSequence != 0
+        && !viewportBuildScheduler.onBuildDispatched(
+            version.indexOf(featureUpdate.featureController), featureUpdate.buildSequence)) {
+      // the items of a more recent build of the controller are already dispatched
+      return null;
+    }
+    if (featureUpdate.baseVersion != FeatureUpdate.UNVERSIONED
+        && featureUpdate.baseVersion != version.getSegmentVersion(featureUpdate.featureController)) {
+      // the items of the controller were dispatched since the diff was computed, it does not
+      // describe the items on screen anymore: diff the new items against the current ones
+      //noinspection unchecked
+      featureUpdate =
+          diffFeatureItems(
+              featureUpdate.featureController,
+              version.getItems(featureUpdate.featureController),
+              version.getContentHashes(featureUpdate.featureController),
+              version.getSegmentVersion(featureUpdate.featureController),
+              featureUpdate.newItems,
+              featureUpdate.contentHashes);
+    }
     // noinspection unchecked
     final int offset =
-        featureItems.setItemsAndGetOffset(featureUpdate.newItems, featureUpdate.featureController);
-    featureUpdate.diffResult.dispatchUpdatesTo(new ListUpdateCallbackImpl(this, offset));
+        featureItems.setItemsAndGetOffset(
+            featureUpdate.newItems, featureUpdate.contentHashes, featureUpdate.featureController);
+    featureUpdate.featureDiff.dispatchUpdatesTo(new ListUpdateCallbackImpl(this, offset));
     return featureUpdate;
   }
 
@@ -183,6 +556,119 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
     return featureItems.getFeatureControllers();
   }
 
+  /**
+   * Returns the current version of the items of the adapter. The version is immutable and can be
+   * read from any thread, the adapter publishes a new version every time it dispatches an update.
+   *
+   * @return the current version of the items.
+   */
+  public FeatureItemsVersion getFeatureItemsVersion() {
+    return featureItems.getVersion();
+  }
+
+  int getViewTypeCount() {
+    return adapterViewTypeDelegates.size();
+  }
+
+  /**
+   * Captures the current items of the controllers, to persist them with {@link
+   * FeatureItemsSnapshot#writeTo(java.io.File)}.
+   *
+   * @return a snapshot of the current items.
+   */
+  public FeatureItemsSnapshot takeSnapshot() {
+    return FeatureItemsSnapshot.of(this, featureItems);
+  }
+
+  /**
+   * Installs the items of a snapshot read by {@link FeatureItemsSnapshot#readFrom(java.io.File,
+   * FeaturesAdapter)}, and notifies their insertion at once. The snapshot is only restored if the
+   * adapter has no items yet, the next updates are diffed against the restored items.
+   *
+   * @param snapshot the snapshot to restore.
+   * @return true if the snapshot was restored.
+   */
+  public boolean restoreSnapshot(FeatureItemsSnapshot snapshot) {
+    final List<FeatureController<MODEL>> featureControllers = featureItems.getFeatureControllers();
+    if (featureItems.size() != 0
+        || snapshot.getControllerCount() != featureControllers.size()
+        || snapshot.getViewTypeCount() != getViewTypeCount()) {
+      return false;
+    }
+    for (int i = 0; i < featureControllers.size(); i++) {
+      final List<ViewItem> items = snapshot.getItems(i);
+      if (items != null) {
+        featureItems.setItemsAndGetOffset(items, featureControllers.get(i));
+      }
+    }
+    if (featureItems.size() != 0) {
+      notifyItemRangeInserted(0, featureItems.size());
+    }
+    return true;
+  }
+
+  /**
+   * Captures the items of the controllers and the last model they were built from, to be adopted
+   * by the adapter of a recreated Activity with {@link #adoptState(FeaturesAdapterState)}. The
+   * items are not copied, they are already immutable.
+   *
+   * @return the state to retain across the configuration change.
+   */
+  public FeaturesAdapterState<MODEL> retainState() {
+    final List<FeatureController<MODEL>> featureControllers = featureItems.getFeatureControllers();
+    final List<List<ViewItem>> controllerItems = new ArrayList<>(featureControllers.size());
+    for (FeatureController<MODEL> featureController : featureControllers) {
+      controllerItems.add(featureItems.getItems(featureController));
+    }
+    return new FeaturesAdapterState<>(
+        controllerItems, getControllerClasses(), getDelegateClasses(), lastModel, hasLastModel);
+  }
+
+  /**
+   * Installs the items of a retained state, and notifies their insertion at once. The controllers
+   * do not rebuild their items: if the first model received after the adoption is the retained
+   * model, it is skipped, and the next models are diffed against the adopted items. The state is
+   * only adopted if the adapter has no items yet, and if its controllers and delegates are of the
+   * same classes, in the same order, as the ones of the adapter that retained it.
+   *
+   * @param state the state retained from the adapter of the previous Activity.
+   * @return true if the state was adopted.
+   */
+  public boolean adoptState(FeaturesAdapterState<MODEL> state) {
+    if (featureItems.size() != 0
+        || !state.getControllerClasses().equals(getControllerClasses())
+        || !state.getDelegateClasses().equals(getDelegateClasses())) {
+      return false;
+    }
+    featureItems.setAllItems(state.getControllerItems());
+    if (state.hasModel()) {
+      setLastModel(state.getModel());
+      isAdoptedModelPending = true;
+    }
+    if (featureItems.size() != 0) {
+      notifyItemRangeInserted(0, featureItems.size());
+    }
+    return true;
+  }
+
+  private List<Class<?>> getControllerClasses() {
+    final List<FeatureController<MODEL>> featureControllers = featureItems.getFeatureControllers();
+    final List<Class<?>> controllerClasses = new ArrayList<>(featureControllers.size());
+    for (FeatureController<MODEL> featureController : featureControllers) {
+      controllerClasses.add(featureController.getClass());
+    }
+    return controllerClasses;
+  }
+
+  /** @return the classes of the delegates, indexed by view type. */
+  private List<Class<?>> getDelegateClasses() {
+    final List<Class<?>> delegateClasses = new ArrayList<>(adapterViewTypeDelegates.size());
+    for (AdapterViewTypeDelegate delegate : adapterViewTypeDelegates) {
+      delegateClasses.add(delegate.getClass());
+    }
+    return delegateClasses;
+  }
+
   /**
    * Returns the position of the first view item for a given view type
    *
@@ -204,20 +690,37 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
     return -1;
   }
 
+  /**
+   * Assigns the view types of the delegates, in the order of the controllers. The comparators of
+   * the delegates are not created yet, see {@link #getItemComparator(int)}.
+   */
   private void registerAdapterViewTypeDelegates(List<FeatureController<MODEL>> featureControllers) {
     for (FeatureController<MODEL> featureController : featureControllers) {
-      for (AdapterViewTypeDelegate delegate : featureController.getAdapterViewTypeDelegates()) {
+      for (AdapterViewTypeDelegate delegate :
+          featureController.getCachedAdapterViewTypeDelegates()) {
         // assign unique view type
-        delegate.setViewType(mapViewTypeToAdapterViewTypeDelegate.size());
+        delegate.setViewType(adapterViewTypeDelegates.size());
         // register delegate
-        mapViewTypeToAdapterViewTypeDelegate.put(delegate.getViewType(), delegate);
-        // register item comparator
-        mapViewTypeToItemComparator.put(
-            delegate.getViewType(), delegate.createDiffUtilComparator());
+        adapterViewTypeDelegates.add(delegate);
       }
     }
   }
 
+  /**
+   * Returns the comparator of a view type, and creates it the first time. It can be called from
+   * the threads the diffs are computed on: if 2 threads create the comparator at the same time,
+   * only one of them is kept.
+   */
+  private DiffUtilComparator getItemComparator(int viewType) {
+    final DiffUtilComparator comparator = itemComparators.get(viewType);
+    if (comparator != null) {
+      return comparator;
+    }
+    itemComparators.compareAndSet(
+        viewType, null, adapterViewTypeDelegates.get(viewType).createDiffUtilComparator());
+    return itemComparators.get(viewType);
+  }
+
   public FeaturesAdapterErrorHandler getFeaturesAdapterErrorHandler() {
     return featuresAdapterErrorHandler;
   }
@@ -227,8 +730,74 @@ public class FeaturesAdapter<MODEL> extends RecyclerView.Adapter<ViewHolder> {
     this.featuresAdapterErrorHandler = featuresAdapterErrorHandler;
   }
 
+  public FeatureQuarantine getFeatureQuarantine() {
+    return featureQuarantine;
+  }
+
+  /**
+   * Installs an isolation layer for the errors of the controllers and delegates of this adapter.
+   * Without it, these errors are thrown, except the bind errors handled by the {@link
+   * FeaturesAdapterErrorHandler}. With it, the bind errors are still thrown, after being counted,
+   * if there is neither a {@link FeaturesAdapterErrorHandler} nor a {@link
+   * FeatureQuarantine.OnFeatureErrorListener}.
+   *
+   * @param featureQuarantine the quarantine, or null to throw the errors.
+   */
+  public void setFeatureQuarantine(FeatureQuarantine featureQuarantine) {
+    this.featureQuarantine = featureQuarantine;
+  }
+
+  public DiffBudget getDiffBudget() {
+    return diffBudget;
+  }
+
+  /**
+   * Installs a budget for the diffs of the controllers of this adapter. A diff that exceeds its
+   * budget is aborted, and the changed items of the controller are dispatched as a range change.
+   *
+   * @param diffBudget the budget, or null to let the diffs run until they complete.
+   */
+  public void setDiffBudget(DiffBudget diffBudget) {
+    this.diffBudget = diffBudget;
+  }
+
+  public ViewportBuildScheduler getViewportBuildScheduler() {
+    return viewportBuildScheduler;
+  }
+
+  /**
+   * Installs a scheduler that defers the build of the controllers far from the viewport. It must be
+   * installed before the first model, and in this adapter only.
+   *
+   * @param viewportBuildScheduler the scheduler.
+   */
+  public void setViewportBuildScheduler(ViewportBuildScheduler viewportBuildScheduler) {
+    viewportBuildScheduler.install(
+        featureItems.getFeatureControllers(),
+        featureItems::getVersion,
+        this::buildDeferredFeatureItems);
+    this.viewportBuildScheduler = viewportBuildScheduler;
+  }
+
+  public ImpressionTracker getImpressionTracker() {
+    return impressionTracker;
+  }
+
+  /**
+   * Installs a tracker of the impressions of the items of this adapter. Only the items whose
+   * delegate returns a key from {@link AdapterViewTypeDelegate#getImpressionKey(Object)} are
+   * tracked.
+   *
+   * @param impressionTracker the tracker, or null to stop tracking impressions.
+   */
+  public void setImpressionTracker(ImpressionTracker impressionTracker) {
+    this.impressionTracker = impressionTracker;
+  }
+
   public AdapterViewTypeDelegate getAdapterViewTypeDelegateForViewType(int viewType) {
-    return mapViewTypeToAdapterViewTypeDelegate.get(viewType);
+    return viewType >= 0 && viewType < adapterViewTypeDelegates.size()
+        ? adapterViewTypeDelegates.get(viewType)
+        : null;
   }
 
   /**
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import java.util.List;
+
+/**
+ * The computed items of a {@link FeaturesAdapter} and the last model they were built from,
+ * retained across a configuration change. It is returned by {@link
+ * FeaturesAdapter#retainState()}, kept for instance with {@code
+ * onRetainCustomNonConfigurationInstance()}, and adopted by the adapter of the recreated Activity
+ * with {@link FeaturesAdapter#adoptState(FeaturesAdapterState)}.
+ *
+ * <p>The items are matched to the controllers of the new adapter by their index, and the view types
+ * by their registration order: the new adapter must be built with the same list of controllers
+ * and delegates, which is checked by comparing their classes. The state does not retain the controllers themselves, only their items: the
+ * controllers of the new adapter are not called until the model changes, so they should not rely
+ * on their first build to set up decorations or animators.
+ *
+ * @param <MODEL> the input model of the {@link FeatureController}s.
+ */
+public final class FeaturesAdapterState<MODEL> {
+
+  private final List<List<ViewItem>> controllerItems;
+  private final List<Class<?>> controllerClasses;
+  private final List<Class<?>> delegateClasses;
+  private final MODEL model;
+  private final boolean hasModel;
+
+  FeaturesAdapterState(
+      List<List<ViewItem>> controllerItems,
+      List<Class<?>> controllerClasses,
+      List<Class<?>> delegateClasses,
+      MODEL model,
+      boolean hasModel) {
+    this.controllerItems = controllerItems;
+    this.controllerClasses = controllerClasses;
+    this.delegateClasses = delegateClasses;
+    this.model = model;
+    this.hasModel = hasModel;
+  }
+
+  List<Class<?>> getControllerClasses() {
+    return controllerClasses;
+  }
+
+  /** @return the classes of the delegates, indexed by view type. */
+  List<Class<?>> getDelegateClasses() {
+    return delegateClasses;
+  }
+
+  List<List<ViewItem>> getControllerItems() {
+    return controllerItems;
+  }
+
+  /** @return the last model the items were built from, if {@link #hasModel()}. */
+  public MODEL getModel() {
+    return model;
+  }
+
+  /** @return true if the items were built from a model, false if no model was received yet. */
+  public boolean hasModel() {
+    return hasModel;
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
+import static java.util.Collections.unmodifiableList;
+
+import android.support.v7.util.ListUpdateCallback;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A {@link FeatureController} of a long, paginated feed. The items are not built from the model,
+ * they are loaded page by page: the controller keeps the loaded pages, and publishes each new page
+ * to the adapter as a range insertion, without diffing the items that were already loaded.
+ *
+ * <p>When an item is bound within {@code loadAheadDistance} of the end (or of the start) of the
+ * feed, {@link #onLoadNextPage()} (or {@link #onLoadPreviousPage()}) is called. The subclass loads
+ * the page asynchronously and delivers it on the main thread with {@link #appendPage(List,
+ * boolean)} (or {@link #prependPage(List, boolean)}). While more pages can be loaded, the feed
+ * ends with placeholder rows created by {@link #createPlaceholderItem()}, they are replaced by the
+ * items of the next page.
+ *
+ * <p>All the methods of this class must be called on the main thread. {@link #buildItems(Object)}
+ * never changes the items: to replace the feed, for instance when the query of the model changes,
+ * call {@link #reset(boolean, boolean)}.
+ *
+ * @param <MODEL> the input model of the {@link FeaturesAdapter}.
+ */
+public abstract class PagedFeatureController<MODEL> extends FeatureController<MODEL> {
+
+  private final int loadAheadDistance;
+  private final int placeholderCount;
+  private final List<List<ViewItem>> pages = new ArrayList<>();
+  private PagedItemsDispatcher pagedItemsDispatcher;
+  private List<ViewItem> items = emptyList();
+  private List<ViewItem> placeholders;
+  private boolean hasNextPage = true;
+  private boolean hasPreviousPage;
+  private boolean isLoadingNextPage;
+  private boolean isLoadingPreviousPage;
+
+  /**
+   * @param loadAheadDistance the number of items before the end, or the start, of the feed whose
+   *     binding triggers the load of the next, or previous, page.
+   * @param placeholderCount the number of placeholder rows at the end, or the start, of the feed
+   *     while a page can be loaded. Only used if {@link #createPlaceholderItem()} returns an item.
+   */
+  protected PagedFeatureController(int loadAheadDistance, int placeholderCount) {
+    this.loadAheadDistance = loadAheadDistance;
+    this.placeholderCount = placeholderCount;
+  }
+
+  /**
+   * Starts loading the page after the last loaded page. The page must be delivered later, not
+   * synchronously, with {@link #appendPage(List, boolean)}, or the load must be reported with
+   * {@link #onPageLoadFailed()}.
+   */
+  protected abstract void onLoadNextPage();
+
+  /**
+   * Starts loading the page before the first loaded page, see {@link #onLoadNextPage()}. It is
+   * only called once {@link #prependPage(List, boolean)} or {@link #reset(boolean, boolean)}
+   * declared a previous page. By default, it does nothing.
+   */
+  protected void onLoadPreviousPage() {}
+
+  /**
+   * Creates the item of the placeholder rows, its delegate must be one of the delegates of the
+   * controller. The same item is used for all the rows. By default, it returns null and the feed
+   * has no placeholder.
+   *
+   * @return the placeholder item, or null.
+   */
+  protected ViewItem createPlaceholderItem() {
+    return null;
+  }
+
+  /**
+   * The items of a paged controller only change through its pages, this method never returns new
+   * items.
+   *
+   * @return null.
+   */
+  @Override
+  public final List<ViewItem> buildItems(MODEL model) {
+    return null;
+  }
+
+  /** @return the current items of the feed, placeholders included. */
+  public final List<ViewItem> getItems() {
+    return items;
+  }
+
+  /**
+   * Triggers the load of the next page, if there is one and it is not already loading. Use it to
+   * load the first page of a feed that has no placeholder.
+   */
+  public final void loadNextPage() {
+    if (hasNextPage && !isLoadingNextPage) {
+      isLoadingNextPage = true;
+      onLoadNextPage();
+    }
+  }
+
+  /** Triggers the load of the previous page, if there is one and it is not already loading. */
+  public final void loadPreviousPage() {
+    if (hasPreviousPage && !isLoadingPreviousPage) {
+      isLoadingPreviousPage = true;
+      onLoadPreviousPage();
+    }
+  }
+
+  /** Reports that the loading pages failed, they will be loaded again on the next trigger. */
+  public final void onPageLoadFailed() {
+    isLoadingNextPage = false;
+    isLoadingPreviousPage = false;
+  }
+
+  /**
+   * Adds a page after the last loaded page. The placeholders at the end of the feed are changed
+   * into the first items of the page, the other items are inserted.
+   *
+   * @param pageItems the items of the page.
+   * @param hasNextPage true if there is another page after this one.
+   */
+  public final void appendPage(List<ViewItem> pageItems, boolean hasNextPage) {
+    final int oldTailCount = getPlaceholderCount(this.hasNextPage);
+    final int start = items.size() - oldTailCount;
+    pages.add(unmodifiableList(pageItems));
+    this.hasNextPage = hasNextPage;
+    isLoadingNextPage = false;
+    publishItems(start, oldTailCount, pageItems.size() + getPlaceholderCount(hasNextPage), false);
+  }
+
+  /**
+   * Adds a page before the first loaded page. The items are inserted at the start of the feed, so
+   * the visible items keep their position on screen.
+   *
+   * @param pageItems the items of the page.
+   * @param hasPreviousPage true if there is another page before this one.
+   */
+  public final void prependPage(List<ViewItem> pageItems, boolean hasPreviousPage) {
+    final int oldHeadCount = getPlaceholderCount(this.hasPreviousPage);
+    pages.add(0, unmodifiableList(pageItems));
+    this.hasPreviousPage = hasPreviousPage;
+    isLoadingPreviousPage = false;
+    publishItems(
+        0, oldHeadCount, getPlaceholderCount(hasPreviousPage) + pageItems.size(), true);
+  }
+
+  /**
+   * Removes all the pages. The subclass must drop the pages of the loads that are still pending.
+   *
+   * @param hasPreviousPage true if pages can be loaded before the first page of the new feed.
+   * @param hasNextPage true if pages can be loaded after the last page of the new feed.
+   */
+  public final void reset(boolean hasPreviousPage, boolean hasNextPage) {
+    final int oldCount = items.size();
+    pages.clear();
+    this.hasPreviousPage = hasPreviousPage;
+    this.hasNextPage = hasNextPage;
+    isLoadingNextPage = false;
+    isLoadingPreviousPage = false;
+    publishItems(
+        0, oldCount, getPlaceholderCount(hasPreviousPage) + getPlaceholderCount(hasNextPage), false);
+  }
+
+  /**
+   * Called by the adapter when one of the items of this controller is bound.
+   *
+   * @param position the position of the item in the items of this controller.
+   */
+  void onItemBound(int position) {
+    if (position >= items.size() - loadAheadDistance) {
+      loadNextPage();
+    }
+    if (position < loadAheadDistance) {
+      loadPreviousPage();
+    }
+  }
+
+  /**
+   * Called by the adapter it is installed in, while it is created. The current items are installed
+   * in the adapter, there is no observer to notify yet.
+   */
+  void setPagedItemsDispatcher(PagedItemsDispatcher pagedItemsDispatcher) {
+    this.pagedItemsDispatcher = pagedItemsDispatcher;
+    items = buildPagedItems();
+    pagedItemsDispatcher.dispatchItems(this, items);
+  }
+
+  private int getPlaceholderCount(boolean hasPage) {
+    return hasPage && getPlaceholders().size() != 0 ? placeholderCount : 0;
+  }
+
+  private List<ViewItem> getPlaceholders() {
+    if (placeholders == null) {
+      final ViewItem placeholderItem = createPlaceholderItem();
+      placeholders =
+          placeholderItem == null ? emptyList() : nCopies(placeholderCount, placeholderItem);
+    }
+    return placeholders;
+  }
+
+  private List<ViewItem> buildPagedItems() {
+    final List<List<ViewItem>> parts = new ArrayList<>(pages.size() + 2);
+    if (getPlaceholderCount(hasPreviousPage) != 0) {
+      parts.add(getPlaceholders());
+    }
+    parts.addAll(pages);
+    if (getPlaceholderCount(hasNextPage) != 0) {
+      parts.add(getPlaceholders());
+    }
+    return new PagedItems(parts);
+  }
+
+  /**
+   * Publishes the items after the range {@code [start, start + oldCount)} of the items was replaced
+   * by {@code newCount} items. The overlapping items are changed, the others are inserted or
+   * removed, at the start of the range if {@code isAnchoredAtEnd}, at its end otherwise.
+   */
+  private void publishItems(int start, int oldCount, int newCount, boolean isAnchoredAtEnd) {
+    items = buildPagedItems();
+    if (pagedItemsDispatcher == null) {
+      return;
+    }
+    final ListUpdateCallback callback = pagedItemsDispatcher.dispatchItems(this, items);
+    final int changedCount = Math.min(oldCount, newCount);
+    if (isAnchoredAtEnd) {
+      if (newCount > oldCount) {
+        callback.onInserted(start, newCount - oldCount);
+      } else if (newCount < oldCount) {
+        callback.onRemoved(start, oldCount - newCount);
+      }
+      if (changedCount != 0) {
+        callback.onChanged(start + newCount - changedCount, changedCount, null);
+      }
+    } else {
+      if (changedCount != 0) {
+        callback.onChanged(start, changedCount, null);
+      }
+      if (newCount > oldCount) {
+        callback.onInserted(start + oldCount, newCount - oldCount);
+      } else if (newCount < oldCount) {
+        callback.onRemoved(start + newCount, oldCount - newCount);
+      }
+    }
+  }
+
+  /** Installs the items of a paged controller in an adapter, without diffing them. */
+  interface PagedItemsDispatcher {
+    /**
+     * @param featureController the paged controller.
+     * @param items the new items of the controller.
+     * @return the callback to notify the changes of the items of the controller to the adapter.
+     */
+    ListUpdateCallback dispatchItems(FeatureController featureController, List<ViewItem> items);
+  }
+
+  /**
+   * An immutable view of the pages, a new page only copies the list of pages, not their items.
+   */
+  private static final class PagedItems extends AbstractList<ViewItem> implements RandomAccess {
+    private final List<List<ViewItem>> parts;
+    private final int[] offsets;
+    private final int size;
+
+    PagedItems(List<List<ViewItem>> parts) {
+      this.parts = parts;
+      offsets = new int[parts.size()];
+      int offset = 0;
+      for (int i = 0; i < parts.size(); i++) {
+        offsets[i] = offset;
+        offset += parts.get(i).size();
+      }
+      size = offset;
+    }
+
+    @Override
+    public ViewItem get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + size);
+      }
+      int low = 0;
+      int high = offsets.length - 1;
+      while (low < high) {
+        final int middle = (low + high + 1) >>> 1;
+        if (offsets[middle] <= index) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return parts.get(low).get(index - offsets[low]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
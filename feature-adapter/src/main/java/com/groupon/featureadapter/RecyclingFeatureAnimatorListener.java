@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.animation.Animator;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A {@link FeatureAnimatorListener} that reuses its change animators. When one of its animators
+ * ends or is cancelled, the {@link FeatureAnimatorController} keeps it in a pool of its view type,
+ * and passes it back to the next call to {@link #setupChangeAnimation(RecyclerView.ItemAnimator,
+ * RecyclerView.ViewHolder, RecyclerView.ViewHolder, RecyclerView.ItemAnimator.ItemHolderInfo,
+ * RecyclerView.ItemAnimator.ItemHolderInfo, Animator)} for this view type. Frequently animated rows
+ * then do not create an animator and its listeners for every change.
+ *
+ * @param <VH> The {@link AdapterViewTypeDelegate} ViewHolder.
+ * @param <M>  A {@link RecyclerView.ItemAnimator.ItemHolderInfo} model to hold animation metadata.
+ */
+public interface RecyclingFeatureAnimatorListener<VH extends RecyclerView.ViewHolder, M extends RecyclerView.ItemAnimator.ItemHolderInfo> extends FeatureAnimatorListener<VH, M> {
+
+  /**
+   * Same as {@link FeatureAnimatorListener#setupChangeAnimation(RecyclerView.ItemAnimator,
+   * RecyclerView.ViewHolder, RecyclerView.ViewHolder, RecyclerView.ItemAnimator.ItemHolderInfo,
+   * RecyclerView.ItemAnimator.ItemHolderInfo)}, with an animator to reuse.
+   *
+   * @param recycledAnimator an ended animator previously returned by this method for the same view
+   *     type, or null if the pool is empty. It must be updated for {@code newHolder} (target,
+   *     values, listener state) and returned. The listeners it was returned with are still attached.
+   * @return the animator of the change, or null not to animate it.
+   */
+  Animator setupChangeAnimation(RecyclerView.ItemAnimator itemAnimator, VH oldHolder, VH newHolder, M preInfo, M postInfo, @Nullable Animator recycledAnimator);
+
+  @Override
+  default Animator setupChangeAnimation(RecyclerView.ItemAnimator itemAnimator, VH oldHolder, VH newHolder, M preInfo, M postInfo) {
+    return setupChangeAnimation(itemAnimator, oldHolder, newHolder, preInfo, postInfo, null);
+  }
+}
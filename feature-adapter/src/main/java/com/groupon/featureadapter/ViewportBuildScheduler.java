@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Defers the build of the controllers of a {@link FeaturesAdapter} that are far from the viewport.
+ * On a long screen, most controllers are below the fold: building and diffing their items on every
+ * model delays the items the user actually sees.
+ *
+ * <p>The scheduler follows the views attached by the recycler view: the viewport is the range
+ * between the first and the last attached positions, before anything is attached it is the top of
+ * the list. A controller is near the viewport when its items are within {@code prefetchDistance}
+ * positions of this range. The controllers that are not near keep their current items, or get the
+ * cheap items of {@link FeatureController#buildPlaceholderItems(Object)} if they have none yet, and
+ * the last model they skipped is kept. They are built with this model off the main thread, and
+ * their updates are dispatched on the main thread. One build is started per frame or idle pass:
+ *
+ * <ul>
+ *   <li>when the viewport comes near them, the nearest first.
+ *   <li>when the main thread is idle, the nearest first. This can be disabled with {@link
+ *       #setBuildsWhenIdle(boolean)}.
+ * </ul>
+ *
+ * The positions of the controllers that were never built are estimated: each of them counts for
+ * {@code estimatedItemCount} items, see {@link #setEstimatedItemCount(FeatureController, int)}.
+ *
+ * <p>{@code FeaturesAdapter} builds the deferred controllers on the executor of the scheduler,
+ * {@code RxFeaturesAdapter} on the computation scheduler. A deferred build of a controller can run
+ * at the same time as another build of the same controller, and {@link
+ * FeatureController#buildItems(Object)} must not expect to always be called on the same thread.
+ * The builds of a controller are ordered when they start: an update never replaces the items of a
+ * more recent build of its controller, whatever the order their updates are dispatched in.
+ *
+ * <p>A scheduler can only be installed in one adapter, with {@link
+ * FeaturesAdapter#setViewportBuildScheduler(ViewportBuildScheduler)}, before the first model.
+ */
+public class ViewportBuildScheduler {
+
+  public static final int DEFAULT_ESTIMATED_ITEM_COUNT = 1;
+
+  /** Stands for a null model, the pending models are null when there is no pending build. */
+  private static final Object NULL_MODEL = new Object();
+
+  /**
+   * Builds the items of a deferred controller off the main thread, and dispatches them on the main
+   * thread. Implemented by the adapter.
+   */
+  interface DeferredBuildDispatcher {
+    void buildDeferredFeatureItems(FeatureController featureController, Object model);
+  }
+
+  /** Returns the current items of the adapter. Implemented by the adapter. */
+  interface FeatureItemsVersionProvider {
+    FeatureItemsVersion getFeatureItemsVersion();
+  }
+
+  private final int prefetchDistance;
+  private final int defaultEstimatedItemCount;
+  private final Executor buildExecutor;
+  private final Map<FeatureController, Integer> estimatedItemCounts = new ConcurrentHashMap<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final AtomicBoolean isIdleBuildScheduled = new AtomicBoolean();
+  private final MessageQueue.IdleHandler idleHandler = this::onMainThreadIdle;
+  private final Runnable approachBuild = this::buildNearFeatureItems;
+  private final List<ViewHolder> attachedHolders = new ArrayList<>();
+  private List<? extends FeatureController> featureControllers;
+  private AtomicReferenceArray<Object> pendingModels;
+  /** The sequence of the last build started for each controller. */
+  private AtomicLongArray buildSequences;
+  /** The sequence of the build whose items were dispatched last, read on the main thread. */
+  private long[] dispatchedBuildSequences;
+  private DeferredBuildDispatcher deferredBuildDispatcher;
+  private FeatureItemsVersionProvider featureItemsVersionProvider;
+  private Handler mainHandler;
+  /** The first visible position in the high bits, and the last one in the low bits. */
+  private volatile long visibleRange;
+  private volatile boolean buildsWhenIdle = true;
+  private boolean isApproachBuildPosted;
+
+  /**
+   * @param prefetchDistance the number of positions around the viewport within which the
+   *     controllers are built.
+   */
+  public ViewportBuildScheduler(int prefetchDistance) {
+    this(prefetchDistance, DEFAULT_ESTIMATED_ITEM_COUNT);
+  }
+
+  /**
+   * @param prefetchDistance the number of positions around the viewport within which the
+   *     controllers are built.
+   * @param estimatedItemCount the number of items a controller that was never built is assumed to
+   *     have.
+   */
+  public ViewportBuildScheduler(int prefetchDistance, int estimatedItemCount) {
+    this(prefetchDistance, estimatedItemCount, AsyncTask.SERIAL_EXECUTOR);
+  }
+
+  /**
+   * @param prefetchDistance the number of positions around the viewport within which the
+   *     controllers are built.
+   * @param estimatedItemCount the number of items a controller that was never built is assumed to
+   *     have.
+   * @param buildExecutor the executor on which {@code FeaturesAdapter} builds the deferred
+   *     controllers, {@link AsyncTask#SERIAL_EXECUTOR} by default. It is not used by {@code
+   *     RxFeaturesAdapter}.
+   */
+  public ViewportBuildScheduler(
+      int prefetchDistance, int estimatedItemCount, Executor buildExecutor) {
+    this.prefetchDistance = prefetchDistance;
+    this.defaultEstimatedItemCount = estimatedItemCount;
+    this.buildExecutor = buildExecutor;
+  }
+
+  /**
+   * Overrides the number of items a controller is assumed to have before it is built.
+   *
+   * @param featureController the controller.
+   * @param estimatedItemCount the estimated number of items of the controller.
+   */
+  public void setEstimatedItemCount(FeatureController featureController, int estimatedItemCount) {
+    estimatedItemCounts.put(featureController, estimatedItemCount);
+  }
+
+  public boolean isBuildsWhenIdle() {
+    return buildsWhenIdle;
+  }
+
+  /** @param buildsWhenIdle false to build the deferred controllers only when they come near. */
+  public void setBuildsWhenIdle(boolean buildsWhenIdle) {
+    this.buildsWhenIdle = buildsWhenIdle;
+  }
+
+  /** @return the number of controllers whose build is deferred. */
+  public int getDeferredCount() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Called by the adapter it is installed in.
+   *
+   * @param featureControllers the controllers of the adapter.
+   * @param featureItemsVersionProvider returns the current items of the adapter.
+   * @param deferredBuildDispatcher builds the items of a deferred controller.
+   */
+  void install(
+      List<? extends FeatureController> featureControllers,
+      FeatureItemsVersionProvider featureItemsVersionProvider,
+      DeferredBuildDispatcher deferredBuildDispatcher) {
+    if (this.featureControllers != null) {
+      throw new IllegalStateException("The scheduler is already installed in an adapter");
+    }
+    this.featureControllers = featureControllers;
+    this.featureItemsVersionProvider = featureItemsVersionProvider;
+    this.deferredBuildDispatcher = deferredBuildDispatcher;
+    pendingModels = new AtomicReferenceArray<>(featureControllers.size());
+    buildSequences = new AtomicLongArray(featureControllers.size());
+    dispatchedBuildSequences = new long[featureControllers.size()];
+  }
+
+  /**
+   * Orders a build of a controller among its other builds. Called by the adapter, on any thread,
+   * when it starts to build a controller.
+   *
+   * @param index the index of the controller.
+   * @return the sequence of the build, greater than the sequences of the builds started before.
+   */
+  long startBuild(int index) {
+    return buildSequences.incrementAndGet(index);
+  }
+
+  /**
+   * Records the dispatch of the items of a build. Called by the adapter on the main thread.
+   *
+   * @param index the index of the controller.
+   * @param buildSequence the sequence of the build, see {@link #startBuild(int)}.
+   * @return false if the items of a more recent build of the controller were already dispatched,
+   *     the items of this build must not replace them.
+   */
+  boolean onBuildDispatched(int index, long buildSequence) {
+    if (buildSequence < dispatchedBuildSequences[index]) {
+      return false;
+    }
+    dispatchedBuildSequences[index] = buildSequence;
+    return true;
+  }
+
+  /**
+   * Decides if the build of a controller is deferred, and keeps the model if it is. Called by the
+   * adapter on the threads the items are built on.
+   *
+   * @param featureController the controller to build.
+   * @param version the current items of the adapter.
+   * @param model the model to build the controller from.
+   * @return true if the controller must not be built now.
+   */
+  boolean deferBuild(
+      FeatureController featureController, FeatureItemsVersion version, Object model) {
+    final int index = version.indexOf(featureController);
+    if (isNearViewport(index, version)) {
+      // this build is more recent than the deferred one
+      takePendingModel(index);
+      return false;
+    }
+    if (pendingModels.getAndSet(index, model == null ? NULL_MODEL : model) == null) {
+      pendingCount.incrementAndGet();
+    }
+    if (buildsWhenIdle && isIdleBuildScheduled.compareAndSet(false, true)) {
+      scheduleIdleBuild(idleHandler);
+    }
+    return true;
+  }
+
+  /**
+   * Follows the attached views, and posts the build of the deferred controllers that come near.
+   * Called by the adapter on the main thread.
+   *
+   * @param holder the holder of the attached view.
+   */
+  void onViewAttached(ViewHolder holder) {
+    attachedHolders.add(holder);
+    updateVisibleRange();
+    postApproachBuild();
+  }
+
+  /**
+   * Called by the adapter on the main thread.
+   *
+   * @param holder the holder of the detached view.
+   */
+  void onViewDetached(ViewHolder holder) {
+    attachedHolders.remove(holder);
+    updateVisibleRange();
+  }
+
+  /** Starts the build of the nearest deferred controller near the viewport, posts the next one. */
+  private void buildNearFeatureItems() {
+    isApproachBuildPosted = false;
+    // the positions of the attached views may have changed with the last updates
+    updateVisibleRange();
+    final int index = findNearestPendingIndex(true);
+    if (index >= 0) {
+      buildDeferredFeatureItems(index);
+      // a single build per frame, the builds of the other near controllers start in the next ones
+      postApproachBuild();
+    }
+  }
+
+  private void postApproachBuild() {
+    if (pendingCount.get() == 0 || isApproachBuildPosted) {
+      return;
+    }
+    if (findNearestPendingIndex(true) >= 0) {
+      isApproachBuildPosted = true;
+      post(approachBuild);
+    }
+  }
+
+  private void updateVisibleRange() {
+    int firstPosition = Integer.MAX_VALUE;
+    int lastPosition = RecyclerView.NO_POSITION;
+    for (int i = 0; i < attachedHolders.size(); i++) {
+      final int position = attachedHolders.get(i).getLayoutPosition();
+      if (position != RecyclerView.NO_POSITION) {
+        firstPosition = Math.min(firstPosition, position);
+        lastPosition = Math.max(lastPosition, position);
+      }
+    }
+    if (lastPosition != RecyclerView.NO_POSITION) {
+      visibleRange = (long) firstPosition << 32 | lastPosition;
+    }
+  }
+
+  /** Starts the build of the nearest deferred controller, stays scheduled while others wait. */
+  private boolean onMainThreadIdle() {
+    if (buildsWhenIdle) {
+      updateVisibleRange();
+      final int index = findNearestPendingIndex(false);
+      if (index >= 0) {
+        buildDeferredFeatureItems(index);
+      }
+      if (pendingCount.get() != 0) {
+        return true;
+      }
+    }
+    isIdleBuildScheduled.set(false);
+    // a build may have been deferred since the count was read
+    return buildsWhenIdle
+        && pendingCount.get() != 0
+        && isIdleBuildScheduled.compareAndSet(false, true);
+  }
+
+  private void buildDeferredFeatureItems(int index) {
+    final Object model = takePendingModel(index);
+    if (model != null) {
+      deferredBuildDispatcher.buildDeferredFeatureItems(
+          featureControllers.get(index), model == NULL_MODEL ? null : model);
+    }
+  }
+
+  private Object takePendingModel(int index) {
+    final Object model = pendingModels.getAndSet(index, null);
+    if (model != null) {
+      pendingCount.decrementAndGet();
+    }
+    return model;
+  }
+
+  /**
+   * @param isNearOnly true to only find a controller near the viewport.
+   * @return the index of the deferred controller nearest to the viewport, or -1.
+   */
+  private int findNearestPendingIndex(boolean isNearOnly) {
+    final FeatureItemsVersion version = featureItemsVersionProvider.getFeatureItemsVersion();
+    final long range = visibleRange;
+    int nearestIndex = -1;
+    int nearestDistance = isNearOnly ? prefetchDistance + 1 : Integer.MAX_VALUE;
+    int offset = 0;
+    for (int i = 0; i < featureControllers.size(); i++) {
+      final int itemCount = getEstimatedItemCount(i, version);
+      if (pendingModels.get(i) != null) {
+        final int distance = getDistance(offset, itemCount, range);
+        if (distance < nearestDistance) {
+          nearestIndex = i;
+          nearestDistance = distance;
+        }
+      }
+      offset += itemCount;
+    }
+    return nearestIndex;
+  }
+
+  private boolean isNearViewport(int index, FeatureItemsVersion version) {
+    int offset = 0;
+    for (int i = 0; i < index; i++) {
+      offset += getEstimatedItemCount(i, version);
+    }
+    return getDistance(offset, getEstimatedItemCount(index, version), visibleRange)
+        <= prefetchDistance;
+  }
+
+  /** @return the current number of items of a controller, or its estimate if it was never built. */
+  private int getEstimatedItemCount(int index, FeatureItemsVersion version) {
+    final FeatureController featureController = featureControllers.get(index);
+    if (version.getSegmentVersion(featureController) != 0) {
+      return version.getItems(featureController).size();
+    }
+    final Integer estimatedItemCount = estimatedItemCounts.get(featureController);
+    return estimatedItemCount == null ? defaultEstimatedItemCount : estimatedItemCount;
+  }
+
+  /** @return the number of positions between the visible range and the items of a controller. */
+  private static int getDistance(int offset, int itemCount, long visibleRange) {
+    final int firstPosition = (int) (visibleRange >>> 32);
+    final int lastPosition = (int) visibleRange;
+    if (lastPosition < offset) {
+      return offset - lastPosition;
+    }
+    final int end = offset + Math.max(itemCount, 1) - 1;
+    return firstPosition > end ? firstPosition - end : 0;
+  }
+
+  /** Runs a deferred build of {@code FeaturesAdapter} off the main thread. */
+  @VisibleForTesting
+  void execute(Runnable runnable) {
+    buildExecutor.execute(runnable);
+  }
+
+  @VisibleForTesting
+  void post(Runnable runnable) {
+    getMainHandler().post(runnable);
+  }
+
+  /** Adds the idle handler to the queue of the main thread, from any thread. */
+  @VisibleForTesting
+  void scheduleIdleBuild(MessageQueue.IdleHandler idleHandler) {
+    getMainHandler().post(() -> Looper.myQueue().addIdleHandler(idleHandler));
+  }
+
+  private synchronized Handler getMainHandler() {
+    if (mainHandler == null) {
+      mainHandler = new Handler(Looper.getMainLooper());
+    }
+    return mainHandler;
+  }
+}
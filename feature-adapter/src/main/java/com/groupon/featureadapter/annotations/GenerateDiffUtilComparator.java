@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.annotations;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a {@link com.groupon.featureadapter.DiffUtilComparator} for a model, in the same
+ * package, named after the model with the suffix {@code DiffUtilComparator}. It requires the {@code
+ * feature-adapter-compiler} annotation processor.
+ *
+ * <p>The properties of the model are its abstract methods without parameters, like the properties
+ * of an AutoValue class, and its non private fields. The abstract methods of the interfaces it
+ * implements are not properties. The properties annotated with {@link DiffId} identify the items: 2
+ * items are the same if all their ids are equal, a model needs at least one. The other properties,
+ * except the ones annotated with {@link DiffIgnore}, are the contents of the items. Properties are
+ * compared with {@code ==} for primitives, {@code equals} for objects and {@link
+ * java.util.Arrays#equals} for arrays, without reflection.
+ *
+ * <p>The change payload is a {@code Long}, the bitmask of the contents that changed. The generated
+ * comparator declares a {@code CHANGED_<PROPERTY>} constant for the bit of each content property,
+ * use {@link com.groupon.featureadapter.ChangedFields#of(java.util.List)} to combine the payloads
+ * of a partial bind and only update the views of the changed properties. A model has at most 64
+ * content properties.
+ */
+@Retention(CLASS)
+@Target(TYPE)
+public @interface GenerateDiffUtilComparator {}
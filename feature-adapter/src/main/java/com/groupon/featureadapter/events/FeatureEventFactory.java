@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+/**
+ * Creates the {@link FeatureEvent} to fire for a given model, at the time the event occurs.
+ *
+ * @param <MODEL> the view model bound to the view that emits the event.
+ */
+public interface FeatureEventFactory<MODEL> {
+  /**
+   * @param model the model currently bound to the view that emits the event.
+   * @return the event to fire, or null to fire nothing.
+   */
+  FeatureEvent createFeatureEvent(MODEL model);
+}
@@ -15,43 +15,195 @@
  */
 package com.groupon.featureadapter.events;
 
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Internal helper to addFeatureEventListener/removeFeatureEventListener {@link
- * FeatureEventListener} to a list of listeners and fire events to all of them.
+ * FeatureEventListener} to a table of listeners indexed by event class and fire events to the
+ * listeners of their class.
+ *
+ * <p>Listeners are registered for a class of events, they receive the events that are instances of
+ * this class. Listeners registered without a class receive all events. Firing an event looks up
+ * the listeners resolved for its concrete class and does not allocate, the resolution only happens
+ * the first time a class of event is fired after the listeners changed. Adding or removing a
+ * listener only copies the listeners of its class. The listeners of an event are called in the
+ * order they were added, whatever their class.
  */
 public class FeatureEventSource {
-  /** Concurrency robust list of listener. */
-  private List<FeatureEventListener> featureEventListeners = new CopyOnWriteArrayList<>();
+  private static final FeatureEventListener[] NO_LISTENERS = new FeatureEventListener[0];
+
+  /** Listeners per registered event class, in order of registration. */
+  private Route[] routes = new Route[0];
+
+  /** The sequence number of the next added listener, it orders the listeners of all routes. */
+  private long nextSequence;
+
+  /** Listeners resolved for each concrete class of fired event. Cleared when listeners change. */
+  private final Map<Class<?>, FeatureEventListener[]> resolvedListeners = new ConcurrentHashMap<>();
 
   /**
-   * Adds a listener to the list of listeners.
+   * Adds a listener to the listeners of all events.
    *
    * @param featureEventListener the listener to be added.
    */
   public void addFeatureEventListener(FeatureEventListener featureEventListener) {
-    featureEventListeners.add(featureEventListener);
+    addFeatureEventListener(FeatureEvent.class, featureEventListener);
+  }
+
+  /**
+   * Adds a listener to the listeners of a class of events.
+   *
+   * @param eventClass the class of the events to listen to. A {@link FeatureEvent} subtype, or any
+   *     interface implemented by the events.
+   * @param featureEventListener the listener to be added.
+   */
+  public synchronized void addFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    Route route = findRoute(eventClass);
+    if (route == null) {
+      route = new Route(eventClass);
+      final Route[] newRoutes = new Route[routes.length + 1];
+      System.arraycopy(routes, 0, newRoutes, 0, routes.length);
+      newRoutes[routes.length] = route;
+      routes = newRoutes;
+    }
+    route.add(featureEventListener, nextSequence++);
+    resolvedListeners.clear();
   }
 
   /**
-   * Removes a listener to the list of listeners.
+   * Removes a listener from the listeners of all events.
    *
    * @param featureEventListener the listener to be removed.
    */
   public void removeFeatureEventListener(FeatureEventListener featureEventListener) {
-    featureEventListeners.remove(featureEventListener);
+    removeFeatureEventListener(FeatureEvent.class, featureEventListener);
   }
 
   /**
-   * Emits an {@link FeatureEvent} to all listeners that were previously added.
+   * Removes a listener from the listeners of a class of events.
    *
-   * @param featureEvent the event to emit to all listeners.
+   * @param eventClass the class the listener was added with.
+   * @param featureEventListener the listener to be removed.
+   */
+  public synchronized void removeFeatureEventListener(
+      Class<?> eventClass, FeatureEventListener featureEventListener) {
+    final Route route = findRoute(eventClass);
+    if (route != null && route.remove(featureEventListener)) {
+      resolvedListeners.clear();
+    }
+  }
+
+  /**
+   * Emits an {@link FeatureEvent} to all listeners that were previously added for its class, or
+   * for all events.
+   *
+   * @param featureEvent the event to emit.
    */
   public void fireEvent(FeatureEvent featureEvent) {
-    for (FeatureEventListener featureEventListener : featureEventListeners) {
+    FeatureEventListener[] listeners = resolvedListeners.get(featureEvent.getClass());
+    if (listeners == null) {
+      listeners = resolveListeners(featureEvent.getClass());
+    }
+    for (FeatureEventListener featureEventListener : listeners) {
       featureEventListener.onFeatureEvent(featureEvent);
     }
   }
+
+  // resolving under the lock prevents caching listeners that a concurrent registration changed
+  private synchronized FeatureEventListener[] resolveListeners(Class<?> featureEventClass) {
+    FeatureEventListener[] listeners = resolvedListeners.get(featureEventClass);
+    if (listeners != null) {
+      return listeners;
+    }
+    int count = 0;
+    for (Route route : routes) {
+      if (route.eventClass.isAssignableFrom(featureEventClass)) {
+        count += route.listeners.length;
+      }
+    }
+    listeners = count == 0 ? NO_LISTENERS : new FeatureEventListener[count];
+    final long[] sequences = new long[count];
+    int index = 0;
+    for (Route route : routes) {
+      if (route.eventClass.isAssignableFrom(featureEventClass)) {
+        System.arraycopy(route.listeners, 0, listeners, index, route.listeners.length);
+        System.arraycopy(route.sequences, 0, sequences, index, route.sequences.length);
+        index += route.listeners.length;
+      }
+    }
+    sortBySequence(listeners, sequences);
+    resolvedListeners.put(featureEventClass, listeners);
+    return listeners;
+  }
+
+  /** Puts the listeners back in the order they were added, there are few of them. */
+  private static void sortBySequence(FeatureEventListener[] listeners, long[] sequences) {
+    for (int i = 1; i < listeners.length; i++) {
+      final FeatureEventListener listener = listeners[i];
+      final long sequence = sequences[i];
+      int j = i - 1;
+      while (j >= 0 && sequences[j] > sequence) {
+        listeners[j + 1] = listeners[j];
+        sequences[j + 1] = sequences[j];
+        j--;
+      }
+      listeners[j + 1] = listener;
+      sequences[j + 1] = sequence;
+    }
+  }
+
+  private Route findRoute(Class<?> eventClass) {
+    for (Route route : routes) {
+      if (route.eventClass == eventClass) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The listeners of a class of events, and the sequence numbers they were added with. Only mutated
+   * while holding the lock of the source.
+   */
+  private static class Route {
+    private static final long[] NO_SEQUENCES = new long[0];
+
+    final Class<?> eventClass;
+    FeatureEventListener[] listeners = NO_LISTENERS;
+    long[] sequences = NO_SEQUENCES;
+
+    Route(Class<?> eventClass) {
+      this.eventClass = eventClass;
+    }
+
+    void add(FeatureEventListener listener, long sequence) {
+      final FeatureEventListener[] newListeners = new FeatureEventListener[listeners.length + 1];
+      System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+      newListeners[listeners.length] = listener;
+      final long[] newSequences = new long[sequences.length + 1];
+      System.arraycopy(sequences, 0, newSequences, 0, sequences.length);
+      newSequences[sequences.length] = sequence;
+      listeners = newListeners;
+      sequences = newSequences;
+    }
+
+    boolean remove(FeatureEventListener listener) {
+      for (int i = 0; i < listeners.length; i++) {
+        if (listeners[i].equals(listener)) {
+          final FeatureEventListener[] newListeners = new FeatureEventListener[listeners.length - 1];
+          System.arraycopy(listeners, 0, newListeners, 0, i);
+          System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+          final long[] newSequences = new long[sequences.length - 1];
+          System.arraycopy(sequences, 0, newSequences, 0, i);
+          System.arraycopy(sequences, i + 1, newSequences, i, sequences.length - i - 1);
+          listeners = newListeners;
+          sequences = newSequences;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.impressions;
+
+/**
+ * A compact batch of impressions: the impression at a given index is described by the values at
+ * this index in each accessor.
+ */
+public final class ImpressionBatch {
+
+  private final Object[] keys;
+  private final int[] viewTypes;
+  private final long[] visibleDurations;
+  private int size;
+
+  ImpressionBatch(int capacity) {
+    keys = new Object[capacity];
+    viewTypes = new int[capacity];
+    visibleDurations = new long[capacity];
+  }
+
+  /** @return the number of impressions in this batch. */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param index the index of an impression, smaller than {@link #size()}.
+   * @return the impression key of the item, as returned by {@code
+   *     AdapterViewTypeDelegate#getImpressionKey}.
+   */
+  public Object getKey(int index) {
+    return keys[index];
+  }
+
+  /**
+   * @param index the index of an impression, smaller than {@link #size()}.
+   * @return the view type of the item.
+   */
+  public int getViewType(int index) {
+    return viewTypes[index];
+  }
+
+  /**
+   * @param index the index of an impression, smaller than {@link #size()}.
+   * @return for how long the item was visible when the impression was recorded, in milliseconds.
+   */
+  public long getVisibleDuration(int index) {
+    return visibleDurations[index];
+  }
+
+  boolean isFull() {
+    return size == keys.length;
+  }
+
+  void add(Object key, int viewType, long visibleDuration) {
+    keys[size] = key;
+    viewTypes[size] = viewType;
+    visibleDurations[size] = visibleDuration;
+    size++;
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.impressions;
+
+/**
+ * Receives the impressions collected by an {@link ImpressionTracker}, typically to send them to an
+ * analytics service.
+ */
+public interface ImpressionSink {
+  /**
+   * Called on the flush executor of the {@link ImpressionTracker} with a batch of impressions. The
+   * batch is not reused by the tracker.
+   *
+   * @param impressionBatch the impressions collected since the previous flush.
+   */
+  void onImpressions(ImpressionBatch impressionBatch);
+}
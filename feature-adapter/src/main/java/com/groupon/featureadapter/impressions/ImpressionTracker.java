@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.impressions;
+
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.widget.RecyclerView;
+import com.groupon.featurecontrol.R;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Tracks the impressions of the items of a {@code FeaturesAdapter}. An item makes an impression
+ * when its view stays attached to the window for at least a minimum duration. Each key makes at
+ * most one impression per session. Impressions are collected in batches that are passed to an
+ * {@link ImpressionSink} on a background executor, when a batch is full or when {@link #flush()}
+ * is called.
+ *
+ * <p>Install it with {@code FeaturesAdapter#setImpressionTracker}. The items are tracked if their
+ * delegate returns a key from {@code AdapterViewTypeDelegate#getImpressionKey}. Attaching and
+ * detaching a view does constant work and does not allocate: the state of a view is kept in a
+ * slot created once per view holder, and only the slots of the attached views are referenced by
+ * the tracker. When an attached view is bound to another item, call {@link
+ * #onAttachedViewRebound(RecyclerView.ViewHolder, Object)} to track the new item.
+ *
+ * <p>All the methods must be called on the main thread.
+ */
+@MainThread
+public class ImpressionTracker {
+
+  public static final long DEFAULT_MIN_VISIBLE_DURATION = 1000;
+  public static final int DEFAULT_BATCH_SIZE = 32;
+
+  private final ImpressionSink impressionSink;
+  private final Executor flushExecutor;
+  private final long minVisibleDuration;
+  private final int batchSize;
+
+  /** Keys that made an impression during the current session. */
+  private final Set<Object> impressedKeys = new HashSet<>();
+  /** Slots of the attached views, to flush them. */
+  private final List<Slot> attachedSlots = new ArrayList<>();
+  private ImpressionBatch pendingBatch;
+
+  /**
+   * @param impressionSink receives the batches of impressions.
+   * @param flushExecutor the executor on which {@code impressionSink} is called, typically a
+   *     background executor.
+   */
+  public ImpressionTracker(ImpressionSink impressionSink, Executor flushExecutor) {
+    this(impressionSink, flushExecutor, DEFAULT_MIN_VISIBLE_DURATION, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * @param impressionSink receives the batches of impressions.
+   * @param flushExecutor the executor on which {@code impressionSink} is called, typically a
+   *     background executor.
+   * @param minVisibleDuration for how long an item must be visible to make an impression, in
+   *     milliseconds.
+   * @param batchSize the number of impressions after which a batch is flushed.
+   */
+  public ImpressionTracker(
+      ImpressionSink impressionSink, Executor flushExecutor, long minVisibleDuration, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+    }
+    this.impressionSink = impressionSink;
+    this.flushExecutor = flushExecutor;
+    this.minVisibleDuration = minVisibleDuration;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Called when the view of a holder is attached to the window.
+   *
+   * @param holder the holder of the attached view.
+   * @param key the impression key of the bound item, or null if the item is not tracked.
+   */
+  public void onViewAttached(RecyclerView.ViewHolder holder, Object key) {
+    final Slot slot = getSlot(holder);
+    if (slot.attachedIndex < 0) {
+      slot.attachedIndex = attachedSlots.size();
+      attachedSlots.add(slot);
+    }
+    track(slot, holder, key, now());
+  }
+
+  /**
+   * @param holder a view holder.
+   * @return true if the view of the holder is attached, according to this tracker.
+   */
+  public boolean isAttached(RecyclerView.ViewHolder holder) {
+    final Slot slot = (Slot) holder.itemView.getTag(R.id.feature_adapter_impression_slot);
+    return slot != null && slot.attachedIndex >= 0;
+  }
+
+  /**
+   * Called when the attached view of a holder is bound again, for instance when its item changed
+   * in place. If the key changed, the impression of the previous item is recorded if it was
+   * visible long enough, and the new item is tracked from now.
+   *
+   * @param holder the holder of the attached view.
+   * @param key the impression key of the newly bound item, or null if the item is not tracked.
+   */
+  public void onAttachedViewRebound(RecyclerView.ViewHolder holder, Object key) {
+    final Slot slot = (Slot) holder.itemView.getTag(R.id.feature_adapter_impression_slot);
+    if (slot == null || slot.attachedIndex < 0 || (key != null && key.equals(slot.key))) {
+      return;
+    }
+    final long now = now();
+    if (slot.key != null) {
+      recordImpression(slot, now);
+    }
+    track(slot, holder, key, now);
+  }
+
+  /**
+   * Called when the view of a holder is detached from the window. Records an impression if the
+   * view was visible long enough.
+   *
+   * @param holder the holder of the detached view.
+   */
+  public void onViewDetached(RecyclerView.ViewHolder holder) {
+    final Slot slot = (Slot) holder.itemView.getTag(R.id.feature_adapter_impression_slot);
+    if (slot == null || slot.attachedIndex < 0) {
+      return;
+    }
+    removeAttachedSlot(slot);
+    if (slot.key != null) {
+      recordImpression(slot, now());
+      slot.clear();
+    }
+  }
+
+  /**
+   * Records the impressions of the views that are still attached and visible long enough, then
+   * passes all the pending impressions to the sink. Call it when the screen is left, for instance
+   * from {@code onPause}.
+   */
+  public void flush() {
+    final long now = now();
+    for (int i = 0; i < attachedSlots.size(); i++) {
+      final Slot slot = attachedSlots.get(i);
+      if (slot.key != null && recordImpression(slot, now)) {
+        // the view is still attached, it will not make another impression in this session
+        slot.clear();
+      }
+    }
+    flushPendingBatch();
+  }
+
+  /**
+   * Starts a new session: the keys that already made an impression can make a new one. Pending
+   * impressions are kept.
+   */
+  public void startSession() {
+    impressedKeys.clear();
+  }
+
+  @VisibleForTesting
+  long now() {
+    return SystemClock.uptimeMillis();
+  }
+
+  private Slot getSlot(RecyclerView.ViewHolder holder) {
+    Slot slot = (Slot) holder.itemView.getTag(R.id.feature_adapter_impression_slot);
+    if (slot == null) {
+      slot = new Slot();
+      holder.itemView.setTag(R.id.feature_adapter_impression_slot, slot);
+    }
+    return slot;
+  }
+
+  private void track(Slot slot, RecyclerView.ViewHolder holder, Object key, long now) {
+    if (key == null || impressedKeys.contains(key)) {
+      slot.clear();
+      return;
+    }
+    slot.key = key;
+    slot.viewType = holder.getItemViewType();
+    slot.attachTime = now;
+  }
+
+  /** Removes a slot from the attached slots in constant time, the last slot takes its place. */
+  private void removeAttachedSlot(Slot slot) {
+    final Slot lastSlot = attachedSlots.remove(attachedSlots.size() - 1);
+    if (lastSlot != slot) {
+      attachedSlots.set(slot.attachedIndex, lastSlot);
+      lastSlot.attachedIndex = slot.attachedIndex;
+    }
+    slot.attachedIndex = -1;
+  }
+
+  private boolean recordImpression(Slot slot, long now) {
+    final long visibleDuration = now - slot.attachTime;
+    if (visibleDuration < minVisibleDuration || !impressedKeys.add(slot.key)) {
+      return false;
+    }
+    if (pendingBatch == null) {
+      pendingBatch = new ImpressionBatch(batchSize);
+    }
+    pendingBatch.add(slot.key, slot.viewType, visibleDuration);
+    if (pendingBatch.isFull()) {
+      flushPendingBatch();
+    }
+    return true;
+  }
+
+  private void flushPendingBatch() {
+    if (pendingBatch == null) {
+      return;
+    }
+    final ImpressionBatch impressionBatch = pendingBatch;
+    pendingBatch = null;
+    flushExecutor.execute(() -> impressionSink.onImpressions(impressionBatch));
+  }
+
+  /** The impression state of the view of a holder. */
+  private static class Slot {
+    /** The index of the slot in the attached slots, or -1 if the view is detached. */
+    int attachedIndex = -1;
+    Object key;
+    int viewType;
+    long attachTime;
+
+    void clear() {
+      key = null;
+    }
+  }
+}
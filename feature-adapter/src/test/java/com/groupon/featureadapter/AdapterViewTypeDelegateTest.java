@@ -15,10 +15,20 @@
  */
 package com.groupon.featureadapter;
 
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
 
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import com.groupon.featureadapter.events.FeatureEvent;
+import com.groupon.featurecontrol.R;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 
 public class AdapterViewTypeDelegateTest {
@@ -37,4 +47,57 @@ public class AdapterViewTypeDelegateTest {
     //THEN
     assertThat(diffUtilComparator, not(nullValue()));
   }
+
+  @Test
+  public void createFeatureEventOnClickListener_should_fireTheEventOfTheBoundModel() {
+    //GIVEN
+    View itemView = createMock(View.class);
+    expect(itemView.getTag(R.id.feature_adapter_bound_model)).andReturn("bound model");
+    replay(itemView);
+    RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(itemView) {};
+
+    StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    List<FeatureEvent> firedEvents = new ArrayList<>();
+    delegate.addFeatureEventListener(firedEvents::add);
+    //noinspection unchecked
+    View.OnClickListener listener =
+        delegate.createFeatureEventOnClickListener(holder, model -> new StubFeatureEvent(model));
+
+    //WHEN
+    listener.onClick(itemView);
+
+    //THEN
+    assertThat(firedEvents.size(), is(1));
+    assertThat(((StubFeatureEvent) firedEvents.get(0)).model, is("bound model"));
+  }
+
+  @Test
+  public void createFeatureEventOnClickListener_should_notFireEvents_when_holderIsNotBound() {
+    //GIVEN
+    View itemView = createMock(View.class);
+    expect(itemView.getTag(R.id.feature_adapter_bound_model)).andReturn(null);
+    replay(itemView);
+    RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(itemView) {};
+
+    StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    List<FeatureEvent> firedEvents = new ArrayList<>();
+    delegate.addFeatureEventListener(firedEvents::add);
+    //noinspection unchecked
+    View.OnClickListener listener =
+        delegate.createFeatureEventOnClickListener(holder, model -> new StubFeatureEvent(model));
+
+    //WHEN
+    listener.onClick(itemView);
+
+    //THEN
+    assertThat(firedEvents.isEmpty(), is(true));
+  }
+
+  private static class StubFeatureEvent implements FeatureEvent {
+    final Object model;
+
+    StubFeatureEvent(Object model) {
+      this.model = model;
+    }
+  }
 }
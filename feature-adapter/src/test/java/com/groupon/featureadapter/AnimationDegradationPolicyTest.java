@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.AnimationDegradationPolicy.NONE;
+import static com.groupon.featureadapter.AnimationDegradationPolicy.REASON_CHANGE_COUNT;
+import static com.groupon.featureadapter.AnimationDegradationPolicy.REASON_UPDATE_RATE;
+import static com.groupon.featureadapter.AnimationDegradationPolicy.SHORTEN;
+import static com.groupon.featureadapter.AnimationDegradationPolicy.SKIP;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class AnimationDegradationPolicyTest {
+
+  @Test
+  public void onPendingAnimations_should_notDegrade_when_budgetsAreRespected() {
+    //GIVEN
+    ManualClockPolicy policy = new ManualClockPolicy();
+    policy.onPendingAnimations(1);
+    policy.time = 100;
+
+    //WHEN
+    final int degradation = policy.onPendingAnimations(10);
+
+    //THEN
+    assertThat(degradation, is(NONE));
+  }
+
+  @Test
+  public void onPendingAnimations_should_skipAndReport_when_thereAreTooManyChanges() {
+    //GIVEN
+    ManualClockPolicy policy = new ManualClockPolicy();
+    AnimationDegradationPolicy.OnAnimationsDegradedListener mockListener =
+        createMock(AnimationDegradationPolicy.OnAnimationsDegradedListener.class);
+    mockListener.onAnimationsDegraded(SKIP, REASON_CHANGE_COUNT, 11);
+    replay(mockListener);
+    policy.setOnAnimationsDegradedListener(mockListener);
+
+    //WHEN
+    final int degradation = policy.onPendingAnimations(11);
+
+    //THEN
+    assertThat(degradation, is(SKIP));
+    verify(mockListener);
+  }
+
+  @Test
+  public void onPendingAnimations_should_shorten_when_updatesAreTooFrequent() {
+    //GIVEN
+    AnimationDegradationPolicy.OnAnimationsDegradedListener mockListener =
+        createMock(AnimationDegradationPolicy.OnAnimationsDegradedListener.class);
+    mockListener.onAnimationsDegraded(SHORTEN, REASON_UPDATE_RATE, 1);
+    replay(mockListener);
+    ManualClockPolicy policy = new ManualClockPolicy();
+    policy.setOnAnimationsDegradedListener(mockListener);
+    policy.onPendingAnimations(1);
+    policy.time = 49;
+
+    //WHEN
+    final int degradation = policy.onPendingAnimations(1);
+
+    //THEN
+    assertThat(degradation, is(SHORTEN));
+    verify(mockListener);
+  }
+
+  @Test
+  public void onPendingAnimations_should_skip_when_framesAreTooLong() {
+    //GIVEN
+    ManualClockPolicy policy = new ManualClockPolicy();
+    for (int i = 0; i < 10; i++) {
+      policy.reportFrameDuration(40);
+    }
+
+    //WHEN
+    final int degradation = policy.onPendingAnimations(1);
+
+    //THEN
+    assertThat(degradation, is(SKIP));
+  }
+
+  @Test
+  public void onPendingAnimations_should_notSkip_when_noFrameWasReportedRecently() {
+    //GIVEN
+    ManualClockPolicy policy = new ManualClockPolicy();
+    for (int i = 0; i < 10; i++) {
+      policy.reportFrameDuration(40);
+    }
+    policy.time = 50;
+
+    //WHEN
+    final int degradation = policy.onPendingAnimations(1);
+
+    //THEN
+    assertThat(degradation, is(NONE));
+  }
+
+  @Test
+  public void reportFrameDuration_should_restartTheAverage_when_noFrameWasReportedRecently() {
+    //GIVEN
+    ManualClockPolicy policy = new ManualClockPolicy();
+    for (int i = 0; i < 10; i++) {
+      policy.reportFrameDuration(400);
+    }
+    policy.time = 1000;
+
+    //WHEN
+    policy.reportFrameDuration(16);
+    final int degradation = policy.onPendingAnimations(1);
+
+    //THEN
+    assertThat(degradation, is(NONE));
+  }
+
+  private static class ManualClockPolicy extends AnimationDegradationPolicy {
+    long time;
+
+    ManualClockPolicy() {
+      super(/* maxAnimatedChanges */ 10, /* minUpdateInterval */ 50, /* maxFrameDuration */ 32);
+    }
+
+    @Override
+    long now() {
+      return time;
+    }
+  }
+}
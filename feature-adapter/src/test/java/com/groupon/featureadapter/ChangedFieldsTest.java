@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ChangedFieldsTest {
+
+  @Test
+  public void of_should_combineTheBitmasks() {
+    //GIVEN
+    //WHEN
+    long changedFields = ChangedFields.of(asList((Object) 1L, 4L));
+
+    //THEN
+    assertThat(changedFields, is(5L));
+  }
+
+  @Test
+  public void of_should_returnAll_when_thereIsNoPayload_or_aPayloadIsNotABitmask() {
+    //GIVEN
+    //WHEN
+    long emptyChangedFields = ChangedFields.of(emptyList());
+    long mixedChangedFields = ChangedFields.of(asList((Object) 1L, "isHighlighted"));
+
+    //THEN
+    assertThat(emptyChangedFields, is(ChangedFields.ALL));
+    assertThat(mixedChangedFields, is(ChangedFields.ALL));
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.DiffBudget.NO_LIMIT;
+import static com.groupon.featureadapter.DiffBudget.REASON_COMPARISON_COUNT;
+import static com.groupon.featureadapter.DiffBudget.REASON_DURATION;
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.resetToNice;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+
+public class DiffBudgetTest {
+
+  @Test
+  public void updateFeatureItems_should_changeTheWindow_when_theDiffExceedsTheComparisonBudget()
+      throws Exception {
+    //GIVEN
+    EqualItemsDelegate delegate = new EqualItemsDelegate();
+    ItemsController controller = new ItemsController(delegate);
+    FeaturesAdapter<List<String>> featuresAdapter =
+        new FeaturesAdapter<>(singletonList((FeatureController<List<String>>) controller));
+    DiffBudget diffBudget = new DiffBudget(/* maxComparisons */ 2, NO_LIMIT);
+    DiffBudget.OnDiffFallbackListener mockListener =
+        createMock(DiffBudget.OnDiffFallbackListener.class);
+    mockListener.onDiffFallback(controller, REASON_COMPARISON_COUNT, 3, 4);
+    replay(mockListener);
+    diffBudget.setOnDiffFallbackListener(mockListener);
+    featuresAdapter.setDiffBudget(diffBudget);
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 5);
+    observer.onItemRangeChanged(1, 3, null);
+    observer.onItemRangeInserted(4, 1);
+    replay(observer);
+    featuresAdapter.updateFeatureItems(asList("a", "b", "c", "d", "e"));
+
+    //WHEN
+    featuresAdapter.updateFeatureItems(asList("a", "x", "y", "z", "c", "e"));
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(6));
+    assertThat(diffBudget.getDiffCount(), is(1L));
+    assertThat(diffBudget.getFallbackCount(), is(1L));
+    assertThat(diffBudget.getFallbackRate(), is(1f));
+    verify(mockListener, observer);
+  }
+
+  @Test
+  public void updateFeatureItems_should_diffTheWindow_when_theControllerHasAHigherBudget()
+      throws Exception {
+    //GIVEN
+    EqualItemsDelegate delegate = new EqualItemsDelegate();
+    ItemsController controller = new ItemsController(delegate);
+    FeaturesAdapter<List<String>> featuresAdapter =
+        new FeaturesAdapter<>(singletonList((FeatureController<List<String>>) controller));
+    DiffBudget diffBudget = new DiffBudget(/* maxComparisons */ 2, NO_LIMIT);
+    diffBudget.setLimits(controller, NO_LIMIT, NO_LIMIT);
+    featuresAdapter.setDiffBudget(diffBudget);
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    resetToNice(observer);
+    replay(observer);
+    featuresAdapter.updateFeatureItems(asList("a", "b", "c", "d", "e"));
+
+    //WHEN
+    featuresAdapter.updateFeatureItems(asList("a", "c", "x", "e"));
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(4));
+    assertThat(diffBudget.getDiffCount(), is(1L));
+    assertThat(diffBudget.getFallbackCount(), is(0L));
+    assertThat(diffBudget.getFallbackRate(), is(0f));
+  }
+
+  @Test
+  public void calculateDiffWithinBudget_should_abort_when_theDiffTakesTooLong() throws Exception {
+    //GIVEN
+    EqualItemsDelegate delegate = new EqualItemsDelegate();
+    ItemsController controller = new ItemsController(delegate);
+    ManualClockDiffBudget diffBudget = new ManualClockDiffBudget(/* maxDiffDuration */ 16);
+    DiffBudget.OnDiffFallbackListener mockListener =
+        createMock(DiffBudget.OnDiffFallbackListener.class);
+    mockListener.onDiffFallback(controller, REASON_DURATION, 100, 100);
+    replay(mockListener);
+    diffBudget.setOnDiffFallbackListener(mockListener);
+    List<ViewItem> oldItems = createItems(delegate, "old", 100);
+    List<ViewItem> newItems = createItems(delegate, "new", 100);
+
+    //WHEN
+    FeatureDiff featureDiff =
+        FeatureDiff.calculate(
+            singletonMap(delegate.getViewType(), delegate.createDiffUtilComparator())::get,
+            diffBudget,
+            controller,
+            oldItems,
+            newItems);
+
+    //THEN
+    ListUpdateCallback mockCallback = createMock(ListUpdateCallback.class);
+    mockCallback.onChanged(0, 100, null);
+    replay(mockCallback);
+    featureDiff.dispatchUpdatesTo(mockCallback);
+    assertThat(diffBudget.getFallbackCount(), is(1L));
+    verify(mockListener, mockCallback);
+  }
+
+  private static List<ViewItem> createItems(
+      EqualItemsDelegate delegate, String prefix, int count) {
+    final List<ViewItem> items = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      items.add(new ViewItem<>(prefix + i, delegate));
+    }
+    return items;
+  }
+
+  /** The items are the same if their models are equal. */
+  private static class EqualItemsDelegate extends StubAdapterViewTypeDelegate {
+    @Override
+    public DiffUtilComparator createDiffUtilComparator() {
+      return new DiffUtilComparator<String>() {
+        @Override
+        public boolean areItemsTheSame(String oldModel, String newModel) {
+          return oldModel.equals(newModel);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldModel, String newModel) {
+          return oldModel.equals(newModel);
+        }
+
+        @Override
+        public Object getChangePayload(String oldModel, String newModel) {
+          return null;
+        }
+      };
+    }
+  }
+
+  /** Builds an item per string of the model, the items are the same if their strings are equal. */
+  private static class ItemsController extends FeatureController<List<String>> {
+    private final EqualItemsDelegate delegate;
+
+    ItemsController(EqualItemsDelegate delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+      return singletonList((AdapterViewTypeDelegate) delegate);
+    }
+
+    @Override
+    public List<ViewItem> buildItems(List<String> model) {
+      final List<ViewItem> items = new ArrayList<>();
+      for (String string : model) {
+        items.add(new ViewItem<>(string, delegate));
+      }
+      return items;
+    }
+  }
+
+  /** Every read of the clock advances it by 10 milliseconds. */
+  private static class ManualClockDiffBudget extends DiffBudget {
+    long time;
+
+    ManualClockDiffBudget(long maxDiffDuration) {
+      super(NO_LIMIT, maxDiffDuration);
+    }
+
+    @Override
+    long now() {
+      time += 10;
+      return time;
+    }
+  }
+}
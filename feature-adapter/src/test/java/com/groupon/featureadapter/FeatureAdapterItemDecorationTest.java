@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import com.groupon.featurecontrol.R;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.easymock.Capture;
+import org.junit.Test;
+
+public class FeatureAdapterItemDecorationTest {
+
+  private final RecyclerView.Adapter adapter = createNiceMock(RecyclerView.Adapter.class);
+  private final Capture<RecyclerView.AdapterDataObserver> observerCapture = newCapture();
+
+  @Test
+  public void getItemOffsets_should_reuseTheCachedOffsets_until_theAdapterNotifiesAChange()
+      throws Exception {
+    //GIVEN
+    FeatureAdapterItemDecoration itemDecoration = new FeatureAdapterItemDecoration();
+    CountingItemDecoration decoration = new CountingItemDecoration();
+    itemDecoration.registerFeatureDecoration(decoration, createDelegate(0), true);
+    View view = createView("model");
+    RecyclerView parent = createParent(singletonViewList(view), singletonHolderList(view, 0));
+
+    //WHEN
+    itemDecoration.getItemOffsets(new Rect(), view, parent, null);
+    itemDecoration.getItemOffsets(new Rect(), view, parent, null);
+    int offsetCountBeforeChange = decoration.offsetCount;
+    observerCapture.getValue().onItemRangeChanged(0, 1, null);
+    itemDecoration.getItemOffsets(new Rect(), view, parent, null);
+
+    //THEN
+    assertThat(offsetCountBeforeChange, is(1));
+    assertThat(decoration.offsetCount, is(2));
+  }
+
+  @Test
+  public void getItemOffsets_should_computeTheOffsetsEveryTime_when_theyAreNotCached()
+      throws Exception {
+    //GIVEN
+    FeatureAdapterItemDecoration itemDecoration = new FeatureAdapterItemDecoration();
+    CountingItemDecoration decoration = new CountingItemDecoration();
+    itemDecoration.registerFeatureDecoration(decoration, createDelegate(0));
+    View view = createView("model");
+    RecyclerView parent = createParent(singletonViewList(view), singletonHolderList(view, 0));
+
+    //WHEN
+    itemDecoration.getItemOffsets(new Rect(), view, parent, null);
+    itemDecoration.getItemOffsets(new Rect(), view, parent, null);
+
+    //THEN
+    assertThat(decoration.offsetCount, is(2));
+  }
+
+  @Test
+  public void onDraw_should_passAllTheViewsOfABatchedViewTypeInOneCall() throws Exception {
+    //GIVEN
+    FeatureAdapterItemDecoration itemDecoration = new FeatureAdapterItemDecoration();
+    RecordingBatchItemDecoration batchDecoration = new RecordingBatchItemDecoration();
+    CountingItemDecoration decoration = new CountingItemDecoration();
+    itemDecoration.registerFeatureDecoration(batchDecoration, createDelegate(0));
+    itemDecoration.registerFeatureDecoration(decoration, createDelegate(1));
+    List<View> views = new ArrayList<>();
+    List<RecyclerView.ViewHolder> holders = new ArrayList<>();
+    for (int viewType : new int[] {0, 1, 0}) {
+      View view = createView(null);
+      views.add(view);
+      holders.add(createHolder(view, viewType));
+    }
+    RecyclerView parent = createParent(views, holders);
+
+    //WHEN
+    itemDecoration.onDraw(null, parent, null);
+    itemDecoration.onDraw(null, parent, null);
+
+    //THEN
+    assertThat(batchDecoration.batchSizes.toString(), is("[2, 2]"));
+    assertThat(batchDecoration.firstBatchViews.get(0), is(views.get(0)));
+    assertThat(batchDecoration.firstBatchViews.get(1), is(views.get(2)));
+    assertThat(decoration.drawCount, is(2));
+  }
+
+  private RecyclerView createParent(List<View> views, List<RecyclerView.ViewHolder> holders) {
+    final RecyclerView parent = createNiceMock(RecyclerView.class);
+    expect(parent.getAdapter()).andStubReturn(adapter);
+    expect(parent.getLayoutManager())
+        .andStubReturn(createNiceMock(RecyclerView.LayoutManager.class));
+    expect(parent.getChildCount()).andStubReturn(views.size());
+    for (int i = 0; i < views.size(); i++) {
+      expect(parent.getChildAt(i)).andStubReturn(views.get(i));
+      expect(parent.getChildViewHolder(views.get(i))).andStubReturn(holders.get(i));
+    }
+    adapter.registerAdapterDataObserver(capture(observerCapture));
+    replay(parent, adapter);
+    return parent;
+  }
+
+  private static List<View> singletonViewList(View view) {
+    final List<View> views = new ArrayList<>();
+    views.add(view);
+    return views;
+  }
+
+  private static List<RecyclerView.ViewHolder> singletonHolderList(View view, int viewType)
+      throws Exception {
+    final List<RecyclerView.ViewHolder> holders = new ArrayList<>();
+    holders.add(createHolder(view, viewType));
+    return holders;
+  }
+
+  private static AdapterViewTypeDelegate createDelegate(int viewType) {
+    final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    delegate.setViewType(viewType);
+    return delegate;
+  }
+
+  private static View createView(Object model) {
+    final View view = new TagView();
+    view.setTag(R.id.feature_adapter_bound_model, model);
+    return view;
+  }
+
+  private static RecyclerView.ViewHolder createHolder(View view, int viewType) throws Exception {
+    final RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(view) {};
+    final Field viewTypeField = RecyclerView.ViewHolder.class.getDeclaredField("mItemViewType");
+    viewTypeField.setAccessible(true);
+    viewTypeField.setInt(holder, viewType);
+    return holder;
+  }
+
+  private static class CountingItemDecoration implements FeatureItemDecoration {
+    int offsetCount;
+    int drawCount;
+
+    @Override
+    public void getItemOffsetsImpl(
+        Rect outRect,
+        View view,
+        RecyclerView.ViewHolder holder,
+        RecyclerView parent,
+        RecyclerView.State state) {
+      offsetCount++;
+    }
+
+    @Override
+    public void onDrawViewImpl(
+        Canvas canvas,
+        View view,
+        RecyclerView.ViewHolder holder,
+        RecyclerView parent,
+        RecyclerView.State state) {
+      drawCount++;
+    }
+  }
+
+  private static class RecordingBatchItemDecoration implements BatchFeatureItemDecoration {
+    final List<Integer> batchSizes = new ArrayList<>();
+    List<View> firstBatchViews;
+
+    @Override
+    public void onDrawViewsImpl(
+        Canvas canvas,
+        List<View> views,
+        List<RecyclerView.ViewHolder> holders,
+        RecyclerView parent,
+        RecyclerView.State state) {
+      batchSizes.add(views.size());
+      if (firstBatchViews == null) {
+        firstBatchViews = new ArrayList<>(views);
+      }
+    }
+
+    @Override
+    public void getItemOffsetsImpl(
+        Rect outRect,
+        View view,
+        RecyclerView.ViewHolder holder,
+        RecyclerView parent,
+        RecyclerView.State state) {}
+  }
+
+  /** A view that keeps its keyed tags, as the android.jar used by unit tests does not. */
+  private static class TagView extends View {
+    private final Map<Integer, Object> tags = new HashMap<>();
+
+    TagView() {
+      super(null);
+    }
+
+    @Override
+    public Object getTag(int key) {
+      return tags.get(key);
+    }
+
+    @Override
+    public void setTag(int key, Object tag) {
+      tags.put(key, tag);
+    }
+  }
+}
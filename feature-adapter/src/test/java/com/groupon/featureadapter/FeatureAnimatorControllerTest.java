@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.FeatureAnimatorController.MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import android.animation.Animator;
+import android.animation.TimeInterpolator;
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.RecyclerView.ItemAnimator;
+import android.support.v7.widget.RecyclerView.ItemAnimator.ItemHolderInfo;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+import android.widget.LinearLayout;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class FeatureAnimatorControllerTest {
+
+  private final ItemAnimator itemAnimator = createNiceMock(ItemAnimator.class);
+  private final ItemHolderInfo holderInfo = new ItemHolderInfo();
+
+  @Test
+  public void getFeatureAnimatorListener_should_returnTheListenerOfTheViewType() throws Exception {
+    //GIVEN
+    FeatureAnimatorController controller = new FeatureAnimatorController();
+    FeatureAnimatorListener listener0 = createMock(FeatureAnimatorListener.class);
+    FeatureAnimatorListener listener2 = createMock(FeatureAnimatorListener.class);
+
+    //WHEN
+    controller.registerFeatureAnimatorListener(listener0, createDelegate(0));
+    controller.registerFeatureAnimatorListener(listener2, createDelegate(2));
+
+    //THEN
+    assertThat(controller.getFeatureAnimatorListener(createHolder(0)), sameInstance(listener0));
+    assertThat(controller.getFeatureAnimatorListener(createHolder(1)), nullValue());
+    assertThat(controller.getFeatureAnimatorListener(createHolder(2)), sameInstance(listener2));
+    assertThat(controller.getFeatureAnimatorListener(createHolder(3)), nullValue());
+  }
+
+  @Test
+  public void registerFeatureAnimatorListener_should_ignoreTheDelegate_when_itHasNoViewType()
+      throws Exception {
+    //GIVEN
+    FeatureAnimatorController controller = new FeatureAnimatorController();
+    FeatureAnimatorListener listener = createMock(FeatureAnimatorListener.class);
+
+    //WHEN
+    controller.registerFeatureAnimatorListener(listener, new StubAdapterViewTypeDelegate());
+
+    //THEN
+    assertThat(controller.getFeatureAnimatorListener(createHolder(0)), nullValue());
+    assertThat(controller.getFeatureAnimatorListener(createHolder(RecyclerView.INVALID_TYPE)), nullValue());
+  }
+
+  @Test
+  public void animateChange_should_reuseTheEndedAnimators_when_theListenerIsRecycling()
+      throws Exception {
+    //GIVEN
+    FeatureAnimatorController controller = new FeatureAnimatorController();
+    StubRecyclingAnimatorListener listener = new StubRecyclingAnimatorListener();
+    controller.registerFeatureAnimatorListener(listener, createDelegate(0));
+    controller.animateChange(itemAnimator, createHolder(0), createHolder(0), holderInfo, holderInfo);
+    StubAnimator firstAnimator = listener.createdAnimators.get(0);
+
+    //WHEN
+    firstAnimator.end();
+    controller.animateChange(itemAnimator, createHolder(0), createHolder(0), holderInfo, holderInfo);
+
+    //THEN
+    assertThat(listener.createdAnimators.size(), is(1));
+    assertThat(listener.recycledAnimators.get(1), sameInstance((Animator) firstAnimator));
+    // the end listener was added once, and is reused with the animator
+    assertThat(firstAnimator.listeners.size(), is(1));
+    assertThat(controller.isRunning(), is(true));
+  }
+
+  @Test
+  public void animateChange_should_keepAtMostTheMaximumOfAnimatorsPerViewType() throws Exception {
+    //GIVEN
+    FeatureAnimatorController controller = new FeatureAnimatorController();
+    StubRecyclingAnimatorListener listener = new StubRecyclingAnimatorListener();
+    controller.registerFeatureAnimatorListener(listener, createDelegate(0));
+    int animatorCount = MAX_RECYCLED_ANIMATORS_PER_VIEW_TYPE + 1;
+    for (int i = 0; i < animatorCount; i++) {
+      controller.animateChange(itemAnimator, createHolder(0), createHolder(0), holderInfo, holderInfo);
+    }
+    for (StubAnimator animator : new ArrayList<>(listener.createdAnimators)) {
+      animator.end();
+    }
+
+    //WHEN
+    for (int i = 0; i < animatorCount; i++) {
+      controller.animateChange(itemAnimator, createHolder(0), createHolder(0), holderInfo, holderInfo);
+    }
+
+    //THEN
+    // the pooled animators are handed back, the extra one was dropped and a new one is created
+    assertThat(controller.isRunning(), is(true));
+    assertThat(listener.createdAnimators.size(), is(animatorCount + 1));
+    for (int i = animatorCount; i < 2 * animatorCount - 1; i++) {
+      assertThat(listener.recycledAnimators.get(i) != null, is(true));
+    }
+    assertThat(listener.recycledAnimators.get(2 * animatorCount - 1), nullValue());
+  }
+
+  private static AdapterViewTypeDelegate createDelegate(int viewType) {
+    final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    delegate.setViewType(viewType);
+    return delegate;
+  }
+
+  private static ViewHolder createHolder(int viewType) throws Exception {
+    final ViewHolder holder = new ViewHolder(new LinearLayout(createMock(Context.class))) {};
+    final Field viewTypeField = ViewHolder.class.getDeclaredField("mItemViewType");
+    viewTypeField.setAccessible(true);
+    viewTypeField.setInt(holder, viewType);
+    return holder;
+  }
+
+  /** Creates an animator when the pool is empty, and records the recycled animators it gets. */
+  private static class StubRecyclingAnimatorListener
+      implements RecyclingFeatureAnimatorListener<ViewHolder, ItemHolderInfo> {
+    final List<StubAnimator> createdAnimators = new ArrayList<>();
+    final List<Animator> recycledAnimators = new ArrayList<>();
+
+    @Override
+    public ItemHolderInfo getPreLayoutInformation(ViewHolder viewHolder) {
+      return null;
+    }
+
+    @Override
+    public ItemHolderInfo getPostLayoutInformation(ViewHolder viewHolder) {
+      return null;
+    }
+
+    @Override
+    public Animator setupChangeAnimation(
+        ItemAnimator itemAnimator,
+        ViewHolder oldHolder,
+        ViewHolder newHolder,
+        ItemHolderInfo preInfo,
+        ItemHolderInfo postInfo,
+        Animator recycledAnimator) {
+      recycledAnimators.add(recycledAnimator);
+      if (recycledAnimator != null) {
+        return recycledAnimator;
+      }
+      final StubAnimator animator = new StubAnimator();
+      createdAnimators.add(animator);
+      return animator;
+    }
+  }
+
+  /** An animator that keeps its listeners, and ends immediately. */
+  private static class StubAnimator extends Animator {
+    final List<AnimatorListener> listeners = new ArrayList<>();
+
+    @Override
+    public void addListener(AnimatorListener listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public void end() {
+      for (AnimatorListener listener : new ArrayList<>(listeners)) {
+        listener.onAnimationEnd(this);
+      }
+    }
+
+    @Override
+    public long getStartDelay() {
+      return 0;
+    }
+
+    @Override
+    public void setStartDelay(long startDelay) {}
+
+    @Override
+    public Animator setDuration(long duration) {
+      return this;
+    }
+
+    @Override
+    public long getDuration() {
+      return 0;
+    }
+
+    @Override
+    public void setInterpolator(TimeInterpolator value) {}
+
+    @Override
+    public boolean isRunning() {
+      return false;
+    }
+  }
+}
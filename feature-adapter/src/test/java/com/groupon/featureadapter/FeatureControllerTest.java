@@ -16,12 +16,16 @@
 package com.groupon.featureadapter;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
 
 import com.groupon.featureadapter.events.FeatureEvent;
 import com.groupon.featureadapter.events.FeatureEventListener;
+import java.util.List;
 import org.junit.Test;
 
 public class FeatureControllerTest {
@@ -64,4 +68,70 @@ public class FeatureControllerTest {
     //THEN
     verify(mockListener);
   }
+
+  @Test
+  public void addFeatureEventListener_should_onlyRelayTheEventsOfTheGivenClass() {
+    //GIVEN
+    AdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeatureController<String> featureController =
+        new StubFeatureController<>(asList(stubAdapterViewTypeDelegate));
+    FeatureEventListener mockListener = createMock(FeatureEventListener.class);
+    final FeatureEvent tapEvent = new TapEvent();
+    final FeatureEvent otherEvent = new FeatureEvent() {};
+    mockListener.onFeatureEvent(tapEvent);
+    replay(mockListener);
+
+    //WHEN
+    featureController.addFeatureEventListener(TapEvent.class, mockListener);
+    stubAdapterViewTypeDelegate.fireEvent(otherEvent);
+    stubAdapterViewTypeDelegate.fireEvent(tapEvent);
+
+    //THEN
+    verify(mockListener);
+  }
+
+  @Test
+  public void removeFeatureEventListener_should_stopRelayingTheEventsOfTheGivenClass() {
+    //GIVEN
+    AdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeatureController<String> featureController =
+        new StubFeatureController<>(asList(stubAdapterViewTypeDelegate));
+    FeatureEventListener mockListener = createMock(FeatureEventListener.class);
+    final FeatureEvent tapEvent = new TapEvent();
+    mockListener.onFeatureEvent(tapEvent);
+    replay(mockListener);
+
+    //WHEN
+    featureController.addFeatureEventListener(TapEvent.class, mockListener);
+    stubAdapterViewTypeDelegate.fireEvent(tapEvent);
+    featureController.removeFeatureEventListener(TapEvent.class, mockListener);
+    stubAdapterViewTypeDelegate.fireEvent(tapEvent);
+
+    //THEN
+    verify(mockListener);
+  }
+
+  private static class TapEvent implements FeatureEvent {}
+
+  @Test
+  public void addFeatureEventListener_should_notGetTheAdapterViewTypeDelegatesAgain() {
+    //GIVEN
+    final int[] getDelegatesCount = new int[1];
+    FeatureController<String> featureController =
+        new StubFeatureController<String>(asList(new StubAdapterViewTypeDelegate())) {
+          @Override
+          public List<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+            getDelegatesCount[0]++;
+            return super.getAdapterViewTypeDelegates();
+          }
+        };
+    new FeaturesAdapter<>(singletonList(featureController));
+
+    //WHEN
+    featureController.addFeatureEventListener(createMock(FeatureEventListener.class));
+    featureController.addFeatureEventListener(createMock(FeatureEventListener.class));
+
+    //THEN
+    assertThat(getDelegatesCount[0], is(1));
+  }
 }
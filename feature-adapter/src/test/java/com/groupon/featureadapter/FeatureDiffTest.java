@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static android.support.v7.util.DiffUtil.calculateDiff;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import android.support.v7.util.DiffUtil.DiffResult;
+import android.support.v7.util.ListUpdateCallback;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class FeatureDiffTest {
+
+  private final StubAdapterViewTypeDelegate delegate = createDelegate();
+  private final Map<Integer, DiffUtilComparator> comparatorMap =
+      singletonMap(0, (DiffUtilComparator) new VersionedItemComparator());
+  private final DiffUtilComparators comparators = comparatorMap::get;
+
+  @Test
+  public void calculate_should_insertAllTheItems_when_theOldItemsAreEmpty() {
+    //GIVEN
+    List<ViewItem> newItems = createItems("a:0", "b:0", "c:0");
+
+    //WHEN
+    RecordingListUpdateCallback callback =
+        dispatch(FeatureDiff.calculate(comparators, emptyList(), newItems), emptyList());
+
+    //THEN
+    assertThat(callback.operations.toString(), is("[insert 0 3]"));
+  }
+
+  @Test
+  public void calculate_should_notDispatchAnything_when_theItemsAreTheSameList() {
+    //GIVEN
+    List<ViewItem> items = createItems("a:0", "b:0");
+
+    //WHEN
+    RecordingListUpdateCallback callback =
+        dispatch(FeatureDiff.calculate(comparators, items, items), items);
+
+    //THEN
+    assertThat(callback.operations.toString(), is("[]"));
+  }
+
+  @Test
+  public void calculate_should_changeASingleRow_when_theOtherRowsAreTheSame() {
+    //GIVEN
+    List<ViewItem> oldItems = createItems("a:0", "b:0", "c:0", "d:0");
+    List<ViewItem> newItems = createItems("a:0", "b:0", "c:1", "d:0");
+
+    //WHEN
+    FeatureDiff featureDiff = FeatureDiff.calculate(comparators, oldItems, newItems);
+    RecordingListUpdateCallback callback = dispatch(featureDiff, oldItems);
+
+    //THEN
+    assertThat(callback.operations.toString(), is("[change 2 1 c:1]"));
+    assertThat(featureDiff.getWholeDiffResult(), nullValue());
+  }
+
+  @Test
+  public void calculateWholeDiffResult_should_diffTheWholeLists_when_theDiffWasTrimmed() {
+    //GIVEN
+    List<ViewItem> oldItems = createItems("a:0", "b:0", "c:0", "d:0");
+    List<ViewItem> newItems = createItems("a:0", "b:0", "c:1", "d:0");
+    FeatureDiff featureDiff = FeatureDiff.calculate(comparators, oldItems, newItems);
+
+    //WHEN
+    DiffResult wholeDiffResult = featureDiff.calculateWholeDiffResult();
+    RecordingListUpdateCallback callback = new RecordingListUpdateCallback(oldItems);
+    wholeDiffResult.dispatchUpdatesTo(callback);
+
+    //THEN
+    assertThat(callback.operations.toString(), is("[change 2 1 c:1]"));
+    assertThat(featureDiff.calculateWholeDiffResult(), sameInstance(wholeDiffResult));
+  }
+
+  @Test
+  public void calculate_should_beEquivalentToAFullDiff() {
+    //GIVEN
+    Random random = new Random(42);
+
+    for (int run = 0; run < 500; run++) {
+      List<ViewItem> oldItems = createRandomItems(random);
+      List<ViewItem> newItems = editRandomly(random, oldItems);
+
+      //WHEN
+      RecordingListUpdateCallback trimmedCallback =
+          dispatch(FeatureDiff.calculate(comparators, oldItems, newItems), oldItems);
+      RecordingListUpdateCallback fullCallback = new RecordingListUpdateCallback(oldItems);
+      calculateDiff(new DiffUtilCallbackImpl(comparators, oldItems, newItems), false)
+          .dispatchUpdatesTo(fullCallback);
+
+      //THEN
+      String message = oldItems + " -> " + newItems;
+      trimmedCallback.assertTransforms(message, newItems);
+      fullCallback.assertTransforms(message, newItems);
+      assertThat(message, trimmedCallback.insertedCount, is(fullCallback.insertedCount));
+      assertThat(message, trimmedCallback.removedCount, is(fullCallback.removedCount));
+    }
+  }
+
+  @Test
+  public void calculate_should_compareTheHashesOfTheWindowItems_atTheirPositionInTheLists() {
+    //GIVEN
+    DiffUtilComparator hashedItemComparator = new HashedItemComparator();
+    DiffUtilComparators hashedItemComparators = viewType -> hashedItemComparator;
+    List<ViewItem> oldItems = createItems("a:0", "b:0", "c:0");
+    List<ViewItem> newItems = createItems("a:0", "x:0", "b:0", "c:0");
+
+    //WHEN
+    FeatureDiff featureDiff =
+        FeatureDiff.calculate(
+            hashedItemComparators,
+            null,
+            null,
+            oldItems,
+            new long[] {1, 2, 3},
+            newItems,
+            new long[] {1, 9, 2, 3});
+    RecordingListUpdateCallback callback = dispatch(featureDiff, oldItems);
+
+    //THEN
+    assertThat(callback.operations.toString(), is("[insert 1 1]"));
+  }
+
+  private static RecordingListUpdateCallback dispatch(
+      FeatureDiff featureDiff, List<ViewItem> oldItems) {
+    final RecordingListUpdateCallback callback = new RecordingListUpdateCallback(oldItems);
+    featureDiff.dispatchUpdatesTo(callback);
+    return callback;
+  }
+
+  private static StubAdapterViewTypeDelegate createDelegate() {
+    final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    delegate.setViewType(0);
+    return delegate;
+  }
+
+  private List<ViewItem> createItems(String... models) {
+    final List<ViewItem> items = new ArrayList<>();
+    for (String model : models) {
+      items.add(new ViewItem<>(model, delegate));
+    }
+    return items;
+  }
+
+  private List<ViewItem> createRandomItems(Random random) {
+    final List<ViewItem> items = new ArrayList<>();
+    final int size = random.nextInt(12);
+    for (int i = 0; i < size; i++) {
+      items.add(new ViewItem<>(i + ":0", delegate));
+    }
+    return items;
+  }
+
+  private List<ViewItem> editRandomly(Random random, List<ViewItem> oldItems) {
+    final List<ViewItem> newItems = new ArrayList<>(oldItems);
+    final int editCount = random.nextInt(4);
+    int nextId = 100;
+    for (int i = 0; i < editCount; i++) {
+      final int position = newItems.isEmpty() ? 0 : random.nextInt(newItems.size());
+      switch (newItems.isEmpty() ? 0 : random.nextInt(3)) {
+        case 0:
+          newItems.add(position, new ViewItem<>(nextId++ + ":0", delegate));
+          break;
+        case 1:
+          newItems.remove(position);
+          break;
+        default:
+          final String model = (String) newItems.get(position).model;
+          newItems.set(position, new ViewItem<>(model.replace(":0", ":1"), delegate));
+          break;
+      }
+    }
+    return newItems;
+  }
+
+  /** Items are the same if their ids, before the colon, are equal. */
+  private static class VersionedItemComparator implements DiffUtilComparator<String> {
+    @Override
+    public boolean areItemsTheSame(String oldModel, String newModel) {
+      return oldModel.substring(0, oldModel.indexOf(':'))
+          .equals(newModel.substring(0, newModel.indexOf(':')));
+    }
+
+    @Override
+    public boolean areContentsTheSame(String oldModel, String newModel) {
+      return oldModel.equals(newModel);
+    }
+
+    @Override
+    public Object getChangePayload(String oldModel, String newModel) {
+      return newModel;
+    }
+  }
+
+  /** Compares the contents of the items by the hashes they are diffed with. */
+  private static class HashedItemComparator extends VersionedItemComparator
+      implements ContentHashComparator<String> {
+    @Override
+    public long getContentHash(String model) {
+      throw new AssertionError("the items are already hashed");
+    }
+
+    @Override
+    public boolean areContentsTheSame(String oldModel, String newModel) {
+      throw new AssertionError("equal hashes are not confirmed");
+    }
+  }
+
+  /** Applies the operations to a copy of the old items. */
+  private static class RecordingListUpdateCallback implements ListUpdateCallback {
+    final List<String> operations = new ArrayList<>();
+    final List<Object> items;
+    int insertedCount;
+    int removedCount;
+
+    RecordingListUpdateCallback(List<ViewItem> oldItems) {
+      items = new ArrayList<>();
+      for (ViewItem oldItem : oldItems) {
+        items.add(oldItem.model);
+      }
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      operations.add("insert " + position + " " + count);
+      insertedCount += count;
+      for (int i = 0; i < count; i++) {
+        items.add(position, null);
+      }
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      operations.add("remove " + position + " " + count);
+      removedCount += count;
+      for (int i = 0; i < count; i++) {
+        items.remove(position);
+      }
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      throw new AssertionError("moves are not detected");
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      operations.add("change " + position + " " + count + " " + payload);
+      for (int i = position; i < position + count; i++) {
+        items.set(i, payload);
+      }
+    }
+
+    /** Inserted items are null, changed items are replaced by their payload, the new model. */
+    void assertTransforms(String message, List<ViewItem> newItems) {
+      assertThat(message, items.size(), is(newItems.size()));
+      for (int i = 0; i < newItems.size(); i++) {
+        if (items.get(i) != null) {
+          assertThat(message, items.get(i), is(newItems.get(i).model));
+        }
+      }
+    }
+  }
+}
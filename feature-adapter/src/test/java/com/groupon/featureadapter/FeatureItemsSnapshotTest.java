@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import android.support.v7.widget.RecyclerView;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureItemsSnapshotTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void restoreSnapshot_should_restoreThePersistedItemsAtOnce() throws Exception {
+    //GIVEN
+    File file = temporaryFolder.newFile();
+    List<ViewItem> items = new ArrayList<>();
+    FeaturesAdapter<String> featuresAdapter = createAdapter(items);
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", getDelegate(featuresAdapter, 0)));
+    items.add(new ViewItem<>("a1", getDelegate(featuresAdapter, 0)));
+    featuresAdapter.updateFeatureItems("a");
+    featuresAdapter.takeSnapshot().writeTo(file);
+
+    FeaturesAdapter<String> restoredAdapter = createAdapter(new ArrayList<>());
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(restoredAdapter);
+    observer.onItemRangeInserted(0, 2);
+    replay(observer);
+
+    //WHEN
+    final FeatureItemsSnapshot snapshot = FeatureItemsSnapshot.readFrom(file, restoredAdapter);
+    final boolean isRestored = restoredAdapter.restoreSnapshot(snapshot);
+
+    //THEN
+    assertThat(isRestored, is(true));
+    assertThat(restoredAdapter.getItemCount(), is(2));
+    verify(observer);
+  }
+
+  @Test
+  public void readFrom_should_discardASnapshotOfAnotherAdapter() throws Exception {
+    //GIVEN
+    File file = temporaryFolder.newFile();
+    FeaturesAdapter<String> featuresAdapter = createAdapter(new ArrayList<>());
+    featuresAdapter.takeSnapshot().writeTo(file);
+    List<FeatureController<String>> otherControllers =
+        asList(
+            new StubFeatureController<>(asList(new SerializableStubDelegate())),
+            new StubFeatureController<>(asList(new SerializableStubDelegate())));
+
+    //WHEN
+    final FeatureItemsSnapshot snapshot =
+        FeatureItemsSnapshot.readFrom(file, new FeaturesAdapter<>(otherControllers));
+
+    //THEN
+    assertThat(snapshot, nullValue());
+    assertThat(FeatureItemsSnapshot.readFrom(file, featuresAdapter), notNullValue());
+  }
+
+  @Test
+  public void readFrom_should_discardASnapshot_when_theVersionOfASerializerChanged()
+      throws Exception {
+    //GIVEN
+    File file = temporaryFolder.newFile();
+    createAdapter(new ArrayList<>()).takeSnapshot().writeTo(file);
+
+    //WHEN
+    final FeatureItemsSnapshot snapshot =
+        FeatureItemsSnapshot.readFrom(file, createAdapter(new ArrayList<>(), 1));
+
+    //THEN
+    assertThat(snapshot, nullValue());
+  }
+
+  @Test
+  public void readFrom_should_deleteTheSnapshot_when_itIsTruncated() throws Exception {
+    //GIVEN
+    File file = temporaryFolder.newFile();
+    List<ViewItem> items = new ArrayList<>();
+    FeaturesAdapter<String> featuresAdapter = createAdapter(items);
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", getDelegate(featuresAdapter, 0)));
+    featuresAdapter.updateFeatureItems("a");
+    featuresAdapter.takeSnapshot().writeTo(file);
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    randomAccessFile.setLength(file.length() - 1);
+    randomAccessFile.close();
+
+    //WHEN
+    final FeatureItemsSnapshot snapshot = FeatureItemsSnapshot.readFrom(file, featuresAdapter);
+
+    //THEN
+    assertThat(snapshot, nullValue());
+    assertThat(file.exists(), is(false));
+  }
+
+  private static FeaturesAdapter<String> createAdapter(List<ViewItem> items) {
+    return createAdapter(items, 0);
+  }
+
+  private static FeaturesAdapter<String> createAdapter(List<ViewItem> items, int serializerVersion) {
+    List<FeatureController<String>> featureControllers = new ArrayList<>();
+    featureControllers.add(
+        new StubFeatureController<>(
+            asList(new SerializableStubDelegate(serializerVersion)), items));
+    return new FeaturesAdapter<>(featureControllers);
+  }
+
+  private static AdapterViewTypeDelegate getDelegate(FeaturesAdapter<String> adapter, int viewType) {
+    return adapter.getAdapterViewTypeDelegateForViewType(viewType);
+  }
+
+  private static class SerializableStubDelegate extends StubAdapterViewTypeDelegate {
+    private final int serializerVersion;
+
+    SerializableStubDelegate() {
+      this(0);
+    }
+
+    SerializableStubDelegate(int serializerVersion) {
+      this.serializerVersion = serializerVersion;
+    }
+
+    @Override
+    public FeatureItemSerializer getFeatureItemSerializer() {
+      return new FeatureItemSerializer<String>() {
+        @Override
+        public void write(String model, DataOutput output) throws IOException {
+          output.writeUTF(model);
+        }
+
+        @Override
+        public String read(DataInput input) throws IOException {
+          return input.readUTF();
+        }
+
+        @Override
+        public int getVersion() {
+          return serializerVersion;
+        }
+      };
+    }
+  }
+}
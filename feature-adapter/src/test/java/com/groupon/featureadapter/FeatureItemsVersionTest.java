@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class FeatureItemsVersionTest {
+
+  @Test
+  public void getFeatureItemsVersion_should_notChange_when_theAdapterIsUpdated() throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            asList(new StubFeatureController<>(asList(stubAdapterViewTypeDelegate), items)));
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("a");
+    FeatureItemsVersion version = featuresAdapter.getFeatureItemsVersion();
+
+    //WHEN
+    items.add(new ViewItem<>("b1", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("b");
+
+    //THEN
+    assertThat(version.size(), is(1));
+    assertThat(version.get(0).model, is((Object) "a0"));
+    assertThat(featuresAdapter.getFeatureItemsVersion().size(), is(2));
+    assertThat(featuresAdapter.getFeatureItemsVersion().getVersion() > version.getVersion(), is(true));
+  }
+
+  @Test
+  public void getFeatureItemsVersion_should_shareTheItemsOfTheControllersThatWereNotUpdated()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items0 = new ArrayList<>();
+    List<ViewItem> items2 = new ArrayList<>();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate0 = new StubAdapterViewTypeDelegate();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate1 = new StubAdapterViewTypeDelegate();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate2 = new StubAdapterViewTypeDelegate();
+    StubFeatureController<String> controller0 =
+        new StubFeatureController<>(asList(stubAdapterViewTypeDelegate0), items0);
+    StubFeatureController<String> controller1 =
+        new StubFeatureController<>(asList(stubAdapterViewTypeDelegate1), new ArrayList<>());
+    StubFeatureController<String> controller2 =
+        new StubFeatureController<>(asList(stubAdapterViewTypeDelegate2), items2);
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(asList(controller0, controller1, controller2));
+    fixAdapterForTesting(featuresAdapter);
+    items0.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate0));
+    items2.add(new ViewItem<>("c0", stubAdapterViewTypeDelegate2));
+    items2.add(new ViewItem<>("c1", stubAdapterViewTypeDelegate2));
+    featuresAdapter.updateFeatureItems("a");
+    FeatureItemsVersion version = featuresAdapter.getFeatureItemsVersion();
+
+    //WHEN
+    featuresAdapter.dispatchFeatureUpdate(featuresAdapter.toFeatureUpdate(controller0, "b"));
+    FeatureItemsVersion newVersion = featuresAdapter.getFeatureItemsVersion();
+
+    //THEN
+    assertThat(newVersion.getItems(controller2), sameInstance(version.getItems(controller2)));
+    assertThat(newVersion.getOffset(controller2), is(1));
+    assertThat(newVersion.get(1).model, is((Object) "c0"));
+    assertThat(newVersion.get(2).model, is((Object) "c1"));
+  }
+}
@@ -389,4 +389,430 @@ public class FeaturesAdapterTest {
     //THEN
     verify(stubAdapterViewTypeDelegate);
   }
+
+  @Test
+  public void updateFeatureItems_should_keepTheLastGoodItems_when_buildItemsThrowsInQuarantine()
+      throws Exception {
+    //GIVEN
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate0 = new StubAdapterViewTypeDelegate();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate1 = new StubAdapterViewTypeDelegate();
+    FailingFeatureController failingController =
+        new FailingFeatureController(asList(stubAdapterViewTypeDelegate0));
+    List<ViewItem> items = new ArrayList<>();
+    List<FeatureController<String>> featureControllers =
+        asList(
+            failingController,
+            new StubFeatureController<>(asList(stubAdapterViewTypeDelegate1), items));
+    FeaturesAdapter<String> featuresAdapter = new FeaturesAdapter<>(featureControllers);
+    featuresAdapter.setFeatureQuarantine(new FeatureQuarantine());
+    fixAdapterForTesting(featuresAdapter);
+
+    failingController.items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate0));
+    featuresAdapter.updateFeatureItems("a");
+    failingController.isFailing = true;
+    items.add(new ViewItem<>("b0", stubAdapterViewTypeDelegate1));
+
+    //WHEN
+    featuresAdapter.updateFeatureItems("b");
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(2));
+  }
+
+  @Test
+  public void updateFeatureItems_should_stopBuildingTheItemsOfAQuarantinedController()
+      throws Exception {
+    //GIVEN
+    FailingFeatureController failingController =
+        new FailingFeatureController(asList(new StubAdapterViewTypeDelegate()));
+    failingController.isFailing = true;
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(singletonList(failingController));
+    FeatureQuarantine featureQuarantine = new FeatureQuarantine(2, 2);
+    FeatureQuarantine.OnFeatureErrorListener mockListener =
+        createMock(FeatureQuarantine.OnFeatureErrorListener.class);
+    mockListener.onControllerError(eq(failingController), anyObject(Throwable.class), eq(false));
+    mockListener.onControllerError(eq(failingController), anyObject(Throwable.class), eq(true));
+    replay(mockListener);
+    featureQuarantine.setOnFeatureErrorListener(mockListener);
+    featuresAdapter.setFeatureQuarantine(featureQuarantine);
+    fixAdapterForTesting(featuresAdapter);
+
+    //WHEN
+    featuresAdapter.updateFeatureItems("a");
+    featuresAdapter.updateFeatureItems("b");
+    featuresAdapter.updateFeatureItems("c");
+
+    //THEN
+    assertThat(failingController.buildCount, is(2));
+    assertThat(featureQuarantine.isQuarantined(failingController), is(true));
+    verify(mockListener);
+  }
+
+  @Test
+  public void onBindViewHolder_should_stopBindingAQuarantinedDelegate() throws Exception {
+    //GIVEN
+    final LinearLayout parent = new LinearLayout(createMock(Context.class));
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate =
+        createNiceMock(StubAdapterViewTypeDelegate.class);
+    expect(stubAdapterViewTypeDelegate.getViewType()).andReturn(0).anyTimes();
+    stubAdapterViewTypeDelegate.bindViewHolder(anyObject(ViewHolder.class), eq("a0"));
+    expectLastCall().andThrow(new NullPointerException()).times(2);
+    replay(stubAdapterViewTypeDelegate);
+
+    List<ViewItem> items = new ArrayList<>();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            singletonList(
+                new StubFeatureController<>(asList(stubAdapterViewTypeDelegate), items)));
+    FeatureQuarantine featureQuarantine = new FeatureQuarantine(2, 2);
+    featureQuarantine.setOnFeatureErrorListener(
+        createNiceMock(FeatureQuarantine.OnFeatureErrorListener.class));
+    featuresAdapter.setFeatureQuarantine(featureQuarantine);
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("a");
+
+    //WHEN
+    for (int i = 0; i < 3; i++) {
+      featuresAdapter.onBindViewHolder(new ViewHolder(parent) {}, 0);
+    }
+
+    //THEN
+    verify(stubAdapterViewTypeDelegate);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void onBindViewHolder_should_throwTheErrorOfADelegate_when_itIsNotReported()
+      throws Exception {
+    //GIVEN
+    final LinearLayout parent = new LinearLayout(createMock(Context.class));
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate =
+        createNiceMock(StubAdapterViewTypeDelegate.class);
+    expect(stubAdapterViewTypeDelegate.getViewType()).andReturn(0).anyTimes();
+    stubAdapterViewTypeDelegate.bindViewHolder(anyObject(ViewHolder.class), eq("a0"));
+    expectLastCall().andThrow(new NullPointerException());
+    replay(stubAdapterViewTypeDelegate);
+
+    List<ViewItem> items = new ArrayList<>();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            singletonList(
+                new StubFeatureController<>(asList(stubAdapterViewTypeDelegate), items)));
+    featuresAdapter.setFeatureQuarantine(new FeatureQuarantine());
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("a");
+
+    //WHEN
+    featuresAdapter.onBindViewHolder(new ViewHolder(parent) {}, 0);
+
+    //THEN
+    // the error is thrown
+  }
+
+  @Test
+  public void adoptState_should_installTheRetainedItemsAtOnce_and_skipTheRetainedModel()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            singletonList(
+                new FailingFeatureController(asList(stubAdapterViewTypeDelegate), items)));
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    items.add(new ViewItem<>("a1", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("a");
+    FeaturesAdapterState<String> state = featuresAdapter.retainState();
+
+    FailingFeatureController newController =
+        new FailingFeatureController(asList(new StubAdapterViewTypeDelegate()));
+    FeaturesAdapter<String> newFeaturesAdapter = new FeaturesAdapter<>(singletonList(newController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(newFeaturesAdapter);
+    observer.onItemRangeInserted(0, 2);
+    replay(observer);
+
+    //WHEN
+    final boolean isAdopted = newFeaturesAdapter.adoptState(state);
+    newFeaturesAdapter.updateFeatureItems("a");
+
+    //THEN
+    assertThat(isAdopted, is(true));
+    assertThat(newFeaturesAdapter.getItemCount(), is(2));
+    assertThat(newController.buildCount, is(0));
+    verify(observer);
+  }
+
+  @Test
+  public void adoptState_should_buildTheItems_when_theModelChanged() throws Exception {
+    //GIVEN
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            singletonList(new FailingFeatureController(asList(stubAdapterViewTypeDelegate))));
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems("a");
+    FeaturesAdapterState<String> state = featuresAdapter.retainState();
+
+    FailingFeatureController newController =
+        new FailingFeatureController(asList(new StubAdapterViewTypeDelegate()));
+    FeaturesAdapter<String> newFeaturesAdapter = new FeaturesAdapter<>(singletonList(newController));
+    fixAdapterForTesting(newFeaturesAdapter);
+    newFeaturesAdapter.adoptState(state);
+
+    //WHEN
+    newFeaturesAdapter.updateFeatureItems("b");
+    newFeaturesAdapter.updateFeatureItems("a");
+
+    //THEN
+    assertThat(newController.buildCount, is(2));
+  }
+
+  @Test
+  public void adoptState_should_notAdoptTheState_when_theControllersAreOfOtherClasses()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            asList(
+                new StubFeatureController<>(asList(stubAdapterViewTypeDelegate), items),
+                new FailingFeatureController(asList(new StubAdapterViewTypeDelegate()))));
+    fixAdapterForTesting(featuresAdapter);
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    featuresAdapter.updateFeatureItems("a");
+    FeaturesAdapterState<String> state = featuresAdapter.retainState();
+
+    // the same number of controllers and view types, in another order
+    FailingFeatureController newController =
+        new FailingFeatureController(asList(new StubAdapterViewTypeDelegate()));
+    FeaturesAdapter<String> newFeaturesAdapter =
+        new FeaturesAdapter<>(
+            asList(
+                newController,
+                new StubFeatureController<>(asList(new StubAdapterViewTypeDelegate()))));
+    fixAdapterForTesting(newFeaturesAdapter);
+
+    //WHEN
+    final boolean isAdopted = newFeaturesAdapter.adoptState(state);
+    newFeaturesAdapter.updateFeatureItems("a");
+
+    //THEN
+    assertThat(isAdopted, is(false));
+    assertThat(newController.buildCount, is(1));
+  }
+
+  @Test
+  public void dispatchFeatureUpdate_should_rediffTheUpdate_when_itsBaseItemsWereReplaced()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    StubAdapterViewTypeDelegate stubAdapterViewTypeDelegate = new StubAdapterViewTypeDelegate();
+    StubFeatureController<String> featureController =
+        new StubFeatureController<String>(asList(stubAdapterViewTypeDelegate)) {
+          @Override
+          public List<ViewItem> buildItems(String s) {
+            return new ArrayList<>(items);
+          }
+        };
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(singletonList(featureController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 1);
+    observer.onItemRangeInserted(1, 1);
+    replay(observer);
+
+    // both updates are diffed against the same empty base items
+    items.add(new ViewItem<>("a0", stubAdapterViewTypeDelegate));
+    FeatureUpdate firstFeatureUpdate = featuresAdapter.toFeatureUpdate(featureController, "a");
+    items.add(new ViewItem<>("b1", stubAdapterViewTypeDelegate));
+    FeatureUpdate secondFeatureUpdate = featuresAdapter.toFeatureUpdate(featureController, "b");
+    featuresAdapter.dispatchFeatureUpdate(firstFeatureUpdate);
+
+    //WHEN
+    FeatureUpdate dispatchedFeatureUpdate =
+        featuresAdapter.dispatchFeatureUpdate(secondFeatureUpdate);
+
+    //THEN
+    assertThat(dispatchedFeatureUpdate.baseVersion, is(firstFeatureUpdate.baseVersion + 1));
+    assertThat(featuresAdapter.getItemCount(), is(2));
+    verify(observer);
+  }
+
+  @Test
+  public void updateFeatureItems_should_compareTheContentsOfHashedItemsByHash()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    HashingAdapterViewTypeDelegate hashingDelegate = new HashingAdapterViewTypeDelegate(false);
+    StubFeatureController<String> featureController =
+        new StubFeatureController<String>(asList(hashingDelegate)) {
+          @Override
+          public List<ViewItem> buildItems(String s) {
+            return new ArrayList<>(items);
+          }
+        };
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(singletonList(featureController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 2);
+    observer.onItemRangeChanged(0, 1, null);
+    replay(observer);
+    items.add(new ViewItem<>("a:0", hashingDelegate));
+    items.add(new ViewItem<>("b:0", hashingDelegate));
+    featuresAdapter.updateFeatureItems("");
+
+    //WHEN
+    items.set(0, new ViewItem<>("a:1", hashingDelegate));
+    items.set(1, new ViewItem<>("b:0", hashingDelegate));
+    featuresAdapter.updateFeatureItems("");
+
+    //THEN
+    assertThat(hashingDelegate.contentComparisonCount, is(0));
+    verify(observer);
+  }
+
+  @Test
+  public void updateFeatureItems_should_confirmTheContentsOfItemsWithEqualHashes_when_theComparatorOptsIn()
+      throws Exception {
+    //GIVEN
+    List<ViewItem> items = new ArrayList<>();
+    HashingAdapterViewTypeDelegate hashingDelegate = new HashingAdapterViewTypeDelegate(true);
+    StubFeatureController<String> featureController =
+        new StubFeatureController<String>(asList(hashingDelegate)) {
+          @Override
+          public List<ViewItem> buildItems(String s) {
+            return new ArrayList<>(items);
+          }
+        };
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(singletonList(featureController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 2);
+    observer.onItemRangeChanged(0, 1, null);
+    replay(observer);
+    items.add(new ViewItem<>("a:0", hashingDelegate));
+    items.add(new ViewItem<>("b:0", hashingDelegate));
+    featuresAdapter.updateFeatureItems("");
+
+    //WHEN
+    items.set(0, new ViewItem<>("a:1", hashingDelegate));
+    items.set(1, new ViewItem<>("b:0", hashingDelegate));
+    featuresAdapter.updateFeatureItems("");
+
+    //THEN
+    assertThat(hashingDelegate.contentComparisonCount, is(1));
+    verify(observer);
+  }
+
+  @Test
+  public void updateFeatureItems_should_createTheComparatorOfAViewType_when_itsItemsAreFirstBuilt()
+      throws Exception {
+    //GIVEN
+    CountingAdapterViewTypeDelegate usedDelegate = new CountingAdapterViewTypeDelegate();
+    CountingAdapterViewTypeDelegate unusedDelegate = new CountingAdapterViewTypeDelegate();
+    List<ViewItem> items = new ArrayList<>();
+    FeaturesAdapter<String> featuresAdapter =
+        new FeaturesAdapter<>(
+            singletonList(
+                new StubFeatureController<String>(asList(usedDelegate, unusedDelegate)) {
+                  @Override
+                  public List<ViewItem> buildItems(String s) {
+                    return new ArrayList<>(items);
+                  }
+                }));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 1);
+    replay(observer);
+    items.add(new ViewItem<>("a", usedDelegate));
+    int createdComparatorCount = usedDelegate.createdComparatorCount;
+
+    //WHEN
+    featuresAdapter.updateFeatureItems("");
+    featuresAdapter.updateFeatureItems("");
+
+    //THEN
+    assertThat(createdComparatorCount, is(0));
+    assertThat(usedDelegate.createdComparatorCount, is(1));
+    assertThat(unusedDelegate.createdComparatorCount, is(0));
+    verify(observer);
+  }
+
+  private static class FailingFeatureController extends StubFeatureController<String> {
+    final List<ViewItem> items;
+    boolean isFailing;
+    int buildCount;
+
+    FailingFeatureController(List<AdapterViewTypeDelegate> binders) {
+      this(binders, new ArrayList<>());
+    }
+
+    private FailingFeatureController(List<AdapterViewTypeDelegate> binders, List<ViewItem> items) {
+      super(binders, items);
+      this.items = items;
+    }
+
+    @Override
+    public List<ViewItem> buildItems(String s) {
+      buildCount++;
+      if (isFailing) {
+        throw new IllegalStateException("failing controller");
+      }
+      return super.buildItems(s);
+    }
+  }
+
+  /** Items are the same if their ids, before the colon, are equal. */
+  private static class HashingAdapterViewTypeDelegate extends StubAdapterViewTypeDelegate {
+    private final boolean confirmsEqualHashes;
+    int contentComparisonCount;
+
+    HashingAdapterViewTypeDelegate(boolean confirmsEqualHashes) {
+      this.confirmsEqualHashes = confirmsEqualHashes;
+    }
+
+    @Override
+    public DiffUtilComparator createDiffUtilComparator() {
+      return new ContentHashComparator<String>() {
+        @Override
+        public long getContentHash(String model) {
+          return model.hashCode();
+        }
+
+        @Override
+        public boolean confirmsEqualHashes() {
+          return confirmsEqualHashes;
+        }
+
+        @Override
+        public boolean areItemsTheSame(String oldModel, String newModel) {
+          return oldModel.charAt(0) == newModel.charAt(0);
+        }
+
+        @Override
+        public boolean areContentsTheSame(String oldModel, String newModel) {
+          contentComparisonCount++;
+          return oldModel.equals(newModel);
+        }
+
+        @Override
+        public Object getChangePayload(String oldModel, String newModel) {
+          return null;
+        }
+      };
+    }
+  }
+
+  private static class CountingAdapterViewTypeDelegate extends StubAdapterViewTypeDelegate {
+    int createdComparatorCount;
+
+    @Override
+    public DiffUtilComparator createDiffUtilComparator() {
+      createdComparatorCount++;
+      return super.createDiffUtilComparator();
+    }
+  }
 }
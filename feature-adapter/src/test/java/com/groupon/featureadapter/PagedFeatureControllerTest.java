@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.widget.LinearLayout;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+
+public class PagedFeatureControllerTest {
+
+  @Test
+  public void appendPage_should_changeThePlaceholders_and_insertTheOtherItems() throws Exception {
+    //GIVEN
+    StubPagedFeatureController pagedController = new StubPagedFeatureController(2);
+    FeaturesAdapter<String> featuresAdapter = new FeaturesAdapter<>(singletonList(pagedController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeChanged(0, 2, null);
+    observer.onItemRangeInserted(2, 3);
+    replay(observer);
+
+    //WHEN
+    pagedController.appendPage(createPage(3), true);
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(5));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(2).model, is((Object) "item2"));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(3).model, is((Object) "placeholder"));
+    verify(observer);
+  }
+
+  @Test
+  public void appendPage_should_removeTheExtraPlaceholders_when_itIsTheLastPage()
+      throws Exception {
+    //GIVEN
+    StubPagedFeatureController pagedController = new StubPagedFeatureController(2);
+    FeaturesAdapter<String> featuresAdapter = new FeaturesAdapter<>(singletonList(pagedController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeChanged(0, 1, null);
+    observer.onItemRangeRemoved(1, 1);
+    replay(observer);
+
+    //WHEN
+    pagedController.appendPage(createPage(1), false);
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(1));
+    verify(observer);
+  }
+
+  @Test
+  public void prependPage_should_insertTheItemsAtTheStart() throws Exception {
+    //GIVEN
+    StubPagedFeatureController pagedController = new StubPagedFeatureController(0);
+    FeaturesAdapter<String> featuresAdapter = new FeaturesAdapter<>(singletonList(pagedController));
+    RecyclerView.AdapterDataObserver observer = fixAdapterForTesting(featuresAdapter);
+    observer.onItemRangeInserted(0, 2);
+    observer.onItemRangeInserted(0, 3);
+    replay(observer);
+    pagedController.appendPage(createPage(2), false);
+
+    //WHEN
+    pagedController.prependPage(createPage(3), false);
+
+    //THEN
+    assertThat(featuresAdapter.getItemCount(), is(5));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(3).model, is((Object) "item0"));
+    verify(observer);
+  }
+
+  @Test
+  public void onBindViewHolder_should_loadTheNextPage_when_anItemCloseToTheEndIsBound()
+      throws Exception {
+    //GIVEN
+    final LinearLayout parent = new LinearLayout(createMock(Context.class));
+    StubPagedFeatureController pagedController = new StubPagedFeatureController(2);
+    FeaturesAdapter<String> featuresAdapter = new FeaturesAdapter<>(singletonList(pagedController));
+    fixAdapterForTesting(featuresAdapter);
+    pagedController.appendPage(createPage(10), true);
+
+    //WHEN
+    featuresAdapter.onBindViewHolder(new RecyclerView.ViewHolder(parent) {}, 5);
+    featuresAdapter.onBindViewHolder(new RecyclerView.ViewHolder(parent) {}, 9);
+    featuresAdapter.onBindViewHolder(new RecyclerView.ViewHolder(parent) {}, 10);
+
+    //THEN
+    assertThat(pagedController.loadNextPageCount, is(1));
+  }
+
+  private static List<ViewItem> createPage(int size) {
+    final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    delegate.setViewType(0);
+    final List<ViewItem> page = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      page.add(new ViewItem<>("item" + i, delegate));
+    }
+    return page;
+  }
+
+  private static class StubPagedFeatureController extends PagedFeatureController<String> {
+    private final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+    int loadNextPageCount;
+
+    StubPagedFeatureController(int placeholderCount) {
+      super(3, placeholderCount);
+    }
+
+    @Override
+    public Collection<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+      return asList((AdapterViewTypeDelegate) delegate);
+    }
+
+    @Override
+    protected void onLoadNextPage() {
+      loadNextPageCount++;
+    }
+
+    @Override
+    protected ViewItem createPlaceholderItem() {
+      return new ViewItem<>("placeholder", delegate);
+    }
+  }
+}
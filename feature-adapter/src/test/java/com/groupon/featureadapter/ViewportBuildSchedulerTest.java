@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter;
+
+import static com.groupon.featureadapter.TestUtils.fixAdapterForTesting;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.easymock.EasyMock.createMock;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.content.Context;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView.ViewHolder;
+import android.widget.LinearLayout;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ViewportBuildSchedulerTest {
+
+  private final StubAdapterViewTypeDelegate delegate = new StubAdapterViewTypeDelegate();
+  private final StubAdapterViewTypeDelegate placeholderDelegate = new StubAdapterViewTypeDelegate();
+
+  @Test
+  public void updateFeatureItems_should_deferTheControllersFarFromTheViewport() throws Exception {
+    //GIVEN
+    FeaturesAdapter<String> featuresAdapter = createAdapter();
+    ManualViewportBuildScheduler scheduler = new ManualViewportBuildScheduler(2, 5);
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+
+    //WHEN
+    featuresAdapter.updateFeatureItems("a");
+
+    //THEN
+    // 5 items of the first controller, and the placeholders of the others
+    assertThat(featuresAdapter.getItemCount(), is(7));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(5).model, is((Object) "a-placeholder"));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(6).model, is((Object) "a-placeholder"));
+    assertThat(scheduler.getDeferredCount(), is(2));
+    assertThat(scheduler.postedRunnables.isEmpty(), is(true));
+  }
+
+  @Test
+  public void onViewAttachedToWindow_should_buildTheDeferredControllers_when_theyComeNear()
+      throws Exception {
+    //GIVEN
+    FeaturesAdapter<String> featuresAdapter = createAdapter();
+    ManualViewportBuildScheduler scheduler = new ManualViewportBuildScheduler(2, 5);
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems("a");
+    featuresAdapter.updateFeatureItems("b");
+
+    //WHEN
+    featuresAdapter.onViewAttachedToWindow(createViewHolder(4));
+    scheduler.runFrame();
+    int itemCountBeforeDispatch = featuresAdapter.getItemCount();
+    scheduler.runBuilds();
+    scheduler.runFrame();
+
+    //THEN
+    // the second controller is built in the background from the last model it skipped, and the
+    // third one, near its placeholder, starts to build in the next frame
+    assertThat(itemCountBeforeDispatch, is(7));
+    assertThat(featuresAdapter.getItemCount(), is(11));
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(5).model, is((Object) "b1-0"));
+    assertThat(scheduler.getDeferredCount(), is(0));
+    assertThat(scheduler.buildCount, is(2));
+  }
+
+  @Test
+  public void buildDeferredFeatureItems_should_notReplaceTheItemsOfAMoreRecentBuild()
+      throws Exception {
+    //GIVEN
+    FeaturesAdapter<String> featuresAdapter = createAdapter();
+    ManualViewportBuildScheduler scheduler = new ManualViewportBuildScheduler(2, 5);
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems("a");
+    featuresAdapter.onViewAttachedToWindow(createViewHolder(4));
+    scheduler.runFrame();
+    scheduler.runBuilds();
+
+    //WHEN
+    // the controller is near now, it is built from the next model before the deferred build of
+    // the previous model is dispatched
+    featuresAdapter.updateFeatureItems("b");
+    scheduler.runFrame();
+
+    //THEN
+    assertThat(featuresAdapter.getFeatureItemsVersion().get(5).model, is((Object) "b1-0"));
+    assertThat(featuresAdapter.getItemCount(), is(11));
+  }
+
+  @Test
+  public void onViewAttachedToWindow_should_buildAllTheControllersOfTheViewport_oneByFrame()
+      throws Exception {
+    //GIVEN
+    FeaturesAdapter<String> featuresAdapter = createAdapter();
+    ManualViewportBuildScheduler scheduler = new ManualViewportBuildScheduler(1, 5);
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems("a");
+
+    //WHEN
+    // the viewport spans the estimated positions of all the controllers, the last attached view
+    // is at the top
+    featuresAdapter.onViewAttachedToWindow(createViewHolder(14));
+    featuresAdapter.onViewAttachedToWindow(createViewHolder(0));
+    scheduler.runFrame();
+    int buildCountAfterFirstFrame = scheduler.buildCount;
+    scheduler.runFrame();
+    scheduler.runBuilds();
+    scheduler.runFrame();
+
+    //THEN
+    assertThat(buildCountAfterFirstFrame, is(1));
+    assertThat(scheduler.buildCount, is(2));
+    assertThat(scheduler.getDeferredCount(), is(0));
+    assertThat(featuresAdapter.getItemCount(), is(15));
+  }
+
+  @Test
+  public void queueIdle_should_buildTheDeferredControllers_when_theMainThreadIsIdle()
+      throws Exception {
+    //GIVEN
+    FeaturesAdapter<String> featuresAdapter = createAdapter();
+    ManualViewportBuildScheduler scheduler = new ManualViewportBuildScheduler(2, 5);
+    featuresAdapter.setViewportBuildScheduler(scheduler);
+    fixAdapterForTesting(featuresAdapter);
+    featuresAdapter.updateFeatureItems("a");
+
+    //WHEN
+    boolean isStillScheduledAfterFirstBuild = scheduler.idleHandler.queueIdle();
+    boolean isStillScheduledAfterSecondBuild = scheduler.idleHandler.queueIdle();
+    scheduler.runBuilds();
+    scheduler.runFrame();
+
+    //THEN
+    assertThat(isStillScheduledAfterFirstBuild, is(true));
+    assertThat(isStillScheduledAfterSecondBuild, is(false));
+    assertThat(featuresAdapter.getItemCount(), is(15));
+    assertThat(scheduler.getDeferredCount(), is(0));
+  }
+
+  private FeaturesAdapter<String> createAdapter() {
+    return new FeaturesAdapter<>(
+        asList(
+            new NumberedItemsController(0),
+            new NumberedItemsController(1),
+            new NumberedItemsController(2)));
+  }
+
+  private ViewHolder createViewHolder(int position) throws Exception {
+    final ViewHolder holder = new ViewHolder(new LinearLayout(createMock(Context.class))) {};
+    final Field viewTypeField = ViewHolder.class.getDeclaredField("mItemViewType");
+    viewTypeField.setAccessible(true);
+    viewTypeField.setInt(holder, delegate.getViewType());
+    final Field positionField = ViewHolder.class.getDeclaredField("mPosition");
+    positionField.setAccessible(true);
+    positionField.setInt(holder, position);
+    return holder;
+  }
+
+  /** Builds 5 items, and a placeholder. */
+  private class NumberedItemsController extends FeatureController<String> {
+    private final int number;
+
+    NumberedItemsController(int number) {
+      this.number = number;
+    }
+
+    @Override
+    public List<AdapterViewTypeDelegate> getAdapterViewTypeDelegates() {
+      return asList(delegate, placeholderDelegate);
+    }
+
+    @Override
+    public List<ViewItem> buildItems(String model) {
+      final List<ViewItem> items = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        items.add(new ViewItem<>(model + number + "-" + i, delegate));
+      }
+      return items;
+    }
+
+    @Override
+    public List<ViewItem> buildPlaceholderItems(String model) {
+      return singletonList(new ViewItem<>(model + "-placeholder", placeholderDelegate));
+    }
+  }
+
+  /** Keeps the posted runnables, the builds and the idle handler instead of scheduling them. */
+  private static class ManualViewportBuildScheduler extends ViewportBuildScheduler {
+    final List<Runnable> postedRunnables = new ArrayList<>();
+    final List<Runnable> builds = new ArrayList<>();
+    int buildCount;
+    MessageQueue.IdleHandler idleHandler;
+
+    ManualViewportBuildScheduler(int prefetchDistance, int estimatedItemCount) {
+      super(prefetchDistance, estimatedItemCount, null);
+    }
+
+    @Override
+    void execute(Runnable runnable) {
+      builds.add(runnable);
+      buildCount++;
+    }
+
+    @Override
+    void post(Runnable runnable) {
+      postedRunnables.add(runnable);
+    }
+
+    /** Runs the runnables posted so far, those they post run in the next frame. */
+    void runFrame() {
+      run(postedRunnables);
+    }
+
+    /** Runs the builds started so far, as the background thread would. */
+    void runBuilds() {
+      run(builds);
+    }
+
+    private static void run(List<Runnable> runnables) {
+      final List<Runnable> runnablesToRun = new ArrayList<>(runnables);
+      runnables.clear();
+      for (Runnable runnable : runnablesToRun) {
+        runnable.run();
+      }
+    }
+
+    @Override
+    void scheduleIdleBuild(MessageQueue.IdleHandler idleHandler) {
+      this.idleHandler = idleHandler;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.events;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class FeatureEventSourceTest {
+
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  public void fireEvent_should_callTheListenersInTheOrderTheyWereAdded() {
+    //GIVEN
+    FeatureEventSource featureEventSource = new FeatureEventSource();
+    featureEventSource.addFeatureEventListener(event -> calls.add("L1"));
+    featureEventSource.addFeatureEventListener(TapEvent.class, event -> calls.add("L2"));
+    featureEventSource.addFeatureEventListener(event -> calls.add("L3"));
+
+    //WHEN
+    featureEventSource.fireEvent(new TapEvent());
+
+    //THEN
+    assertThat(calls.toString(), is("[L1, L2, L3]"));
+  }
+
+  @Test
+  public void fireEvent_should_onlyCallTheListenersOfTheClassOfTheEvent() {
+    //GIVEN
+    FeatureEventSource featureEventSource = new FeatureEventSource();
+    FeatureEventListener tapListener = event -> calls.add("tap");
+    featureEventSource.addFeatureEventListener(TapEvent.class, tapListener);
+    featureEventSource.addFeatureEventListener(ScrollEvent.class, event -> calls.add("scroll"));
+    featureEventSource.addFeatureEventListener(event -> calls.add("all"));
+    featureEventSource.fireEvent(new TapEvent());
+
+    //WHEN
+    featureEventSource.removeFeatureEventListener(TapEvent.class, tapListener);
+    featureEventSource.fireEvent(new TapEvent());
+    featureEventSource.fireEvent(new ScrollEvent());
+
+    //THEN
+    assertThat(calls.toString(), is("[tap, all, all, scroll, all]"));
+  }
+
+  private static class TapEvent implements FeatureEvent {}
+
+  private static class ScrollEvent implements FeatureEvent {}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.groupon.featureadapter.impressions;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImpressionTrackerTest {
+
+  private final List<ImpressionBatch> flushedBatches = new ArrayList<>();
+  private ManualClockImpressionTracker impressionTracker;
+
+  @Before
+  public void setUp() {
+    impressionTracker =
+        new ManualClockImpressionTracker(flushedBatches::add, /* minVisibleDuration */ 100, 2);
+  }
+
+  @Test
+  public void flush_should_passTheImpressionsOfTheViewsVisibleLongEnough() {
+    //GIVEN
+    RecyclerView.ViewHolder longHolder = createHolder();
+    RecyclerView.ViewHolder shortHolder = createHolder();
+
+    //WHEN
+    impressionTracker.onViewAttached(longHolder, "long");
+    impressionTracker.onViewAttached(shortHolder, "short");
+    impressionTracker.time = 50;
+    impressionTracker.onViewDetached(shortHolder);
+    impressionTracker.time = 150;
+    impressionTracker.onViewDetached(longHolder);
+    impressionTracker.flush();
+
+    //THEN
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).size(), is(1));
+    assertThat(flushedBatches.get(0).getKey(0), is("long"));
+    assertThat(flushedBatches.get(0).getVisibleDuration(0), is(150L));
+  }
+
+  @Test
+  public void onViewDetached_should_recordASingleImpressionPerKeyAndSession() {
+    //GIVEN
+    RecyclerView.ViewHolder holder = createHolder();
+
+    //WHEN
+    impressionTracker.onViewAttached(holder, "key");
+    impressionTracker.time = 100;
+    impressionTracker.onViewDetached(holder);
+    impressionTracker.onViewAttached(holder, "key");
+    impressionTracker.time = 200;
+    impressionTracker.onViewDetached(holder);
+    impressionTracker.flush();
+
+    //THEN
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).size(), is(1));
+  }
+
+  @Test
+  public void onViewDetached_should_flushTheBatch_when_itIsFull() {
+    //GIVEN
+    RecyclerView.ViewHolder holder = createHolder();
+
+    //WHEN
+    for (int i = 0; i < 3; i++) {
+      impressionTracker.onViewAttached(holder, i);
+      impressionTracker.time += 100;
+      impressionTracker.onViewDetached(holder);
+    }
+
+    //THEN
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).size(), is(2));
+  }
+
+  @Test
+  public void flush_should_recordTheImpressionsOfTheAttachedViews() {
+    //GIVEN
+    RecyclerView.ViewHolder holder = createHolder();
+    impressionTracker.onViewAttached(holder, "key");
+    impressionTracker.time = 100;
+
+    //WHEN
+    impressionTracker.flush();
+    impressionTracker.time = 200;
+    impressionTracker.onViewDetached(holder);
+    impressionTracker.flush();
+
+    //THEN
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).getKey(0), is("key"));
+  }
+
+  @Test
+  public void onAttachedViewRebound_should_recordThePreviousItemAndTrackTheNewOne() {
+    //GIVEN
+    RecyclerView.ViewHolder holder = createHolder();
+    impressionTracker.onViewAttached(holder, "old");
+    impressionTracker.time = 100;
+
+    //WHEN
+    impressionTracker.onAttachedViewRebound(holder, "old");
+    impressionTracker.onAttachedViewRebound(holder, "new");
+    impressionTracker.time = 250;
+    impressionTracker.onViewDetached(holder);
+    impressionTracker.flush();
+
+    //THEN
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).size(), is(2));
+    assertThat(flushedBatches.get(0).getKey(0), is("old"));
+    assertThat(flushedBatches.get(0).getVisibleDuration(0), is(100L));
+    assertThat(flushedBatches.get(0).getKey(1), is("new"));
+    assertThat(flushedBatches.get(0).getVisibleDuration(1), is(150L));
+  }
+
+  @Test
+  public void flush_should_ignoreTheDetachedViews() {
+    //GIVEN
+    RecyclerView.ViewHolder detachedHolder = createHolder();
+    RecyclerView.ViewHolder attachedHolder = createHolder();
+    impressionTracker.onViewAttached(detachedHolder, "detached");
+    impressionTracker.onViewAttached(attachedHolder, "attached");
+    impressionTracker.onViewDetached(detachedHolder);
+    impressionTracker.time = 100;
+
+    //WHEN
+    impressionTracker.flush();
+
+    //THEN
+    assertThat(impressionTracker.isAttached(detachedHolder), is(false));
+    assertThat(impressionTracker.isAttached(attachedHolder), is(true));
+    assertThat(flushedBatches.size(), is(1));
+    assertThat(flushedBatches.get(0).size(), is(1));
+    assertThat(flushedBatches.get(0).getKey(0), is("attached"));
+  }
+
+  private static RecyclerView.ViewHolder createHolder() {
+    return new RecyclerView.ViewHolder(new TagView()) {};
+  }
+
+  private static class ManualClockImpressionTracker extends ImpressionTracker {
+    long time;
+
+    ManualClockImpressionTracker(ImpressionSink sink, long minVisibleDuration, int batchSize) {
+      super(sink, Runnable::run, minVisibleDuration, batchSize);
+    }
+
+    @Override
+    long now() {
+      return time;
+    }
+  }
+
+  /** A view that keeps its keyed tags, as the android.jar used by unit tests does not. */
+  private static class TagView extends View {
+    private final Map<Integer, Object> tags = new HashMap<>();
+
+    TagView() {
+      super(null);
+    }
+
+    @Override
+    public Object getTag(int key) {
+      return tags.get(key);
+    }
+
+    @Override
+    public void setTag(int key, Object tag) {
+      tags.put(key, tag);
+    }
+  }
+}